@@ -0,0 +1,78 @@
+package com.faulch.minecraft.serverwrapper.benchmark;
+
+import com.faulch.minecraft.serverwrapper.Console;
+import com.faulch.minecraft.serverwrapper.WrapperProperties;
+import com.faulch.minecraft.serverwrapper.invoker.Player;
+import com.faulch.minecraft.serverwrapper.text.TextComponentWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a player executing a command, and of sending a player
+ * plain and styled messages, including formatting the command and passing it
+ * through the console's command queue.  A daemon thread reads the commands from standard
+ * input, standing in for the server.
+ *
+ * @author Jonathan Faulch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerBenchmark {
+
+	private Player player;
+	private TextComponentWriter writer;
+
+	@Setup
+	public void setUp() throws Exception {
+		System.setIn(new ByteArrayInputStream(new byte[0]));
+		Console console = new Console(new WrapperProperties());
+		player = new Player("Player123", console);
+		writer = new TextComponentWriter();
+		final InputStream commandInput = System.in;
+		Thread serverThread = new Thread("Benchmark-Server") {
+			@Override
+			public void run() {
+				try {
+					byte[] buffer = new byte[8192];
+					while (commandInput.read(buffer, 0, buffer.length) != -1) ;
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		serverThread.setDaemon(true);
+		serverThread.start();
+	}
+
+	@Benchmark
+	public String execute() {
+		return player.execute("fill 10 64 10 20 70 20 minecraft:stone");
+	}
+
+	@Benchmark
+	public String print() {
+		return player.print("Built \"castle\" with 1,331 blocks \\ 12 commands.");
+	}
+
+	@Benchmark
+	public String printUnicode() {
+		return player.print("Geb\u00e4ude \"Schlo\u00df\" fertig:\t1.331 Bl\u00f6cke \u2713\n");
+	}
+
+	@Benchmark
+	public String printStyled() {
+		writer.reset()
+				.text("Built ").color("gray")
+				.text("castle").color("gold").style("bold").hoverText("1,331 blocks")
+				.text(" [undo]").color("red").clickEvent("run_command", "/trigger undo");
+		return player.tellraw(writer);
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.faulch.minecraft.serverwrapper.benchmark;
+
+import com.faulch.minecraft.serverwrapper.ScriptCache;
+import com.faulch.minecraft.serverwrapper.ScriptEnginePool;
+import org.openjdk.jmh.annotations.*;
+
+import javax.script.Bindings;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of running a script the way <code>Console</code> does,
+ * when the script is already compiled and cached, and when it has to be read
+ * and compiled from scratch.  This requires a JavaScript engine, which is
+ * built into Java 8 through 14.
+ *
+ * @author Jonathan Faulch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScriptBenchmark {
+
+	private ScriptEnginePool scriptEnginePool;
+	private File scriptFile;
+	private String[] args;
+
+	@Setup
+	public void setUp() throws Exception {
+		scriptEnginePool = new ScriptEnginePool(new ScriptEngineManager(), "JavaScript", 1, Long.MAX_VALUE, Charset.defaultCharset());
+		scriptFile = File.createTempFile("benchmark", ".js");
+		scriptFile.deleteOnExit();
+		Writer writer = new FileWriter(scriptFile);
+		try {
+			writer.write("var total = 0;\nfor (var i = 1; i < args.length; i++) {\n\ttotal += args[i].length;\n}\ntotal;\n");
+		} finally {
+			writer.close();
+		}
+		args = new String[] {"benchmark", "one", "two", "three"};
+	}
+
+	@TearDown
+	public void tearDown() {
+		scriptFile.delete();
+	}
+
+	@Benchmark
+	public Object warm() throws Exception {
+		ScriptEnginePool.PooledEngine pooledEngine = scriptEnginePool.borrow();
+		try {
+			return pooledEngine.getScriptCache().eval(scriptFile, createContext(pooledEngine));
+		} finally {
+			scriptEnginePool.release(pooledEngine);
+		}
+	}
+
+	@Benchmark
+	public Object cold() throws Exception {
+		ScriptEnginePool.PooledEngine pooledEngine = scriptEnginePool.borrow();
+		try {
+			return new ScriptCache(pooledEngine.getEngine(), Charset.defaultCharset()).eval(scriptFile, createContext(pooledEngine));
+		} finally {
+			scriptEnginePool.release(pooledEngine);
+		}
+	}
+
+	/**
+	 * Creates a script context with the same bindings as those created by
+	 * <code>Console</code>, apart from the console and invoker.
+	 *
+	 * @param pooledEngine the engine the script will be run on
+	 * @return a new script context
+	 */
+	private ScriptContext createContext(ScriptEnginePool.PooledEngine pooledEngine) {
+		ScriptContext context = pooledEngine.createContext();
+		Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+		bindings.put(ScriptEngine.FILENAME, scriptFile.toString());
+		bindings.put("args", args);
+		return context;
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.faulch.minecraft.serverwrapper.benchmark;
+
+import com.faulch.minecraft.serverwrapper.io.StandardInput;
+import com.faulch.minecraft.serverwrapper.line.LineEvent;
+import com.faulch.minecraft.serverwrapper.line.LineProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of lines passed to <code>StandardInput</code> with
+ * <code>writeln</code>, and read back from the replacement standard input
+ * stream, as the server would read them.
+ *
+ * @author Jonathan Faulch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StandardInputBenchmark {
+
+	@Param({"true", "false"})
+	public boolean subscribed;
+
+	private InputStream originalInput;
+	private StandardInput standardInput;
+	private InputStream lineInput;
+	private byte[] buffer;
+	private String line;
+	private int processed;
+
+	@Setup
+	public void setUp() {
+		originalInput = System.in;
+		System.setIn(new ByteArrayInputStream(new byte[0]));
+		standardInput = new StandardInput(Charset.forName("UTF-8"));
+		if (subscribed) {
+			standardInput.addLineProcessor(new LineProcessor() {
+				@Override
+				public void processLine(LineEvent event) {
+					processed += event.getText().length();
+				}
+			});
+		}
+		lineInput = System.in;
+		buffer = new byte[8192];
+		line = "execute Player123 ~ ~ ~ fill 10 64 10 20 70 20 minecraft:stone";
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setIn(originalInput);
+	}
+
+	@Benchmark
+	public int writelnThenRead() throws Exception {
+		standardInput.writeln(line);
+		return lineInput.read(buffer, 0, buffer.length);
+	}
+
+}
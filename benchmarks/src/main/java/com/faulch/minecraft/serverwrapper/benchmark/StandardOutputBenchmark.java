@@ -0,0 +1,79 @@
+package com.faulch.minecraft.serverwrapper.benchmark;
+
+import com.faulch.minecraft.serverwrapper.io.StandardOutput;
+import com.faulch.minecraft.serverwrapper.line.LineEvent;
+import com.faulch.minecraft.serverwrapper.line.LineProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of writing a typical server log line through the
+ * <code>StandardOutput</code> tee, one byte at a time and in bulk, with and
+ * without a line processor subscribed.  The original standard output is
+ * replaced by a stream which discards everything, so only the tee is measured.
+ *
+ * @author Jonathan Faulch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StandardOutputBenchmark {
+
+	@Param({"true", "false"})
+	public boolean subscribed;
+
+	private PrintStream originalOutput;
+	private PrintStream tee;
+	private byte[] line;
+	private int processed;
+
+	@Setup
+	public void setUp() throws Exception {
+		originalOutput = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		}));
+		StandardOutput standardOutput = new StandardOutput(Charset.forName("UTF-8"));
+		if (subscribed) {
+			standardOutput.addLineProcessor(new LineProcessor() {
+				@Override
+				public void processLine(LineEvent event) {
+					processed += event.getText().length();
+				}
+			});
+		}
+		tee = System.out;
+		line = "[12:34:56] [Server thread/INFO]: <Player123> the quick brown fox jumps over the lazy dog\n".getBytes("UTF-8");
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(originalOutput);
+	}
+
+	@Benchmark
+	public void writeBytes() {
+		for (byte b : line) {
+			tee.write(b);
+		}
+	}
+
+	@Benchmark
+	public void writeBulk() {
+		tee.write(line, 0, line.length);
+	}
+
+}
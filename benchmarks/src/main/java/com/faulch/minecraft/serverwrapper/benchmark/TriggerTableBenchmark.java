@@ -0,0 +1,49 @@
+package com.faulch.minecraft.serverwrapper.benchmark;
+
+import com.faulch.minecraft.serverwrapper.WrapperProperties;
+import com.faulch.minecraft.serverwrapper.trigger.Trigger;
+import com.faulch.minecraft.serverwrapper.trigger.TriggerMatch;
+import com.faulch.minecraft.serverwrapper.trigger.TriggerTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of matching log lines against the default output
+ * triggers, for a chat line invoking a script, a chat line which does not, and
+ * an ordinary log line, which the output literal should reject before any
+ * regex is matched.
+ *
+ * @author Jonathan Faulch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TriggerTableBenchmark {
+
+	private TriggerTable outputTriggers;
+
+	@Setup
+	public void setUp() throws Exception {
+		outputTriggers = new TriggerTable(new WrapperProperties().getTriggers(Trigger.Source.OUTPUT));
+	}
+
+	@Benchmark
+	public TriggerMatch matchingCommand() {
+		return outputTriggers.match("[12:34:56] [Server thread/INFO]: <Player123> :hello one two three");
+	}
+
+	@Benchmark
+	public TriggerMatch nonMatchingChat() {
+		return outputTriggers.match("[12:34:56] [Server thread/INFO]: <Player123> the quick brown fox jumps over the lazy dog");
+	}
+
+	@Benchmark
+	public TriggerMatch nonMatchingLog() {
+		return outputTriggers.match("[12:34:56] [Server thread/INFO]: Player123 joined the game");
+	}
+
+}
@@ -1,18 +1,53 @@
 package com.faulch.minecraft.serverwrapper;
 
+import com.faulch.minecraft.serverwrapper.admission.AdmissionController;
+import com.faulch.minecraft.serverwrapper.admission.AdmissionException;
+import com.faulch.minecraft.serverwrapper.command.CommandHandler;
+import com.faulch.minecraft.serverwrapper.command.CommandHandlerRegistry;
+import com.faulch.minecraft.serverwrapper.history.ConsoleHistory;
+import com.faulch.minecraft.serverwrapper.history.HistoryEntry;
 import com.faulch.minecraft.serverwrapper.invoker.Invoker;
 import com.faulch.minecraft.serverwrapper.invoker.Player;
 import com.faulch.minecraft.serverwrapper.invoker.Server;
+import com.faulch.minecraft.serverwrapper.io.CommandScheduler;
 import com.faulch.minecraft.serverwrapper.io.StandardInput;
 import com.faulch.minecraft.serverwrapper.io.StandardOutput;
 import com.faulch.minecraft.serverwrapper.line.LineEvent;
 import com.faulch.minecraft.serverwrapper.line.LineProcessor;
+import com.faulch.minecraft.serverwrapper.log.LogEventDispatcher;
+import com.faulch.minecraft.serverwrapper.log.LogEventListener;
+import com.faulch.minecraft.serverwrapper.log.LogEventType;
+import com.faulch.minecraft.serverwrapper.metrics.MetricsServer;
+import com.faulch.minecraft.serverwrapper.metrics.WrapperMetrics;
+import com.faulch.minecraft.serverwrapper.query.QueryFuture;
+import com.faulch.minecraft.serverwrapper.query.ResponseCorrelator;
+import com.faulch.minecraft.serverwrapper.region.Region;
+import com.faulch.minecraft.serverwrapper.schedule.ScheduleDefinition;
+import com.faulch.minecraft.serverwrapper.schedule.ScheduledJob;
+import com.faulch.minecraft.serverwrapper.schedule.ScriptScheduler;
+import com.faulch.minecraft.serverwrapper.trigger.Trigger;
+import com.faulch.minecraft.serverwrapper.trigger.TriggerMatch;
+import com.faulch.minecraft.serverwrapper.trigger.TriggerTable;
+import com.faulch.minecraft.serverwrapper.watchdog.ScriptJob;
+import com.faulch.minecraft.serverwrapper.watchdog.ScriptWatchdog;
 
+import javax.script.Bindings;
+import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import java.io.File;
-import java.io.FileReader;
-import java.util.regex.Matcher;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
 
 /**
  * A console wrapper which monitors the standard input and output streams for
@@ -22,12 +57,43 @@ import java.util.regex.Matcher;
  *
  * @author Jonathan Faulch
  */
-public class Console {
+public final class Console {
+
+	/**
+	 * The command which lists the registered scripts, unless a script with
+	 * the same name is registered.
+	 */
+	private static final String helpCommand = "help";
+
+	/**
+	 * The command which lists the running scripts, which only the server may
+	 * use.
+	 */
+	private static final String jobsCommand = "jobs";
+
+	/**
+	 * The command which stops a running script, which only the server may
+	 * use.
+	 */
+	private static final String killCommand = "kill";
 
-	private final WrapperProperties properties;
 	private final StandardInput standardInput;
 	private final StandardOutput standardOutput;
-	private ScriptEngineManager scriptEngineManager;
+	private final CommandScheduler commandScheduler;
+	private final ScriptExecutor scriptExecutor;
+	private final WrapperMetrics metrics;
+	private final LogEventDispatcher logEventDispatcher;
+	private final ConsoleHistory history;
+	private final ResponseCorrelator responseCorrelator;
+	private final ScriptScheduler scriptScheduler;
+	private final ScriptRegistry scriptRegistry;
+	private final CommandHandlerRegistry commandHandlers;
+	private final ScriptWatchdog scriptWatchdog;
+	private final ThreadLocal<ScriptEnginePool.PooledEngine> borrowedEngine;
+	private volatile Configuration configuration;
+	private volatile Future<ScriptEngineManager> scriptEngineManager;
+	private volatile ScriptEnginePool scriptEnginePool;
+	private volatile AdmissionController admissionController;
 
 	/**
 	 * Creates a <code>Console</code> wrapper, which monitors the standard input
@@ -38,94 +104,609 @@ public class Console {
 	 *                   monitors the standard streams
 	 */
 	public Console(WrapperProperties properties) {
-		this.properties = properties;
+		this.configuration = new Configuration(properties);
 		this.standardInput = new StandardInput(properties.getCharset());
-		this.standardOutput = new StandardOutput();
-		initScriptEngineManager();
+		this.standardOutput = new StandardOutput(properties.getCharset());
+		this.standardInput.setDefaultTimeBudget(properties.getLineProcessorTimeBudget(), TimeUnit.MILLISECONDS);
+		this.standardOutput.setDefaultTimeBudget(properties.getLineProcessorTimeBudget(), TimeUnit.MILLISECONDS);
+		this.commandScheduler = new CommandScheduler(standardInput, properties.getCommandQueueCapacity(), properties.getCommandRate());
+		this.scriptExecutor = new ScriptExecutor(properties.getScriptThreadMode(), properties.getScriptThreadPoolSize(), properties.getScriptQueueCapacity(), properties.getScriptRejectionPolicy());
+		this.metrics = new WrapperMetrics(this);
+		this.logEventDispatcher = new LogEventDispatcher();
+		this.responseCorrelator = new ResponseCorrelator();
+		this.scriptScheduler = new ScriptScheduler(scriptExecutor, metrics);
+		this.scriptWatchdog = new ScriptWatchdog(properties.getScriptTimeLimit(), properties.getScriptCpuTimeLimit(), properties.getScriptWatchdogInterval());
+		this.borrowedEngine = new ThreadLocal<ScriptEnginePool.PooledEngine>();
+		this.commandHandlers = new CommandHandlerRegistry(Thread.currentThread().getContextClassLoader());
+		this.scriptRegistry = new ScriptRegistry(properties.getScriptDirectory(), properties.getScriptExtension(), properties.getCharset(),
+				properties.getScriptScanInterval(), commandHandlers);
+		this.history = properties.getHistoryLines() > 0 ? new ConsoleHistory(properties.getHistoryLines(), properties.getHistorySlotSize()) : null;
+		initMetrics();
+		initScriptEngineManager(properties);
+		initScriptEnginePool(properties);
+		initAdmissionController(properties);
 		addInputProcessor();
 		addOutputProcessor();
+		addLogEventProcessor();
+		addHistoryProcessor();
+		addResponseProcessor();
+		loadSchedule();
 	}
 
 	/**
-	 * Initializes the <code>ScriptEngineManager</code> used for executing
-	 * scripts.
+	 * Exposes this console's metrics through JMX, and through a local HTTP
+	 * endpoint, if they are enabled in the application's properties.  This is
+	 * done on a background thread, since starting the platform MBean server is
+	 * slow, and should not delay the start of the server.
 	 */
-	private void initScriptEngineManager() {
-		if (properties.getScriptEngineDirectory() != null) {
+	private void initMetrics() {
+		final WrapperProperties properties = getWrapperProperties();
+		Thread metricsThread = new Thread("Metrics-Initializer") {
+			@Override
+			public void run() {
+				if (properties.isMetricsJmx()) {
+					metrics.register();
+				}
+				if (properties.getMetricsPort() > 0) {
+					try {
+						new MetricsServer(metrics, properties.getMetricsPort());
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			}
+		};
+		metricsThread.setDaemon(true);
+		metricsThread.start();
+	}
+
+	/**
+	 * Starts loading the <code>ScriptEngineManager</code> used for executing
+	 * scripts on a background thread, since locating script engines scans the
+	 * entire classpath, and should not delay the start of the server.
+	 *
+	 * @param properties the application properties which locate the script engines
+	 */
+	private void initScriptEngineManager(final WrapperProperties properties) {
+		FutureTask<ScriptEngineManager> loader = new FutureTask<ScriptEngineManager>(new Callable<ScriptEngineManager>() {
+			@Override
+			public ScriptEngineManager call() {
+				if (properties.getScriptEngineDirectory() != null) {
+					try {
+						return new ScriptEngineManager(Utility.createURLClassLoader(Utility.getFiles(properties.getScriptEngineDirectory(), properties.getScriptEngineFileRegex())));
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+				return new ScriptEngineManager();
+			}
+		});
+		scriptEngineManager = loader;
+		Thread loaderThread = new Thread(loader, "Script-Engine-Loader");
+		loaderThread.setDaemon(true);
+		loaderThread.start();
+	}
+
+	/**
+	 * Initializes the <code>ScriptEnginePool</code> used for reusing script
+	 * engines between script executions.  If precompiling is enabled, then
+	 * every engine compiles the scripts in the script directory when it is
+	 * created, and the first engine is created in the background.
+	 *
+	 * @param properties the application properties which configure the pool
+	 */
+	private void initScriptEnginePool(final WrapperProperties properties) {
+		final ScriptEnginePool scriptEnginePool = new ScriptEnginePool(scriptEngineManager, properties.getScriptType(),
+				properties.getScriptEnginePoolSize(), properties.getScriptEngineIdleTimeout(), properties.getCharset());
+		if (properties.isScriptPrecompile()) {
+			scriptEnginePool.setPrecompiledScripts(properties.getScriptDirectory(), properties.getScriptExtension());
+			Thread precompileThread = new Thread("Script-Precompiler") {
+				@Override
+				public void run() {
+					try {
+						scriptEnginePool.release(scriptEnginePool.borrow());
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			};
+			precompileThread.setDaemon(true);
+			precompileThread.start();
+		}
+		this.scriptEnginePool = scriptEnginePool;
+	}
+
+	/**
+	 * Creates the admission controller which limits the scripts players may
+	 * run.  Scripts admitted by a previous controller release their permits to
+	 * that controller, so replacing it never leaks reserved cost.
+	 *
+	 * @param properties the application properties
+	 */
+	private void initAdmissionController(WrapperProperties properties) {
+		admissionController = new AdmissionController(properties.getPlayerScriptRate(), properties.getPlayerScriptBurst(),
+				properties.getPlayerScriptConcurrency(), properties.getScriptCostCeiling(), properties.getPlayerStateCapacity());
+	}
+
+	/**
+	 * Schedules the scripts listed in the schedule file, if it exists.  Each
+	 * scheduled script is run with a server invoker.
+	 */
+	private void loadSchedule() {
+		WrapperProperties properties = getWrapperProperties();
+		File scheduleFile = properties.getScheduleFile();
+		if (scheduleFile != null && scheduleFile.isFile()) {
 			try {
-				scriptEngineManager = new ScriptEngineManager(Utility.createURLClassLoader(Utility.getFiles(properties.getScriptEngineDirectory(), properties.getScriptEngineFileRegex())));
+				scriptScheduler.load(scheduleFile, properties.getCharset(), new ScriptScheduler.TaskFactory() {
+					@Override
+					public Runnable createTask(String command) {
+						return createScriptTask(command);
+					}
+				});
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
 		}
-		if (scriptEngineManager == null) {
-			scriptEngineManager = new ScriptEngineManager();
-		}
+	}
+
+	/**
+	 * Creates a task which runs a script with a server invoker, on whichever
+	 * thread runs the task.
+	 *
+	 * @param commandText the command naming the script, and its arguments
+	 * @return the task which runs the script
+	 */
+	private Runnable createScriptTask(final String commandText) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				runScript(new Server(Console.this), commandText);
+			}
+		};
 	}
 
 	/**
 	 * Adds the line processor to standard input, which this console uses for
 	 * parsing and executing commands.  Ideally, these commands are executed
 	 * from standard input from a console/terminal window, or some other server
-	 * wrapper's interface, by a server administrator.  The input regex in the
-	 * applications properties will identify when a server administrator has
-	 * issued a command.
+	 * wrapper's interface, by a server administrator.  The input triggers in
+	 * the application's properties will identify when a server administrator
+	 * has issued a command.  The scripts are never run on the thread reading
+	 * standard input, since the commands they execute could not be read while
+	 * they wait for them.  This processor has no time budget, since removing
+	 * it would stop every administrator command.
 	 */
 	private void addInputProcessor() {
 		standardInput.addLineProcessor(new LineProcessor() {
 			@Override
 			public void processLine(LineEvent event) {
-				Matcher lineMatcher = properties.getInputRegex().matcher(event.getLine().trim());
-				if (lineMatcher.matches()) {
-					runScript(new Server(Console.this), lineMatcher.group(1));
+				TriggerMatch match = configuration.inputTriggers.match(event.getText());
+				metrics.recordInputLine(match != null);
+				if (match != null) {
+					submitScript(createInvoker(match), match.getCommandText(), false);
 					event.cancel();
 				}
 			}
-		});
+		}, 0, 0, TimeUnit.MILLISECONDS);
 	}
 
 	/**
 	 * Adds the line processor to standard out, which this console uses for
 	 * parsing and executing commands.  Ideally, these commands are executed by
-	 * players, and the output regex in the application's properties will
-	 * identify when a player has issued a command.
+	 * players, and the output triggers in the application's properties will
+	 * identify when a player has issued a command.  This processor has no time
+	 * budget, since it runs scripts inline when the script executor has no
+	 * threads.
 	 */
 	private void addOutputProcessor() {
 		standardOutput.addLineProcessor(new LineProcessor() {
 			@Override
 			public void processLine(LineEvent event) {
-				Matcher lineMatcher = properties.getOutputRegex().matcher(event.getLine().trim());
-				if (lineMatcher.matches()) {
-					runScript(new Player(lineMatcher.group(1), Console.this), lineMatcher.group(2));
+				TriggerMatch match = configuration.outputTriggers.match(event.getText());
+				metrics.recordOutputLine(match != null);
+				if (match != null) {
+					submitScript(createInvoker(match), match.getCommandText(), true);
 				}
 			}
-		});
+		}, 0, 0, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Adds the line processor to standard out, which parses each line once
+	 * into a typed log event for the log event listeners.  This processor has
+	 * no time budget, since removing it would silently unsubscribe every
+	 * listener.
+	 */
+	private void addLogEventProcessor() {
+		standardOutput.addLineProcessor(logEventDispatcher, 0, 0, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Adds the line processor to standard out, which records every line in
+	 * this console's history, if the history is enabled.  This processor has
+	 * no time budget, since recording a line never blocks for long.
+	 */
+	private void addHistoryProcessor() {
+		if (history != null) {
+			standardOutput.addLineProcessor(new LineProcessor() {
+				@Override
+				public void processLine(LineEvent event) {
+					history.record(event.getText());
+				}
+			}, 0, 0, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Adds the line processor to standard out, which completes queries with
+	 * the lines responding to their commands.  This processor has no time
+	 * budget, since removing it would leave every query to time out.
+	 */
+	private void addResponseProcessor() {
+		standardOutput.addLineProcessor(responseCorrelator, 0, 0, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Creates the invoker identified by a trigger match.
+	 *
+	 * @param match the trigger match which identifies the invoker
+	 * @return a player if the match identifies one; a server otherwise
+	 */
+	private Invoker createInvoker(TriggerMatch match) {
+		return match.getPlayerName() != null ? new Player(match.getPlayerName(), this) : new Server(this);
+	}
+
+	/**
+	 * Submits a script to this console's script executor, so that it will be
+	 * run after any scripts previously triggered by the same invoker.  A
+	 * command which names no registered script is rejected immediately,
+	 * without occupying the executor.  Command handlers are submitted exactly
+	 * like scripts.  Scripts triggered by players must also
+	 * be admitted by the admission controller, which limits how many scripts,
+	 * and how costly, each player and all players together may run.  If the
+	 * script is rejected, then the invoker is notified without blocking, so
+	 * that a flood of rejected commands cannot stall the thread reading the
+	 * server's output.  The commands which
+	 * list and kill running scripts are reserved for the server, and run
+	 * immediately, so that they work even when every script thread is busy.
+	 *
+	 * @param invoker      the invoker of the script which executed the supplied command
+	 * @param commandText  the command to be executed by this console
+	 * @param callerMayRun whether or not the script may run on the current thread
+	 */
+	private void submitScript(final Invoker invoker, final String commandText, boolean callerMayRun) {
+		String command = getCommandName(commandText);
+		if (invoker.isServer() && (jobsCommand.equals(command) || killCommand.equals(command))) {
+			runJobCommand(invoker, commandText.split("\\s+"));
+			return;
+		}
+		CommandHandler handler = commandHandlers.get(command);
+		RegisteredScript script = handler == null ? scriptRegistry.get(command) : null;
+		if (handler == null && script == null && !helpCommand.equals(command)) {
+			printRejection(invoker, createUnknownScriptMessage(command));
+			return;
+		}
+		final AdmissionController.Permit permit;
+		if (invoker.isServer()) {
+			permit = null;
+		} else {
+			try {
+				permit = admissionController.acquire(invoker.getName(), handler != null ? handler.getCost() : script != null ? script.getCost() : 1);
+			} catch (AdmissionException e) {
+				metrics.recordRejectedScript();
+				printRejection(invoker, e.getMessage());
+				return;
+			}
+		}
+		scriptExecutor.submit(invoker.getName(), new ScriptExecutor.Task() {
+			@Override
+			public void run() {
+				try {
+					runScript(invoker, commandText);
+				} finally {
+					release(permit);
+				}
+			}
+
+			@Override
+			public void reject() {
+				release(permit);
+				printRejection(invoker, "Too many scripts are waiting to run, \"" + commandText + "\" was not run.");
+			}
+		}, callerMayRun);
+	}
+
+	/**
+	 * Tells an invoker that their command was not run, without blocking the
+	 * thread which detected the command.  If too many commands are already
+	 * waiting to be executed, then a player is not told at all, rather than
+	 * stalling the server's output while the queue drains.
+	 *
+	 * @param invoker the invoker of the command
+	 * @param message the reason the command was not run
+	 */
+	private static void printRejection(Invoker invoker, String message) {
+		if (invoker instanceof Player) {
+			((Player) invoker).tryPrintError(message);
+		} else {
+			invoker.printError(message);
+		}
+	}
+
+	/**
+	 * Releases the admission permit of a script, if it has one.
+	 *
+	 * @param permit the permit of the script, or <code>null</code> if the script
+	 *               was not subject to admission control
+	 */
+	private static void release(AdmissionController.Permit permit) {
+		if (permit != null) {
+			permit.release();
+		}
 	}
 
 	/**
 	 * Runs a script and supplies it with access to the supplied invoker,
-	 * arguments, and this console.  The script execution engine is directed by
-	 * this object's associated application properties.
+	 * arguments, and this console.  The command is first resolved to a Java
+	 * command handler, which runs without a script engine, and otherwise to a
+	 * script through the script registry, by name or alias.  If no script is
+	 * registered as <code>help</code>, that command lists the registered
+	 * commands instead.
+	 * The script execution engine is directed by this object's associated
+	 * application properties.  The run is recorded in this console's metrics.
 	 *
 	 * @param invoker     the invoker of the script which executed the supplied command
 	 * @param commandText the command to be executed by this console
 	 */
 	private void runScript(Invoker invoker, String commandText) {
-		FileReader reader = null;
+		String[] tokens = commandText.split("\\s+");
+		CommandHandler handler = commandHandlers.get(tokens[0]);
+		if (handler != null) {
+			runHandler(invoker, handler, tokens);
+			return;
+		}
+		RegisteredScript script = scriptRegistry.get(tokens[0]);
+		if (script == null) {
+			if (helpCommand.equals(tokens[0])) {
+				printHelp(invoker, tokens);
+			} else {
+				printUnknownScript(invoker, tokens[0]);
+			}
+			return;
+		}
+		File scriptFile = script.getFile();
+		long start = System.nanoTime();
+		ScriptJob job = scriptWatchdog.start(script.getName(), invoker.getName());
+		boolean failed = true;
+		try {
+			ScriptEnginePool scriptEnginePool = this.scriptEnginePool;
+			ScriptEnginePool.PooledEngine pooledEngine = scriptEnginePool.borrow();
+			borrowedEngine.set(pooledEngine);
+			try {
+				ScriptContext context = pooledEngine.createContext();
+				Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+				bindings.put(ScriptEngine.FILENAME, scriptFile.toString());
+				bindings.put("args", tokens);
+				bindings.put("console", this);
+				bindings.put("invoker", invoker);
+				pooledEngine.getScriptCache().eval(script, context);
+				failed = false;
+			} finally {
+				borrowedEngine.remove();
+				scriptEnginePool.release(pooledEngine);
+			}
+		} catch (Exception e) {
+			if (job.getCancelReason() == null) {
+				invoker.printError(e.getMessage());
+			}
+		} finally {
+			finishJob(invoker, job, start, failed);
+		}
+	}
+
+	/**
+	 * Runs a Java command handler with the supplied invoker, arguments, and
+	 * this console.  Like a script, the handler is watched for overrunning its
+	 * time limits, and the run is recorded in this console's metrics under the
+	 * handler's name.
+	 *
+	 * @param invoker the invoker of the command
+	 * @param handler the handler of the command
+	 * @param tokens  the words of the command
+	 */
+	private void runHandler(Invoker invoker, CommandHandler handler, String[] tokens) {
+		long start = System.nanoTime();
+		ScriptJob job = scriptWatchdog.start(handler.getName(), invoker.getName());
+		boolean failed = true;
 		try {
-			String[] tokens = commandText.split("\\s+");
-			File scriptFile = new File(properties.getScriptDirectory(), tokens[0] + properties.getScriptExtension());
-			ScriptEngine engine = scriptEngineManager.getEngineByName(properties.getScriptType());
-			engine.put(ScriptEngine.FILENAME, scriptFile.toString());
-			engine.put("args", tokens);
-			engine.put("console", this);
-			engine.put("invoker", invoker);
-			engine.eval(reader = new FileReader(scriptFile));
+			handler.execute(invoker, tokens, this);
+			failed = false;
 		} catch (Exception e) {
-			invoker.printError(e.getMessage());
+			if (job.getCancelReason() == null) {
+				invoker.printError(e.getMessage());
+			}
 		} finally {
-			Utility.tryClose(reader);
+			finishJob(invoker, job, start, failed);
+		}
+	}
+
+	/**
+	 * Stops watching a finished script or command handler, tells the invoker
+	 * if it was cancelled, and records the run in this console's metrics.
+	 *
+	 * @param invoker the invoker of the script
+	 * @param job     the job of the script
+	 * @param start   the value of <code>System.nanoTime()</code> when the script started
+	 * @param failed  <code>true</code> if the script failed; <code>false</code>
+	 *                otherwise
+	 */
+	private void finishJob(Invoker invoker, ScriptJob job, long start, boolean failed) {
+		long cpuTime = scriptWatchdog.finish(job);
+		String cancelReason = job.getCancelReason();
+		if (cancelReason != null) {
+			failed = true;
+			metrics.recordCancelledScript();
+			invoker.printError(cancelReason);
+		}
+		metrics.recordScript(job.getScriptName(), System.nanoTime() - start, cpuTime, failed);
+	}
+
+	/**
+	 * Gets the name of the script named by a command, which is its first
+	 * word.
+	 *
+	 * @param commandText the command naming the script, and its arguments
+	 * @return the name of the script
+	 */
+	private static String getCommandName(String commandText) {
+		int end = 0;
+		while (end < commandText.length() && !Character.isWhitespace(commandText.charAt(end))) {
+			end++;
+		}
+		return commandText.substring(0, end);
+	}
+
+	/**
+	 * Tells an invoker that a command names no registered script.
+	 *
+	 * @param invoker the invoker of the command
+	 * @param command the name used in the command
+	 */
+	private void printUnknownScript(Invoker invoker, String command) {
+		invoker.printError(createUnknownScriptMessage(command));
+	}
+
+	/**
+	 * Creates the message telling an invoker that a command names no
+	 * registered script.
+	 *
+	 * @param command the name used in the command
+	 * @return the message
+	 */
+	private static String createUnknownScriptMessage(String command) {
+		return "There is no script named \"" + command + "\", try \"" + helpCommand + "\" for a list of scripts.";
+	}
+
+	/**
+	 * Lists the registered scripts with their usage and aliases, or describes
+	 * a single script if one is named after the <code>help</code> command.
+	 *
+	 * @param invoker the invoker of the <code>help</code> command
+	 * @param tokens  the words of the <code>help</code> command
+	 */
+	private void printHelp(Invoker invoker, String[] tokens) {
+		if (tokens.length > 1) {
+			CommandHandler handler = commandHandlers.get(tokens[1]);
+			RegisteredScript script = scriptRegistry.get(tokens[1]);
+			if (handler != null) {
+				invoker.print(describe(handler.getName(), handler.getUsage(), handler.getAliases()));
+			} else if (script == null) {
+				printUnknownScript(invoker, tokens[1]);
+			} else {
+				invoker.print(describe(script));
+			}
+		} else {
+			Map<String, String> descriptions = new TreeMap<String, String>();
+			for (RegisteredScript script : scriptRegistry.getScripts()) {
+				descriptions.put(script.getName(), describe(script));
+			}
+			for (CommandHandler handler : commandHandlers.getHandlers()) {
+				descriptions.put(handler.getName(), describe(handler.getName(), handler.getUsage(), handler.getAliases()));
+			}
+			for (String description : descriptions.values()) {
+				invoker.print(description);
+			}
+			if (invoker.isServer()) {
+				invoker.print(jobsCommand + " (lists running scripts)");
+				invoker.print(killCommand + " <id> (stops a running script)");
+			}
+		}
+	}
+
+	/**
+	 * Runs one of the commands which list and kill running scripts, which are
+	 * <code>jobs</code> and <code>kill &lt;id&gt;</code>.
+	 *
+	 * @param invoker the invoker of the command
+	 * @param tokens  the command name followed by its arguments
+	 */
+	private void runJobCommand(Invoker invoker, String[] tokens) {
+		if (jobsCommand.equals(tokens[0])) {
+			List<ScriptJob> jobs = scriptWatchdog.getJobs();
+			if (jobs.isEmpty()) {
+				invoker.print("No scripts are running.");
+			}
+			for (ScriptJob job : jobs) {
+				invoker.print(job.toString());
+			}
+			return;
+		}
+		if (tokens.length < 2) {
+			invoker.printError("Try \"" + killCommand + " <id>\", with the id of a job listed by \"" + jobsCommand + "\".");
+			return;
+		}
+		String id = tokens[1].startsWith("#") ? tokens[1].substring(1) : tokens[1];
+		try {
+			if (scriptWatchdog.kill(Integer.parseInt(id), invoker.getName())) {
+				invoker.print("Stopping job #" + id + ".");
+				return;
+			}
+		} catch (NumberFormatException e) {
+			// Reported below, like a job which is not running.
+		}
+		invoker.printError("There is no running job \"" + tokens[1] + "\", try \"" + jobsCommand + "\" for a list of jobs.");
+	}
+
+	/**
+	 * Describes a script by its name, usage and aliases.
+	 *
+	 * @param script the script to be described
+	 * @return the description of the script
+	 */
+	private static String describe(RegisteredScript script) {
+		return describe(script.getName(), script.getUsage(), script.getAliases());
+	}
+
+	/**
+	 * Describes a command by its name, usage and aliases.
+	 *
+	 * @param name    the name of the command
+	 * @param usage   the usage of the command, or <code>null</code> if it is not
+	 *                declared
+	 * @param aliases the aliases of the command
+	 * @return the description of the command
+	 */
+	private static String describe(String name, String usage, List<String> aliases) {
+		StringBuilder description = new StringBuilder(name);
+		if (usage != null) {
+			description.append(' ').append(usage);
 		}
+		for (int i = 0; i < aliases.size(); i++) {
+			description.append(i == 0 ? " (" : ", ").append(aliases.get(i));
+		}
+		if (!aliases.isEmpty()) {
+			description.append(')');
+		}
+		return description.toString();
+	}
+
+	/**
+	 * Gets every script registered in the script directory, sorted by name.
+	 *
+	 * @return an unmodifiable list of the registered scripts
+	 */
+	public List<RegisteredScript> getScripts() {
+		return scriptRegistry.getScripts();
+	}
+
+	/**
+	 * Gets every Java command handler loaded from the library directory,
+	 * sorted by name.
+	 *
+	 * @return an unmodifiable list of the command handlers
+	 */
+	public List<CommandHandler> getCommandHandlers() {
+		return commandHandlers.getHandlers();
 	}
 
 	/**
@@ -136,7 +717,62 @@ public class Console {
 	 * @return the application properties associated with this console
 	 */
 	public WrapperProperties getWrapperProperties() {
-		return properties;
+		return configuration.properties;
+	}
+
+	/**
+	 * Replaces the application properties associated with this console with
+	 * reloaded properties.  The triggers, the execute command, the script
+	 * directory and extension, and the world limits take effect immediately.
+	 * A change to the script engine settings replaces the script engine pool,
+	 * while scripts already running finish with their current engines.  The
+	 * remaining properties, such as thread pool sizes, queue capacities and
+	 * the character encoding, only take effect after a restart.
+	 *
+	 * @param properties the reloaded application properties
+	 */
+	public synchronized void setWrapperProperties(WrapperProperties properties) {
+		WrapperProperties previous = configuration.properties;
+		boolean managerChanged = changed(previous.getScriptEngineDirectory(), properties.getScriptEngineDirectory())
+				|| changed(previous.getScriptEngineFileRegex(), properties.getScriptEngineFileRegex());
+		boolean poolChanged = managerChanged
+				|| changed(previous.getScriptType(), properties.getScriptType())
+				|| previous.getScriptEnginePoolSize() != properties.getScriptEnginePoolSize()
+				|| previous.getScriptEngineIdleTimeout() != properties.getScriptEngineIdleTimeout();
+		boolean admissionChanged = previous.getPlayerScriptRate() != properties.getPlayerScriptRate()
+				|| previous.getPlayerScriptBurst() != properties.getPlayerScriptBurst()
+				|| previous.getPlayerScriptConcurrency() != properties.getPlayerScriptConcurrency()
+				|| previous.getScriptCostCeiling() != properties.getScriptCostCeiling()
+				|| previous.getPlayerStateCapacity() != properties.getPlayerStateCapacity();
+		configuration = new Configuration(properties);
+		if (changed(previous.getScriptDirectory(), properties.getScriptDirectory())
+				|| changed(previous.getScriptExtension(), properties.getScriptExtension())
+				|| changed(previous.getCharset(), properties.getCharset())) {
+			scriptRegistry.setLocation(properties.getScriptDirectory(), properties.getScriptExtension(), properties.getCharset());
+		}
+		if (managerChanged) {
+			initScriptEngineManager(properties);
+		}
+		if (poolChanged) {
+			initScriptEnginePool(properties);
+		}
+		if (admissionChanged) {
+			initAdmissionController(properties);
+		}
+		scriptWatchdog.setLimits(properties.getScriptTimeLimit(), properties.getScriptCpuTimeLimit());
+	}
+
+	/**
+	 * Determines whether or not a property value has changed, comparing the
+	 * values by their text, so that patterns and files compare as expected.
+	 *
+	 * @param previous the previous value, which may be <code>null</code>
+	 * @param current  the current value, which may be <code>null</code>
+	 * @return <code>true</code> if the value has changed; <code>false</code>
+	 * otherwise
+	 */
+	private static boolean changed(Object previous, Object current) {
+		return !String.valueOf(previous).equals(String.valueOf(current));
 	}
 
 	/**
@@ -161,32 +797,426 @@ public class Console {
 	}
 
 	/**
-	 * Executes the supplied command, by submitting it to standard input.
+	 * Gets the metrics recorded by this console.
+	 *
+	 * @return the metrics recorded by this console
+	 */
+	public WrapperMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Subscribes a listener to a type of server log message, such as players
+	 * joining or dying.  Listeners are called on the thread which logged the
+	 * message, so they should return quickly.  Every listener shares a single
+	 * parse of each line.
+	 *
+	 * @param type     the type of log message
+	 * @param listener the listener to be called for each message of the type
+	 */
+	public void addLogEventListener(LogEventType type, LogEventListener listener) {
+		logEventDispatcher.addLogEventListener(type, listener);
+	}
+
+	/**
+	 * Subscribes a listener to a type of server log message, identified by
+	 * name, which is a convenience for scripts.
+	 *
+	 * @param type     the name of the type of log message, such as "join"
+	 * @param listener the listener to be called for each message of the type
+	 * @throws IllegalArgumentException if there is no type with the name
+	 */
+	public void addLogEventListener(String type, LogEventListener listener) {
+		addLogEventListener(LogEventType.valueOf(type.trim().toUpperCase()), listener);
+	}
+
+	/**
+	 * Unsubscribes a listener from a type of server log message.
+	 *
+	 * @param type     the type of log message
+	 * @param listener the listener to be removed
+	 * @return <code>true</code> if the listener was removed;
+	 * <code>false</code> if it was not subscribed to the type
+	 */
+	public boolean removeLogEventListener(LogEventType type, LogEventListener listener) {
+		return logEventDispatcher.removeLogEventListener(type, listener);
+	}
+
+	/**
+	 * Finds the most recent lines of standard output which contain every word
+	 * in the query, ignoring case.  Only the first few words following the
+	 * log header of each line are indexed, which includes player names and
+	 * the start of chat messages.
+	 *
+	 * @param query the words to search for, such as a player name
+	 * @param limit the maximum number of lines to return
+	 * @return the matching lines, oldest first, or an empty list if the history
+	 * is disabled
+	 */
+	public List<HistoryEntry> history(String query, int limit) {
+		return history != null ? history.search(query, limit) : Collections.<HistoryEntry>emptyList();
+	}
+
+	/**
+	 * Gets the most recent lines of standard output.
+	 *
+	 * @param count the maximum number of lines to return
+	 * @return the most recent lines, oldest first, or an empty list if the
+	 * history is disabled
+	 */
+	public List<HistoryEntry> tail(int count) {
+		return history != null ? history.tail(count) : Collections.<HistoryEntry>emptyList();
+	}
+
+	/**
+	 * Executes the supplied command, by submitting it to standard input.  If
+	 * too many commands are already waiting to be submitted, then this blocks
+	 * until there is room for the command.  The command is recorded as having
+	 * been executed by the console itself.
 	 *
 	 * @param command the command to be executed or interpreted by any entity
 	 *                listening to standard input
 	 * @return the value passed to this method as a convenience
+	 * @throws RejectedExecutionException if the current thread is interrupted while waiting
+	 *                                    for room for the command
+	 * @throws CancellationException      if the script running on the current thread has been
+	 *                                    cancelled
 	 */
 	public String execute(String command) {
-		standardInput.writeln(command);
+		metrics.recordCommand("Console");
+		submit(command);
+		return command;
+	}
+
+	/**
+	 * Executes the supplied command on behalf of an invoker, by submitting it
+	 * to standard input.  This is identical to <code>execute(String)</code>,
+	 * except that the command is recorded as having been executed by the
+	 * invoker.
+	 *
+	 * @param invoker the invoker executing the command
+	 * @param command the command to be executed or interpreted by any entity
+	 *                listening to standard input
+	 * @return the command passed to this method as a convenience
+	 * @throws RejectedExecutionException if the current thread is interrupted while waiting
+	 *                                    for room for the command
+	 * @throws CancellationException      if the script running on the current thread has been
+	 *                                    cancelled
+	 */
+	public String execute(Invoker invoker, String command) {
+		metrics.recordCommand(invoker.getName());
+		submit(command);
 		return command;
 	}
 
+	/**
+	 * Executes the supplied command on behalf of an invoker, unless too many
+	 * commands are already waiting to be submitted to standard input, in which
+	 * case the command is dropped.  Unlike <code>execute</code>, this never
+	 * blocks.
+	 *
+	 * @param invoker the invoker executing the command
+	 * @param command the command to be executed or interpreted by any entity
+	 *                listening to standard input
+	 * @return <code>true</code> if the command was submitted; <code>false</code>
+	 * if it was dropped
+	 */
+	public boolean tryExecute(Invoker invoker, String command) {
+		if (!commandScheduler.offer(command)) {
+			return false;
+		}
+		metrics.recordCommand(invoker.getName());
+		return true;
+	}
+
+	/**
+	 * Submits the supplied command to standard input, and returns a future
+	 * which completes once the command has actually been passed to standard
+	 * input.  Scripts issuing many commands can wait on the returned future to
+	 * keep pace with the rate at which commands are delivered.  If too many
+	 * commands are already waiting to be submitted, then this blocks until
+	 * there is room for the command.  This is a cancellation point, so a script
+	 * which has been killed or has run out of time stops here, as it does when
+	 * it calls <code>execute</code>.
+	 *
+	 * @param command the command to be executed or interpreted by any entity
+	 *                listening to standard input
+	 * @return a future which completes with the command once it has been passed
+	 * to standard input
+	 * @throws RejectedExecutionException if the current thread is interrupted while waiting
+	 *                                    for room for the command
+	 * @throws CancellationException      if the script running on the current thread has been
+	 *                                    cancelled
+	 */
+	public Future<String> submit(String command) {
+		scriptWatchdog.checkpoint();
+		try {
+			return commandScheduler.schedule(command);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RejectedExecutionException("Interrupted while waiting to execute \"" + command + "\".", e);
+		}
+	}
+
+	/**
+	 * Executes a command, and returns a future which completes with the first
+	 * line of standard output matching the response pattern, once the command
+	 * has been passed to standard input.  This lets scripts wait for the
+	 * result of commands such as <code>time query daytime</code>, rather than
+	 * sleeping and guessing.
+	 *
+	 * @param command         the command to be executed
+	 * @param responsePattern the regex which the response line contains
+	 * @param timeoutMillis   the time to wait for the response in milliseconds
+	 * @return a future which completes with a list of the single matching line,
+	 * or fails with a <code>TimeoutException</code>
+	 * @throws RejectedExecutionException if the current thread is interrupted while waiting
+	 *                                    for room for the command
+	 * @throws CancellationException      if the script running on the current thread has been
+	 *                                    cancelled
+	 */
+	public Future<List<MatchResult>> query(String command, String responsePattern, long timeoutMillis) {
+		return query(command, responsePattern, 1, timeoutMillis);
+	}
+
+	/**
+	 * Executes a command, and returns a future which completes with the lines
+	 * of standard output matching the response pattern, once the specified
+	 * number of lines have matched.  While several queries are waiting, each
+	 * line is consumed by the oldest query it matches.
+	 *
+	 * @param command         the command to be executed
+	 * @param responsePattern the regex which each response line contains
+	 * @param responseCount   the number of response lines to wait for
+	 * @param timeoutMillis   the time to wait for every response line in milliseconds
+	 * @return a future which completes with the matching lines, or fails with a
+	 * <code>TimeoutException</code>
+	 * @throws RejectedExecutionException if the current thread is interrupted while waiting
+	 *                                    for room for the command
+	 * @throws CancellationException      if the script running on the current thread has been
+	 *                                    cancelled
+	 */
+	public Future<List<MatchResult>> query(String command, String responsePattern, int responseCount, long timeoutMillis) {
+		scriptWatchdog.checkpoint();
+		final QueryFuture query = responseCorrelator.register(command, Pattern.compile(responsePattern), responseCount, timeoutMillis, TimeUnit.MILLISECONDS);
+		try {
+			commandScheduler.schedule(command, new Runnable() {
+				@Override
+				public void run() {
+					responseCorrelator.setDelivered(query);
+				}
+			});
+		} catch (InterruptedException e) {
+			query.cancel(false);
+			Thread.currentThread().interrupt();
+			throw new RejectedExecutionException("Interrupted while waiting to execute \"" + command + "\".", e);
+		}
+		metrics.recordCommand("Console");
+		return query;
+	}
+
+	/**
+	 * Schedules a script to run with a server invoker, without holding a
+	 * thread between runs.  The schedule is <code>@every &lt;duration&gt;</code>,
+	 * <code>@after &lt;duration&gt;</code>, or five cron fields, optionally
+	 * followed by <code>jitter=&lt;duration&gt;</code> and
+	 * <code>overlap</code>, such as <code>@every 10m jitter=30s</code>.
+	 *
+	 * @param schedule    when and how the script runs
+	 * @param commandText the command naming the script, and its arguments
+	 * @return the scheduled job, which can be used to cancel it
+	 * @throws IllegalArgumentException if the schedule is not valid
+	 */
+	public ScheduledJob schedule(String schedule, String commandText) {
+		return scriptScheduler.schedule(parseSchedule(schedule), commandText, createScriptTask(commandText));
+	}
+
+	/**
+	 * Schedules a task, such as a script function, to run without holding a
+	 * thread between runs.  The schedule has the same form as for
+	 * <code>schedule(String, String)</code>.  Each run is watched like a
+	 * script run by the server, under the name of the script which scheduled
+	 * the task.  A task scheduled by a script runs while the engine of that
+	 * script is borrowed, since the functions a script creates belong to its
+	 * engine.
+	 *
+	 * @param schedule when and how the task runs
+	 * @param task     the task to run
+	 * @return the scheduled job, which can be used to cancel it
+	 * @throws IllegalArgumentException if the schedule is not valid
+	 */
+	public ScheduledJob schedule(String schedule, Runnable task) {
+		return scriptScheduler.schedule(parseSchedule(schedule), String.valueOf(task), createCallbackTask(task));
+	}
+
+	/**
+	 * Creates a task which runs a callback scheduled by the script running on
+	 * the current thread, with a server invoker, on whichever thread runs the
+	 * task.
+	 *
+	 * @param callback the callback scheduled by the script
+	 * @return the task which runs the callback
+	 */
+	private Runnable createCallbackTask(final Runnable callback) {
+		ScriptJob schedulingJob = scriptWatchdog.getCurrentJob();
+		final String name = schedulingJob != null ? schedulingJob.getScriptName() : String.valueOf(callback);
+		final ScriptEnginePool.PooledEngine ownerEngine = borrowedEngine.get();
+		return new Runnable() {
+			@Override
+			public void run() {
+				Invoker invoker = new Server(Console.this);
+				long start = System.nanoTime();
+				ScriptJob job = scriptWatchdog.start(name, invoker.getName());
+				boolean failed = true;
+				try {
+					if (ownerEngine == null) {
+						callback.run();
+					} else {
+						ownerEngine.getPool().borrow(ownerEngine);
+						borrowedEngine.set(ownerEngine);
+						try {
+							callback.run();
+						} finally {
+							borrowedEngine.remove();
+							ownerEngine.getPool().release(ownerEngine);
+						}
+					}
+					failed = false;
+				} catch (Exception e) {
+					if (job.getCancelReason() == null) {
+						invoker.printError(e.getMessage());
+					}
+				} finally {
+					finishJob(invoker, job, start, failed);
+				}
+			}
+
+			@Override
+			public String toString() {
+				return String.valueOf(callback);
+			}
+		};
+	}
+
+	/**
+	 * Parses a schedule which must not be followed by a command.
+	 *
+	 * @param schedule when and how a job runs
+	 * @return the parsed schedule
+	 * @throws IllegalArgumentException if the schedule is not valid
+	 */
+	private ScheduleDefinition parseSchedule(String schedule) {
+		ScheduleDefinition definition = ScheduleDefinition.parse(schedule);
+		if (definition.getCommand().length() > 0) {
+			throw new IllegalArgumentException("\"" + definition.getCommand() + "\" is not a schedule option.");
+		}
+		return definition;
+	}
+
+	/**
+	 * Gets every scheduled job which will run again.
+	 *
+	 * @return the scheduled jobs
+	 */
+	public List<ScheduledJob> getScheduledJobs() {
+		return scriptScheduler.getJobs();
+	}
+
+	/**
+	 * Gets the number of commands which have been executed through this
+	 * console, but have not yet been passed to standard input.
+	 *
+	 * @return the number of commands waiting to be passed to standard input
+	 */
+	public int getCommandQueueDepth() {
+		return commandScheduler.getQueueDepth();
+	}
+
+	/**
+	 * Gets the number of scripts which have been triggered, but have not yet
+	 * started running.
+	 *
+	 * @return the number of scripts waiting to run
+	 */
+	public int getScriptQueueDepth() {
+		return scriptExecutor.getPendingCount();
+	}
+
+	/**
+	 * Creates an empty region, limited by the world height and
+	 * <code>fill</code> volume limits in the application properties.  Scripts
+	 * can add shapes to the region, and then pass it to <code>fill</code>, to
+	 * build them with as few commands as possible.
+	 *
+	 * @return a new empty region
+	 */
+	public Region createRegion() {
+		WrapperProperties properties = getWrapperProperties();
+		return new Region(properties.getWorldMinY(), properties.getWorldMaxY(), properties.getFillLimit());
+	}
+
+	/**
+	 * Fills every block in the supplied region by executing the minimal list of
+	 * <code>fill</code> commands produced by the region.
+	 *
+	 * @param region the region to be filled
+	 * @param block  the text following the coordinates in each command, such as
+	 *               the block name and any block data
+	 * @return the number of commands executed
+	 */
+	public int fill(Region region, String block) {
+		List<String> commands = region.toFillCommands(block);
+		for (String command : commands) {
+			execute(command);
+		}
+		return commands.size();
+	}
+
 	/**
 	 * A convenience method for easily allowing scripts to sleep during
 	 * execution.  This may be helpful with animating commands, or allowing the
 	 * server time to catch up during processing.  Admittedly, good legitimate
-	 * uses of this method will be sparse.
+	 * uses of this method will be sparse.  This is a cancellation point, so a
+	 * script which has been killed or has run out of time stops here.
 	 *
 	 * @param millis the length of time to sleep in milliseconds
 	 * @return the value passed to this method as a convenience
 	 * @throws InterruptedException If any thread has interrupted the current thread.  The
 	 *                              <i>interrupted status</i> of the current thread is cleared when
 	 *                              this exception is thrown.
+	 * @throws CancellationException if the script running on the current thread has been
+	 *                               cancelled
 	 */
 	public long sleep(long millis) throws InterruptedException {
+		scriptWatchdog.checkpoint();
 		Thread.sleep(millis);
 		return millis;
 	}
 
+	/**
+	 * The application properties of a console, along with the trigger tables
+	 * built from them.  A configuration is replaced as a whole when the
+	 * properties are reloaded, so that line processors see the properties and
+	 * triggers of a single snapshot with one volatile read.
+	 */
+	private static class Configuration {
+
+		private final WrapperProperties properties;
+		private final TriggerTable inputTriggers;
+		private final TriggerTable outputTriggers;
+
+		/**
+		 * Creates a <code>Configuration</code> from the supplied properties,
+		 * building its trigger tables.
+		 *
+		 * @param properties the application properties
+		 */
+		private Configuration(WrapperProperties properties) {
+			this.properties = properties;
+			inputTriggers = new TriggerTable(properties.getTriggers(Trigger.Source.INPUT));
+			outputTriggers = new TriggerTable(properties.getTriggers(Trigger.Source.OUTPUT));
+		}
+
+	}
+
 }
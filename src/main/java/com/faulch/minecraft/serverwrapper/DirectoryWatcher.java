@@ -0,0 +1,196 @@
+package com.faulch.minecraft.serverwrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a directory for entries being created, modified and deleted, and
+ * tells a listener which entries changed.  The directory is watched with the
+ * file system's <code>WatchService</code>, so nothing is read from disk until
+ * something changes.  While the directory cannot be watched, such as when it
+ * does not exist yet, the listener is instead called at a fixed interval, so
+ * that it may check for changes itself.  The directory may be changed at any
+ * time, and is watched from the next interval.
+ *
+ * @author Jonathan Faulch
+ */
+public class DirectoryWatcher {
+
+	/**
+	 * Receives the changes to the watched directory.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called on the watcher thread when entries of the directory may have
+		 * changed.
+		 *
+		 * @param names the names of the entries which changed, or <code>null</code>
+		 *              if they are not known, because events were lost, the
+		 *              directory was replaced, or the directory cannot be watched
+		 */
+		void entriesChanged(Set<String> names);
+
+	}
+
+	private final long interval;
+	private final Listener listener;
+	private volatile File directory;
+
+	/**
+	 * Creates a <code>DirectoryWatcher</code> and starts the daemon thread
+	 * which watches the directory.  The current state of the directory is
+	 * taken as already known by the listener.
+	 *
+	 * @param name      the name of the watcher thread
+	 * @param directory the directory to watch
+	 * @param interval  the number of milliseconds between calls to the listener while
+	 *                  the directory cannot be watched, which is also how long a
+	 *                  new directory may take to be watched
+	 * @param listener  the listener which receives the changes
+	 */
+	public DirectoryWatcher(String name, File directory, long interval, Listener listener) {
+		this.directory = directory;
+		this.interval = Math.max(interval, 1);
+		this.listener = listener;
+		startWatchThread(name);
+	}
+
+	/**
+	 * Changes the directory being watched.
+	 *
+	 * @param directory the directory to watch
+	 */
+	public void setDirectory(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Starts the daemon thread which watches the directory.
+	 *
+	 * @param name the name of the watcher thread
+	 */
+	private void startWatchThread(String name) {
+		Thread watchThread = new Thread(name) {
+			@Override
+			public void run() {
+				WatchService watchService = null;
+				try {
+					watchService = FileSystems.getDefault().newWatchService();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				try {
+					watch(watchService);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				} catch (ClosedWatchServiceException e) {
+					e.printStackTrace();
+				} finally {
+					close(watchService);
+				}
+			}
+		};
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+	/**
+	 * Watches the directory until the current thread is interrupted.
+	 *
+	 * @param watchService the watch service used to watch the directory, or
+	 *                     <code>null</code> if there is none, in which case the
+	 *                     listener is always called at the interval
+	 * @throws InterruptedException if the current thread is interrupted
+	 */
+	private void watch(WatchService watchService) throws InterruptedException {
+		File watchedDirectory = directory;
+		WatchKey watchKey = register(watchService, watchedDirectory);
+		while (true) {
+			File directory = this.directory;
+			if (watchKey == null || !directory.equals(watchedDirectory)) {
+				if (watchKey != null) {
+					watchKey.cancel();
+				}
+				watchedDirectory = directory;
+				watchKey = register(watchService, directory);
+				if (watchKey != null) {
+					listener.entriesChanged(null);
+				}
+			}
+			if (watchKey == null) {
+				Thread.sleep(interval);
+				listener.entriesChanged(null);
+				continue;
+			}
+
+			WatchKey signalledKey = watchService.poll(interval, TimeUnit.MILLISECONDS);
+			if (signalledKey == null) {
+				continue;
+			}
+			Set<String> names = new HashSet<String>();
+			for (WatchEvent<?> event : signalledKey.pollEvents()) {
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					names = null;
+				} else if (names != null) {
+					names.add(((Path) event.context()).toString());
+				}
+			}
+			boolean valid = signalledKey.reset();
+			if (signalledKey != watchKey) {
+				continue;
+			}
+			if (!valid) {
+				watchKey = null;
+				names = null;
+			}
+			listener.entriesChanged(names);
+		}
+	}
+
+	/**
+	 * Closes a watch service, reporting any failure.
+	 *
+	 * @param watchService the watch service, or <code>null</code> if there is none
+	 */
+	private static void close(WatchService watchService) {
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Registers a directory with the watch service.
+	 *
+	 * @param watchService the watch service, or <code>null</code> if there is none
+	 * @param directory    the directory to register
+	 * @return the key of the registered directory, or <code>null</code> if it
+	 * could not be registered
+	 */
+	private static WatchKey register(WatchService watchService, File directory) {
+		if (watchService == null || !directory.isDirectory()) {
+			return null;
+		}
+		try {
+			return directory.toPath().register(watchService,
+					StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+}
@@ -2,6 +2,7 @@ package com.faulch.minecraft.serverwrapper;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
@@ -21,6 +22,28 @@ import java.util.jar.JarFile;
  */
 public class MinecraftServerWrapper {
 
+	private static final String
+			cachedServerFileProperty = "serverFile",
+			cachedMainClassProperty = "mainClass";
+
+	/**
+	 * The ways in which the server can be run.
+	 */
+	public enum ServerMode {
+
+		/**
+		 * The server is loaded into the wrapper's own JVM.
+		 */
+		EMBEDDED,
+
+		/**
+		 * The server is launched as a child process with its own JVM flags,
+		 * and is restarted if it crashes.
+		 */
+		PROCESS
+
+	}
+
 	private WrapperProperties properties;
 
 	/**
@@ -34,7 +57,7 @@ public class MinecraftServerWrapper {
 		loadProperties();
 		loadSystemProperties();
 		loadLibrary();
-		new Console(properties);
+		watchProperties(new Console(properties));
 		startServer(args);
 	}
 
@@ -56,11 +79,23 @@ public class MinecraftServerWrapper {
 	 * @throws IOException if the default properties could not be loaded
 	 */
 	private void loadProperties() throws IOException {
-		properties = new WrapperProperties();
-		try {
-			properties.loadExternalProperties();
-		} catch (IOException e) {
-			e.printStackTrace();
+		properties = WrapperProperties.load();
+	}
+
+	/**
+	 * Watches the external properties for changes, if enabled, and applies
+	 * the reloaded properties to the console.
+	 *
+	 * @param console the console which receives the reloaded properties
+	 */
+	private void watchProperties(final Console console) {
+		if (properties.getPropertiesReloadInterval() > 0) {
+			new PropertiesWatcher(properties, properties.getPropertiesReloadInterval(), new PropertiesWatcher.Listener() {
+				@Override
+				public void propertiesChanged(WrapperProperties properties) {
+					console.setWrapperProperties(properties);
+				}
+			});
 		}
 	}
 
@@ -99,6 +134,39 @@ public class MinecraftServerWrapper {
 		return Collections.max(Arrays.asList(Utility.getFiles(properties.getServerDirectory(), properties.getServerFileRegex())));
 	}
 
+	/**
+	 * Starts the server with the specified command line arguments, either
+	 * within the wrapper's JVM or as a child process, depending on the
+	 * <code>serverMode</code> property.
+	 *
+	 * @param args the command line arguments passed to the application, which will
+	 *             be forwarded to the server
+	 * @return <code>true</code> if the server started successfully;
+	 * <code>false</code> otherwise
+	 */
+	private boolean startServer(String... args) {
+		return properties.getServerMode() == ServerMode.PROCESS ? startServerProcess(args) : startEmbeddedServer(args);
+	}
+
+	/**
+	 * Starts the server as a child process, and supervises it until it exits
+	 * normally.  Once it has, the wrapper exits with the same exit code.
+	 *
+	 * @param args the command line arguments passed to the application, which will
+	 *             be forwarded to the server
+	 * @return <code>false</code> if the server process could not be started;
+	 * otherwise this method does not return
+	 */
+	private boolean startServerProcess(String... args) {
+		try {
+			System.exit(new ServerProcess(properties, getServerFile(), args).run());
+			return true;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
 	/**
 	 * Starts the server with the specified command line arguments.  The server
 	 * is loaded using the system class loader, and therefore exists in the
@@ -109,13 +177,13 @@ public class MinecraftServerWrapper {
 	 * @return <code>true</code> if the server started successfully;
 	 * <code>false</code> otherwise
 	 */
-	private boolean startServer(String... args) {
+	private boolean startEmbeddedServer(String... args) {
 		try {
 			File serverFile = getServerFile();
 			Class
 					.forName
 							(
-									new JarFile(serverFile).getManifest().getMainAttributes().getValue(Attributes.Name.MAIN_CLASS),
+									getMainClassName(serverFile),
 									true,
 									Utility.createURLClassLoader(serverFile)
 							)
@@ -128,6 +196,57 @@ public class MinecraftServerWrapper {
 		}
 	}
 
+	/**
+	 * Gets the name of the main class of the server file.  Reading it requires
+	 * opening the server jar, so it is cached in the server cache file, keyed
+	 * by the path, modification time and length of the server file, and the
+	 * jar is only opened again when the server file changes.
+	 *
+	 * @param serverFile the server file
+	 * @return the name of the server's main class
+	 * @throws IOException if the server file could not be read
+	 */
+	private String getMainClassName(File serverFile) throws IOException {
+		File cacheFile = properties.getServerCacheFile();
+		String serverFileKey = serverFile.getCanonicalPath() + '|' + serverFile.lastModified() + '|' + serverFile.length();
+		Properties cache = new Properties();
+		if (cacheFile != null && cacheFile.isFile()) {
+			FileInputStream input = null;
+			try {
+				cache.load(input = new FileInputStream(cacheFile));
+			} catch (IOException e) {
+				e.printStackTrace();
+			} finally {
+				Utility.tryClose(input);
+			}
+			if (serverFileKey.equals(cache.getProperty(cachedServerFileProperty)) && cache.getProperty(cachedMainClassProperty) != null) {
+				return cache.getProperty(cachedMainClassProperty);
+			}
+		}
+
+		String mainClassName;
+		JarFile jarFile = null;
+		try {
+			jarFile = new JarFile(serverFile);
+			mainClassName = jarFile.getManifest().getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
+		} finally {
+			Utility.tryClose(jarFile);
+		}
+		if (cacheFile != null) {
+			cache.setProperty(cachedServerFileProperty, serverFileKey);
+			cache.setProperty(cachedMainClassProperty, mainClassName);
+			FileOutputStream output = null;
+			try {
+				cache.store(output = new FileOutputStream(cacheFile), null);
+			} catch (IOException e) {
+				e.printStackTrace();
+			} finally {
+				Utility.tryClose(output);
+			}
+		}
+		return mainClassName;
+	}
+
 	/**
 	 * Starts a MinecraftServerWrapper application by simply delegating its
 	 * arguments to the <code>MinecraftServerWrapper</code> constructor.
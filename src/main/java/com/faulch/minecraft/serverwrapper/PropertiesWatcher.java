@@ -0,0 +1,89 @@
+package com.faulch.minecraft.serverwrapper;
+
+import java.io.File;
+import java.util.Set;
+
+/**
+ * Watches the external properties file for changes, and reloads the
+ * application's properties whenever it changes.  The directory containing the
+ * file is watched by a <code>DirectoryWatcher</code>, and when the file is
+ * reported as changed, its modification time and length are compared with
+ * those seen last time, so that the several events an editor produces while
+ * saving cause a single reload.  A reload which fails, because the file could
+ * not be read or contains an invalid value, is reported and otherwise ignored,
+ * so the previous properties remain in effect.
+ *
+ * @author Jonathan Faulch
+ */
+public class PropertiesWatcher {
+
+	/**
+	 * Receives the application's properties each time they are successfully
+	 * reloaded.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called on the watcher thread with the reloaded properties.
+		 *
+		 * @param properties the reloaded application properties
+		 */
+		void propertiesChanged(WrapperProperties properties);
+
+	}
+
+	private final File file;
+	private WrapperProperties properties;
+	private long lastModified;
+	private long length;
+
+	/**
+	 * Creates a <code>PropertiesWatcher</code> and starts watching the
+	 * external properties file.  The current state of the file is taken as
+	 * already loaded.
+	 *
+	 * @param properties the properties currently in effect
+	 * @param interval   the number of milliseconds between checks of the file while its
+	 *                   directory cannot be watched
+	 * @param listener   the listener which receives the reloaded properties
+	 */
+	public PropertiesWatcher(WrapperProperties properties, long interval, final Listener listener) {
+		this.file = WrapperProperties.getExternalPropertiesFile().getAbsoluteFile();
+		this.properties = properties;
+		lastModified = file.lastModified();
+		length = file.length();
+		new DirectoryWatcher("Properties-Watcher", file.getParentFile(), interval, new DirectoryWatcher.Listener() {
+			@Override
+			public void entriesChanged(Set<String> names) {
+				if (names == null || names.contains(file.getName())) {
+					check(listener);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Reloads the application's properties if the external properties file
+	 * has changed since it was last checked.
+	 *
+	 * @param listener the listener which receives the reloaded properties
+	 */
+	private void check(Listener listener) {
+		long currentLastModified = file.lastModified();
+		long currentLength = file.length();
+		if (currentLastModified == lastModified && currentLength == length) {
+			return;
+		}
+		lastModified = currentLastModified;
+		length = currentLength;
+		try {
+			properties = WrapperProperties.reload(properties);
+		} catch (Exception e) {
+			System.err.println("The changes to " + file + " were rejected, the previous properties remain in effect.");
+			e.printStackTrace();
+			return;
+		}
+		listener.propertiesChanged(properties);
+	}
+
+}
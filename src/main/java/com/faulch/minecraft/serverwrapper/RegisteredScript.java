@@ -0,0 +1,127 @@
+package com.faulch.minecraft.serverwrapper;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * A script found in the script directory, along with the metadata declared in
+ * its header.  The header is the block of comment lines at the top of the
+ * script, and may contain tags such as <code>// @alias tp teleport</code>,
+ * <code>// @usage &lt;player&gt; [x y z]</code> and <code>// @cost 5</code>.
+ *
+ * @author Jonathan Faulch
+ */
+public class RegisteredScript {
+
+	private final String name;
+	private final File file;
+	private final long lastModified;
+	private final long length;
+	private final List<String> aliases;
+	private final String usage;
+	private final int cost;
+
+	/**
+	 * Creates a <code>RegisteredScript</code>.
+	 *
+	 * @param name         the name of the script, which is its file name without the
+	 *                     extension
+	 * @param file         the script file
+	 * @param lastModified the modification time of the script file when it was read
+	 * @param length       the length of the script file when it was read
+	 * @param aliases      the other names the script may be invoked by
+	 * @param usage        the arguments the script expects, or <code>null</code> if the
+	 *                     script does not declare them
+	 * @param cost         the weight of the script when limiting how many scripts
+	 *                     players may run
+	 */
+	public RegisteredScript(String name, File file, long lastModified, long length, List<String> aliases, String usage, int cost) {
+		this.name = name;
+		this.file = file;
+		this.lastModified = lastModified;
+		this.length = length;
+		this.aliases = aliases;
+		this.usage = usage;
+		this.cost = cost;
+	}
+
+	/**
+	 * Gets the name of this script, which is its file name without the
+	 * extension.
+	 *
+	 * @return the name of this script
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the file containing this script.
+	 *
+	 * @return the script file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets the modification time of the script file when its header was read.
+	 *
+	 * @return the modification time of the script file
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Gets the length of the script file when its header was read.
+	 *
+	 * @return the length of the script file
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Gets the other names this script may be invoked by, declared with
+	 * <code>@alias</code> tags.
+	 *
+	 * @return an unmodifiable list of this script's aliases
+	 */
+	public List<String> getAliases() {
+		return aliases;
+	}
+
+	/**
+	 * Gets the arguments this script expects, declared with a
+	 * <code>@usage</code> tag.
+	 *
+	 * @return the usage of this script, or <code>null</code> if it is not
+	 * declared
+	 */
+	public String getUsage() {
+		return usage;
+	}
+
+	/**
+	 * Gets the weight of this script when limiting how many scripts players
+	 * may run, declared with a <code>@cost</code> tag.  Scripts which issue
+	 * many commands should declare a higher cost.
+	 *
+	 * @return the cost of this script, which is 1 if it is not declared
+	 */
+	public int getCost() {
+		return cost;
+	}
+
+	/**
+	 * Describes how to invoke this script, as its name followed by its usage.
+	 *
+	 * @return the name and usage of this script
+	 */
+	@Override
+	public String toString() {
+		return usage == null ? name : name + " " + usage;
+	}
+
+}
@@ -0,0 +1,193 @@
+package com.faulch.minecraft.serverwrapper;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches scripts so that they are only read from disk, and compiled, when they
+ * have changed.  Scripts are compiled when the script engine supports
+ * compilation, otherwise their source text is cached instead.  A cached script
+ * is considered stale when the modification time or length of its file
+ * changes.  For a registered script, these are taken from the script registry,
+ * which watches the script directory, so running the script does not touch the
+ * file system unless its file has changed.  Compiled scripts belong to the engine which compiled them, so each
+ * script engine has its own cache.  Script files are read with the character
+ * encoding configured for the wrapper.
+ *
+ * @author Jonathan Faulch
+ */
+public class ScriptCache {
+
+	private final ScriptEngine engine;
+	private final Charset charset;
+	private final ConcurrentMap<File, CachedScript> scripts;
+
+	/**
+	 * Creates an empty <code>ScriptCache</code> which will use the supplied
+	 * script engine to compile and evaluate scripts.
+	 *
+	 * @param engine  the script engine used to compile and evaluate scripts
+	 * @param charset the character encoding of the script files
+	 */
+	public ScriptCache(ScriptEngine engine, Charset charset) {
+		this.engine = engine;
+		this.charset = charset;
+		scripts = new ConcurrentHashMap<File, CachedScript>();
+	}
+
+	/**
+	 * Evaluates the script in the specified file using the supplied context.
+	 * The file is only read and compiled if it has not been cached yet, or if
+	 * it has changed since it was cached.
+	 *
+	 * @param file    the script file
+	 * @param context the context in which the script will be evaluated
+	 * @return the value returned by the script
+	 * @throws IOException     if the script file could not be read
+	 * @throws ScriptException if the script could not be compiled, or if an
+	 *                         error occurs in the script
+	 */
+	public Object eval(File file, ScriptContext context) throws IOException, ScriptException {
+		return eval(get(file, file.lastModified(), file.length()), context);
+	}
+
+	/**
+	 * Evaluates a registered script using the supplied context.  The file is
+	 * only read and compiled if it has not been cached yet, or if the registry
+	 * has seen it change since it was cached.
+	 *
+	 * @param script  the registered script
+	 * @param context the context in which the script will be evaluated
+	 * @return the value returned by the script
+	 * @throws IOException     if the script file could not be read
+	 * @throws ScriptException if the script could not be compiled, or if an
+	 *                         error occurs in the script
+	 */
+	public Object eval(RegisteredScript script, ScriptContext context) throws IOException, ScriptException {
+		return eval(get(script.getFile(), script.getLastModified(), script.getLength()), context);
+	}
+
+	/**
+	 * Evaluates a cached script using the supplied context.
+	 *
+	 * @param script  the cached script
+	 * @param context the context in which the script will be evaluated
+	 * @return the value returned by the script
+	 * @throws ScriptException if an error occurs in the script
+	 */
+	private Object eval(CachedScript script, ScriptContext context) throws ScriptException {
+		return script.compiledScript != null ? script.compiledScript.eval(context) : engine.eval(script.source, context);
+	}
+
+	/**
+	 * Gets the cached script for the specified file, reading and compiling the
+	 * file if it has not been cached yet, or if it has changed since it was
+	 * cached.
+	 *
+	 * @param file         the script file
+	 * @param lastModified the current modification time of the script file
+	 * @param length       the current length of the script file
+	 * @return the cached script for the specified file
+	 * @throws IOException     if the script file could not be read
+	 * @throws ScriptException if the script could not be compiled
+	 */
+	private CachedScript get(File file, long lastModified, long length) throws IOException, ScriptException {
+		CachedScript script = scripts.get(file);
+		if (script == null || script.lastModified != lastModified || script.length != length) {
+			script = new CachedScript(lastModified, length, read(file, charset));
+			if (engine instanceof Compilable) {
+				synchronized (engine) {
+					script.compiledScript = ((Compilable) engine).compile(script.source);
+				}
+			}
+			scripts.put(file, script);
+		}
+		return script;
+	}
+
+	/**
+	 * Caches every script in the specified directory, so that the first
+	 * execution of each script does not have to wait for it to be read and
+	 * compiled.  Scripts which fail to compile are skipped, and will report
+	 * their errors when they are executed.
+	 *
+	 * @param directory the directory containing the scripts to be cached
+	 * @param extension the extension of the script files in the directory
+	 */
+	public void precompile(File directory, String extension) {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.getName().endsWith(extension)) {
+					try {
+						get(file, file.lastModified(), file.length());
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the entire contents of the specified file.
+	 *
+	 * @param file    the file to read
+	 * @param charset the character encoding of the file
+	 * @return the contents of the file
+	 * @throws IOException if the file could not be read
+	 */
+	private static String read(File file, Charset charset) throws IOException {
+		Reader reader = null;
+		try {
+			reader = new InputStreamReader(new FileInputStream(file), charset);
+			StringBuilder source = new StringBuilder((int) file.length());
+			char[] buffer = new char[4096];
+			int count;
+			while ((count = reader.read(buffer)) != -1) {
+				source.append(buffer, 0, count);
+			}
+			return source.toString();
+		} finally {
+			Utility.tryClose(reader);
+		}
+	}
+
+	/**
+	 * A script which has been read from disk, and compiled if possible.
+	 */
+	private static class CachedScript {
+
+		private final long lastModified;
+		private final long length;
+		private final String source;
+		private CompiledScript compiledScript;
+
+		/**
+		 * Creates a <code>CachedScript</code> from the source text of a script
+		 * file.
+		 *
+		 * @param lastModified the modification time of the script file
+		 * @param length       the length of the script file
+		 * @param source       the source text of the script
+		 */
+		private CachedScript(long lastModified, long length, String source) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.source = source;
+		}
+
+	}
+
+}
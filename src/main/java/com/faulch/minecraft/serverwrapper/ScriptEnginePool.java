@@ -0,0 +1,340 @@
+package com.faulch.minecraft.serverwrapper;
+
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reuses script engines between script executions, rather than creating a new
+ * engine for every execution.  If the engine factory declares that its engines
+ * are thread safe, through the <code>THREADING</code> parameter, then a single
+ * engine is shared by every thread.  Otherwise, each engine is confined to one
+ * thread at a time, and up to a maximum number of engines are created on
+ * demand.  Engines which have been idle for too long are discarded.  State
+ * belonging to a single execution should be kept in a context created by
+ * <code>PooledEngine.createContext</code>, so that executions sharing an engine
+ * do not interfere with each other.  The script engine manager may still be
+ * loading when the pool is created, in which case the first borrower waits for
+ * it.  Borrowers wait on a lock rather than a monitor, so that waiting virtual
+ * threads release their carrier threads.  Once a script directory has been
+ * set with <code>setPrecompiledScripts</code>, every engine compiles the
+ * scripts in it as soon as the engine is created, since compiled scripts
+ * cannot be shared between engines.
+ *
+ * @author Jonathan Faulch
+ */
+public class ScriptEnginePool {
+
+	private final Future<ScriptEngineManager> managerFuture;
+	private final String name;
+	private final int maximumSize;
+	private final long idleTimeout;
+	private final Charset charset;
+	private final LinkedList<PooledEngine> idleEngines;
+	private final ReentrantLock lock;
+	private final Condition engineReleased;
+	private volatile ScriptEngineManager manager;
+	private volatile ScriptEngineFactory factory;
+	private volatile File precompileDirectory;
+	private volatile String precompileExtension;
+	private PooledEngine sharedEngine;
+	private int engineCount;
+
+	/**
+	 * Creates an empty <code>ScriptEnginePool</code>.  No engines are created
+	 * until they are first needed.
+	 *
+	 * @param manager     the script engine manager used to locate the engine factory
+	 * @param name        the name of the script engine
+	 * @param maximumSize the maximum number of engines created, when engines are not
+	 *                    thread safe
+	 * @param idleTimeout the number of milliseconds an engine may be idle before it is
+	 *                    discarded
+	 * @param charset     the character encoding of the script files
+	 */
+	public ScriptEnginePool(ScriptEngineManager manager, String name, int maximumSize, long idleTimeout, Charset charset) {
+		this(completed(manager), name, maximumSize, idleTimeout, charset);
+	}
+
+	/**
+	 * Creates an empty <code>ScriptEnginePool</code> whose script engine
+	 * manager is still being loaded.  No engines are created until they are
+	 * first needed.
+	 *
+	 * @param managerFuture the future which completes with the script engine manager used
+	 *                      to locate the engine factory
+	 * @param name          the name of the script engine
+	 * @param maximumSize   the maximum number of engines created, when engines are not
+	 *                      thread safe
+	 * @param idleTimeout   the number of milliseconds an engine may be idle before it is
+	 *                      discarded
+	 * @param charset       the character encoding of the script files
+	 */
+	public ScriptEnginePool(Future<ScriptEngineManager> managerFuture, String name, int maximumSize, long idleTimeout, Charset charset) {
+		this.managerFuture = managerFuture;
+		this.name = name;
+		this.maximumSize = Math.max(maximumSize, 1);
+		this.idleTimeout = idleTimeout;
+		this.charset = charset;
+		idleEngines = new LinkedList<PooledEngine>();
+		lock = new ReentrantLock();
+		engineReleased = lock.newCondition();
+	}
+
+	/**
+	 * Sets the directory of scripts which every engine compiles as soon as it
+	 * is created, so that the first execution of each script on any engine
+	 * does not have to wait for it to be read and compiled.  This only applies
+	 * to engines created afterwards.
+	 *
+	 * @param directory the directory containing the scripts to be compiled
+	 * @param extension the extension of the script files in the directory
+	 */
+	public void setPrecompiledScripts(File directory, String extension) {
+		precompileExtension = extension;
+		precompileDirectory = directory;
+	}
+
+	/**
+	 * Borrows an engine from this pool, waiting for an engine to be released if
+	 * the maximum number of engines are already in use.  Every borrowed engine
+	 * must be returned to this pool with <code>release</code>.  A newly created
+	 * engine compiles the precompiled scripts, if there are any, before it is
+	 * returned.
+	 *
+	 * @return an engine which may be used by the current thread
+	 * @throws ScriptException      if the script engine manager could not be loaded, or if no
+	 *                              script engine exists with this pool's engine name
+	 * @throws InterruptedException if the current thread is interrupted while waiting for
+	 *                              the script engine manager, or for an engine to be released
+	 */
+	public PooledEngine borrow() throws ScriptException, InterruptedException {
+		PooledEngine createdEngine = null;
+		lock.lockInterruptibly();
+		try {
+			if (factory == null) {
+				try {
+					manager = managerFuture.get();
+				} catch (ExecutionException e) {
+					ScriptException exception = new ScriptException("The script engine manager could not be loaded.");
+					exception.initCause(e.getCause());
+					throw exception;
+				}
+				ScriptEngine engine = manager.getEngineByName(name);
+				if (engine == null) {
+					throw new ScriptException("No script engine could be found for " + name + ".");
+				}
+				factory = engine.getFactory();
+				createdEngine = new PooledEngine(this, engine);
+				if (factory.getParameter("THREADING") != null) {
+					sharedEngine = createdEngine;
+				}
+				engineCount++;
+			} else if (sharedEngine != null) {
+				return sharedEngine;
+			} else {
+				evictIdleEngines();
+				while (idleEngines.isEmpty() && engineCount >= maximumSize) {
+					engineReleased.await();
+				}
+				if (!idleEngines.isEmpty()) {
+					return idleEngines.removeFirst();
+				}
+				engineCount++;
+			}
+		} finally {
+			lock.unlock();
+		}
+		if (createdEngine == null) {
+			try {
+				ScriptEngine engine = factory.getScriptEngine();
+				engine.setBindings(manager.getBindings(), ScriptContext.GLOBAL_SCOPE);
+				createdEngine = new PooledEngine(this, engine);
+			} catch (RuntimeException e) {
+				lock.lock();
+				try {
+					engineCount--;
+					engineReleased.signalAll();
+				} finally {
+					lock.unlock();
+				}
+				throw e;
+			}
+		}
+		File precompileDirectory = this.precompileDirectory;
+		if (precompileDirectory != null) {
+			createdEngine.getScriptCache().precompile(precompileDirectory, precompileExtension);
+		}
+		return createdEngine;
+	}
+
+	/**
+	 * Borrows a particular engine from this pool again, waiting for it to be
+	 * released if it is in use.  Functions created by a script belong to the
+	 * engine which ran it, so they must only be called while that engine is
+	 * borrowed.  If the engine was discarded while idle, then it rejoins the
+	 * pool once there is room for another engine.
+	 *
+	 * @param pooledEngine an engine previously borrowed from this pool
+	 * @return the same engine, which may now be used by the current thread
+	 * @throws IllegalArgumentException if the engine does not belong to this pool
+	 * @throws InterruptedException     if the current thread is interrupted while waiting for
+	 *                                  the engine to be released
+	 */
+	public PooledEngine borrow(PooledEngine pooledEngine) throws InterruptedException {
+		if (pooledEngine.pool != this) {
+			throw new IllegalArgumentException("The engine does not belong to this pool.");
+		}
+		lock.lockInterruptibly();
+		try {
+			if (pooledEngine == sharedEngine) {
+				return pooledEngine;
+			}
+			while (true) {
+				if (idleEngines.remove(pooledEngine)) {
+					return pooledEngine;
+				}
+				if (pooledEngine.discarded && engineCount < maximumSize) {
+					pooledEngine.discarded = false;
+					engineCount++;
+					return pooledEngine;
+				}
+				engineReleased.await();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns an engine to this pool, so that it may be borrowed again.
+	 *
+	 * @param pooledEngine an engine previously borrowed from this pool
+	 */
+	public void release(PooledEngine pooledEngine) {
+		lock.lock();
+		try {
+			if (pooledEngine != sharedEngine) {
+				pooledEngine.lastUsed = System.currentTimeMillis();
+				idleEngines.addFirst(pooledEngine);
+				engineReleased.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Discards engines which have been idle for longer than the idle timeout.
+	 * The most recently used engine is always kept, so that at least one
+	 * engine remains warm.
+	 */
+	private void evictIdleEngines() {
+		long now = System.currentTimeMillis();
+		Iterator<PooledEngine> iterator = idleEngines.descendingIterator();
+		while (idleEngines.size() > 1 && iterator.hasNext()) {
+			PooledEngine pooledEngine = iterator.next();
+			if (now - pooledEngine.lastUsed > idleTimeout) {
+				iterator.remove();
+				pooledEngine.discarded = true;
+				engineCount--;
+			}
+		}
+	}
+
+	/**
+	 * Wraps a script engine manager in a future which has already completed.
+	 *
+	 * @param manager the script engine manager
+	 * @return a completed future holding the script engine manager
+	 */
+	private static Future<ScriptEngineManager> completed(ScriptEngineManager manager) {
+		FutureTask<ScriptEngineManager> future = new FutureTask<ScriptEngineManager>(new Runnable() {
+			@Override
+			public void run() {
+			}
+		}, manager);
+		future.run();
+		return future;
+	}
+
+	/**
+	 * A script engine which belongs to a pool, along with the cache of scripts
+	 * compiled by the engine.
+	 */
+	public static class PooledEngine {
+
+		private final ScriptEnginePool pool;
+		private final ScriptEngine engine;
+		private final ScriptCache scriptCache;
+		private long lastUsed;
+		private boolean discarded;
+
+		/**
+		 * Creates a <code>PooledEngine</code> with an empty script cache.
+		 *
+		 * @param pool   the pool the engine belongs to
+		 * @param engine the script engine
+		 */
+		private PooledEngine(ScriptEnginePool pool, ScriptEngine engine) {
+			this.pool = pool;
+			this.engine = engine;
+			scriptCache = new ScriptCache(engine, pool.charset);
+		}
+
+		/**
+		 * Gets the pool this engine belongs to.
+		 *
+		 * @return the pool this engine belongs to
+		 */
+		public ScriptEnginePool getPool() {
+			return pool;
+		}
+
+		/**
+		 * Gets the script engine.
+		 *
+		 * @return the script engine
+		 */
+		public ScriptEngine getEngine() {
+			return engine;
+		}
+
+		/**
+		 * Gets the cache of scripts compiled by this engine.
+		 *
+		 * @return the cache of scripts compiled by this engine
+		 */
+		public ScriptCache getScriptCache() {
+			return scriptCache;
+		}
+
+		/**
+		 * Creates a new context for a single script execution.  The context
+		 * has fresh engine scope bindings, and shares the engine's global scope
+		 * bindings.
+		 *
+		 * @return a new context for a single script execution
+		 */
+		public ScriptContext createContext() {
+			ScriptContext context = new SimpleScriptContext();
+			context.setBindings(engine.createBindings(), ScriptContext.ENGINE_SCOPE);
+			context.setBindings(engine.getBindings(ScriptContext.GLOBAL_SCOPE), ScriptContext.GLOBAL_SCOPE);
+			return context;
+		}
+
+	}
+
+}
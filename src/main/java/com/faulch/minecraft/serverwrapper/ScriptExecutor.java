@@ -0,0 +1,294 @@
+package com.faulch.minecraft.serverwrapper;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs script tasks away from the threads which detected their textual
+ * triggers, so that the server's logging and input threads are never blocked
+ * for the duration of a script.  Tasks are grouped by a key, typically the name
+ * of the invoker, and tasks sharing a key are always run one at a time in the
+ * order they were submitted.  The number of tasks waiting to run is bounded,
+ * and the configured <code>RejectionPolicy</code> decides what happens when
+ * that bound is reached.  Tasks run either on a fixed pool of platform
+ * threads, or on a virtual thread started for each group of tasks, which lets
+ * thousands of scripts wait on the server without exhausting threads.  Tasks
+ * may be submitted so that they never run on the submitting thread, which is
+ * needed when that thread is the one the task would wait on, such as the
+ * thread reading the server's standard input.
+ *
+ * @author Jonathan Faulch
+ */
+public class ScriptExecutor {
+
+	/**
+	 * Decides what happens to a task which is submitted while the maximum
+	 * number of tasks are already waiting to run.
+	 */
+	public enum RejectionPolicy {
+
+		/**
+		 * The submitted task is rejected.
+		 */
+		ABORT,
+
+		/**
+		 * If no task with the same key is running or waiting, the submitted
+		 * task is run immediately on the submitting thread, and tasks with the
+		 * same key submitted meanwhile wait for it to finish.  Otherwise, the
+		 * submitted task is rejected, since running it would overtake the tasks
+		 * ahead of it.
+		 */
+		CALLER_RUNS,
+
+		/**
+		 * The oldest waiting task with the same key is rejected to make room
+		 * for the submitted task.  If there is no such task, then the submitted
+		 * task is rejected instead.
+		 */
+		DISCARD_OLDEST
+
+	}
+
+	/**
+	 * Decides which kind of threads run the submitted tasks.
+	 */
+	public enum ThreadMode {
+
+		/**
+		 * Tasks run on a fixed number of platform threads, so at most that
+		 * many tasks run at once.
+		 */
+		PLATFORM,
+
+		/**
+		 * Each group of tasks runs on a virtual thread of its own, so any
+		 * number of tasks with different keys run at once.  A task blocked
+		 * sleeping or waiting to execute a command parks without holding a
+		 * platform thread.
+		 */
+		VIRTUAL
+
+	}
+
+	/**
+	 * A unit of work which can be run by a <code>ScriptExecutor</code>, and
+	 * which can be notified if it will never be run.
+	 */
+	public interface Task extends Runnable {
+
+		/**
+		 * Called instead of <code>run</code> when this task has been rejected
+		 * by the executor, and therefore will never be run.
+		 */
+		void reject();
+
+	}
+
+	private final ExecutorService executorService;
+	private final int capacity;
+	private final RejectionPolicy rejectionPolicy;
+	private final Map<String, Queue<Task>> queues;
+	private int pendingCount;
+	private ExecutorService fallbackService;
+
+	/**
+	 * Creates a <code>ScriptExecutor</code> backed by a fixed number of daemon
+	 * threads.  If the pool size is not positive, then no threads are created,
+	 * and every task is simply run on the submitting thread, unless the caller
+	 * may not run it.
+	 *
+	 * @param poolSize        the number of threads used to run tasks
+	 * @param capacity        the maximum number of tasks which may be waiting to run
+	 * @param rejectionPolicy the policy applied when a task is submitted while the
+	 *                        maximum number of tasks are already waiting to run
+	 */
+	public ScriptExecutor(int poolSize, int capacity, RejectionPolicy rejectionPolicy) {
+		this(ThreadMode.PLATFORM, poolSize, capacity, rejectionPolicy);
+	}
+
+	/**
+	 * Creates a <code>ScriptExecutor</code> backed by the given kind of
+	 * threads.  With platform threads, a fixed number of daemon threads is
+	 * created, and if the pool size is not positive, then every task is simply
+	 * run on the submitting thread, unless the caller may not run it.  With
+	 * virtual threads, the pool size is ignored.
+	 *
+	 * @param threadMode      the kind of threads used to run tasks
+	 * @param poolSize        the number of platform threads used to run tasks
+	 * @param capacity        the maximum number of tasks which may be waiting to run
+	 * @param rejectionPolicy the policy applied when a task is submitted while the
+	 *                        maximum number of tasks are already waiting to run
+	 */
+	public ScriptExecutor(ThreadMode threadMode, int poolSize, int capacity, RejectionPolicy rejectionPolicy) {
+		this.capacity = capacity;
+		this.rejectionPolicy = rejectionPolicy;
+		queues = new HashMap<String, Queue<Task>>();
+		if (threadMode == ThreadMode.VIRTUAL) {
+			executorService = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Script-", 1).factory());
+			return;
+		}
+		executorService = poolSize > 0 ? Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+			private final AtomicInteger threadCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Script-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		}) : null;
+	}
+
+	/**
+	 * Submits a task to be run after every previously submitted task with the
+	 * same key has finished running.
+	 *
+	 * @param key  the key which identifies the group of tasks which must not run
+	 *             concurrently, typically the name of the invoker
+	 * @param task the task to be run
+	 */
+	public void submit(String key, Task task) {
+		submit(key, task, true);
+	}
+
+	/**
+	 * Submits a task to be run after every previously submitted task with the
+	 * same key has finished running.  A task which the caller may not run is
+	 * never run on the submitting thread, even if there are no threads to run
+	 * tasks, or the rejection policy is <code>CALLER_RUNS</code>.  Such a task
+	 * is queued on a single thread when there are no other threads, and is
+	 * otherwise rejected when too many tasks are waiting.
+	 *
+	 * @param key          the key which identifies the group of tasks which must not
+	 *                     run concurrently, typically the name of the invoker
+	 * @param task         the task to be run
+	 * @param callerMayRun whether or not the task may be run on the submitting thread
+	 */
+	public void submit(String key, Task task, boolean callerMayRun) {
+		if (executorService == null && callerMayRun) {
+			task.run();
+			return;
+		}
+		ExecutorService executorService = this.executorService != null ? this.executorService : getFallbackService();
+
+		Task rejected = null;
+		Queue<Task> newQueue = null;
+		Queue<Task> callerQueue = null;
+		synchronized (queues) {
+			Queue<Task> queue = queues.get(key);
+			if (pendingCount >= capacity) {
+				if (rejectionPolicy == RejectionPolicy.DISCARD_OLDEST && queue != null && !queue.isEmpty()) {
+					rejected = queue.poll();
+					pendingCount--;
+				} else if (rejectionPolicy == RejectionPolicy.CALLER_RUNS && callerMayRun && queue == null) {
+					callerQueue = new LinkedList<Task>();
+					queues.put(key, callerQueue);
+				} else {
+					rejected = task;
+				}
+			}
+			if (rejected != task && callerQueue == null) {
+				if (queue == null) {
+					queues.put(key, queue = newQueue = new LinkedList<Task>());
+				}
+				queue.add(task);
+				pendingCount++;
+			}
+		}
+
+		if (rejected != null) {
+			rejected.reject();
+		}
+		if (callerQueue != null) {
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+			synchronized (queues) {
+				if (callerQueue.isEmpty()) {
+					queues.remove(key);
+					return;
+				}
+			}
+			newQueue = callerQueue;
+		}
+		if (newQueue != null) {
+			final String queueKey = key;
+			final Queue<Task> queue = newQueue;
+			executorService.execute(new Runnable() {
+				@Override
+				public void run() {
+					drain(queueKey, queue);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Gets the single daemon thread which runs the tasks the caller may not
+	 * run when there are no other threads, creating it on first use.
+	 *
+	 * @return the executor service of the fallback thread
+	 */
+	private synchronized ExecutorService getFallbackService() {
+		if (fallbackService == null) {
+			fallbackService = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Script-Fallback");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return fallbackService;
+	}
+
+	/**
+	 * Runs the tasks in the specified queue until it is empty, and then
+	 * removes the queue so that the next task submitted with the same key will
+	 * start a new queue.
+	 *
+	 * @param key   the key associated with the queue
+	 * @param queue the queue of tasks to be run
+	 */
+	private void drain(String key, Queue<Task> queue) {
+		while (true) {
+			Task task;
+			synchronized (queues) {
+				task = queue.poll();
+				if (task == null) {
+					queues.remove(key);
+					return;
+				}
+				pendingCount--;
+			}
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of tasks which have been submitted, but have not yet
+	 * started running.
+	 *
+	 * @return the number of tasks waiting to run
+	 */
+	public int getPendingCount() {
+		synchronized (queues) {
+			return pendingCount;
+		}
+	}
+
+}
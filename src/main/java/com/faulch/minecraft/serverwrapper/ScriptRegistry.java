@@ -0,0 +1,314 @@
+package com.faulch.minecraft.serverwrapper;
+
+import com.faulch.minecraft.serverwrapper.command.CommandHandler;
+import com.faulch.minecraft.serverwrapper.command.CommandHandlerRegistry;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Keeps an in-memory index of the scripts in the script directory, so that
+ * commands can be resolved to scripts with a single hash lookup, and commands
+ * which name no script can be rejected without touching the file system.  The
+ * directory is watched by a <code>DirectoryWatcher</code>, and rescanned when a
+ * script file is created, changed or deleted, and the header of a script is
+ * only read again when its file, or the character encoding of scripts,
+ * changes.  Each script is indexed by
+ * its name and by its aliases, but an alias never hides the name of another
+ * script.  Command handlers take precedence over scripts, so a script name or
+ * alias which is also the name or alias of a handler is reported when it is
+ * first scanned.
+ *
+ * @author Jonathan Faulch
+ */
+public class ScriptRegistry {
+
+	private static final String
+			aliasTag = "@alias",
+			usageTag = "@usage",
+			costTag = "@cost";
+
+	private final CommandHandlerRegistry handlers;
+	private final DirectoryWatcher watcher;
+	private final FutureTask<Void> initialScan;
+	private Set<String> hiddenCommands;
+	private File directory;
+	private String extension;
+	private Charset charset;
+	private Charset scannedCharset;
+	private volatile Map<String, RegisteredScript> commands;
+	private volatile List<RegisteredScript> scripts;
+
+	/**
+	 * Creates a <code>ScriptRegistry</code>, starts watching the script
+	 * directory for changes, and starts scanning it on a background thread,
+	 * so that reading the header of every script does not delay the start of
+	 * the server.  The first lookup waits for the scan to finish.
+	 *
+	 * @param directory the script directory
+	 * @param extension the extension of the script files in the directory
+	 * @param charset   the character encoding of the script files
+	 * @param interval  the number of milliseconds between scans of the directory
+	 *                  while it cannot be watched, or zero if the directory should
+	 *                  only be scanned when requested
+	 * @param handlers  the command handlers, which hide scripts invoked by the
+	 *                  same commands
+	 */
+	public ScriptRegistry(File directory, String extension, Charset charset, long interval, CommandHandlerRegistry handlers) {
+		this.directory = directory;
+		this.extension = extension;
+		this.charset = charset;
+		this.handlers = handlers;
+		hiddenCommands = Collections.emptySet();
+		commands = Collections.emptyMap();
+		scripts = Collections.emptyList();
+		watcher = interval > 0 ? new DirectoryWatcher("Script-Registry", directory, interval, new DirectoryWatcher.Listener() {
+			@Override
+			public void entriesChanged(Set<String> names) {
+				if (names == null || containsScript(names)) {
+					scan();
+				}
+			}
+		}) : null;
+		initialScan = new FutureTask<Void>(new Runnable() {
+			@Override
+			public void run() {
+				scan();
+			}
+		}, null);
+		Thread scanThread = new Thread(initialScan, "Script-Registry-Scanner");
+		scanThread.setDaemon(true);
+		scanThread.start();
+	}
+
+	/**
+	 * Waits for the first scan of the script directory to finish.  If the
+	 * current thread is interrupted while waiting, then the interrupt is
+	 * preserved, and no scripts are found until the scan has finished.
+	 */
+	private void awaitInitialScan() {
+		try {
+			initialScan.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Determines whether or not any of the supplied file names could belong
+	 * to a script.
+	 *
+	 * @param names the names of files in the script directory
+	 * @return <code>true</code> if any of the names has the script extension;
+	 * <code>false</code> otherwise
+	 */
+	private synchronized boolean containsScript(Set<String> names) {
+		for (String name : names) {
+			if (name.endsWith(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the script invoked by a command name, which is either the name of
+	 * the script or one of its aliases.
+	 *
+	 * @param command the command name
+	 * @return the script invoked by the command, or <code>null</code> if no
+	 * script has that name or alias
+	 */
+	public RegisteredScript get(String command) {
+		awaitInitialScan();
+		return commands.get(command);
+	}
+
+	/**
+	 * Gets every registered script, sorted by name.
+	 *
+	 * @return an unmodifiable list of the registered scripts
+	 */
+	public List<RegisteredScript> getScripts() {
+		awaitInitialScan();
+		return scripts;
+	}
+
+	/**
+	 * Changes the directory, extension and character encoding of the scripts,
+	 * and rescans the directory immediately.  If the character encoding has
+	 * changed, then the header of every script is read again.
+	 *
+	 * @param directory the script directory
+	 * @param extension the extension of the script files in the directory
+	 * @param charset   the character encoding of the script files
+	 */
+	public void setLocation(File directory, String extension, Charset charset) {
+		synchronized (this) {
+			this.directory = directory;
+			this.extension = extension;
+			this.charset = charset;
+		}
+		if (watcher != null) {
+			watcher.setDirectory(directory);
+		}
+		scan();
+	}
+
+	/**
+	 * Scans the script directory and publishes a new index of its scripts.
+	 * Scripts whose files have not changed since the last scan keep their
+	 * metadata without being read again.
+	 */
+	public synchronized void scan() {
+		Map<File, RegisteredScript> previous = new HashMap<File, RegisteredScript>();
+		if (charset.equals(scannedCharset)) {
+			for (RegisteredScript script : scripts) {
+				previous.put(script.getFile(), script);
+			}
+		}
+		scannedCharset = charset;
+
+		List<RegisteredScript> scanned = new ArrayList<RegisteredScript>();
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				String fileName = file.getName();
+				if (!fileName.endsWith(extension) || fileName.length() == extension.length() || !file.isFile()) {
+					continue;
+				}
+				long lastModified = file.lastModified();
+				long length = file.length();
+				RegisteredScript script = previous.get(file);
+				if (script == null || script.getLastModified() != lastModified || script.getLength() != length) {
+					try {
+						script = read(fileName.substring(0, fileName.length() - extension.length()), file, charset, lastModified, length);
+					} catch (IOException e) {
+						e.printStackTrace();
+						continue;
+					}
+				}
+				scanned.add(script);
+			}
+		}
+		Collections.sort(scanned, new Comparator<RegisteredScript>() {
+			@Override
+			public int compare(RegisteredScript script1, RegisteredScript script2) {
+				return script1.getName().compareTo(script2.getName());
+			}
+		});
+
+		Map<String, RegisteredScript> scannedCommands = new HashMap<String, RegisteredScript>();
+		for (RegisteredScript script : scanned) {
+			scannedCommands.put(script.getName(), script);
+		}
+		for (RegisteredScript script : scanned) {
+			for (String alias : script.getAliases()) {
+				if (!scannedCommands.containsKey(alias)) {
+					scannedCommands.put(alias, script);
+				}
+			}
+		}
+		reportHiddenCommands(scannedCommands);
+		scripts = Collections.unmodifiableList(scanned);
+		commands = scannedCommands;
+	}
+
+	/**
+	 * Reports each command which invokes both a script and a command handler,
+	 * unless it was already reported by the previous scan.
+	 *
+	 * @param scannedCommands the scripts indexed by the commands which invoke them
+	 */
+	private void reportHiddenCommands(Map<String, RegisteredScript> scannedCommands) {
+		Set<String> hidden = new HashSet<String>();
+		for (Map.Entry<String, RegisteredScript> entry : scannedCommands.entrySet()) {
+			String command = entry.getKey();
+			CommandHandler handler = handlers.get(command);
+			if (handler == null) {
+				continue;
+			}
+			hidden.add(command);
+			if (!hiddenCommands.contains(command)) {
+				System.err.println("The script " + entry.getValue().getFile() + " will not be run by " + command
+						+ ", because the command handler " + handler.getClass().getName() + " is also invoked by it.");
+			}
+		}
+		hiddenCommands = hidden;
+	}
+
+	/**
+	 * Reads the metadata of a script from its header, which is the block of
+	 * comment lines at the top of the file.  Comment lines start with
+	 * <code>//</code> or <code>#</code>, and blank lines are skipped.
+	 *
+	 * @param name         the name of the script
+	 * @param file         the script file
+	 * @param charset      the character encoding of the script file
+	 * @param lastModified the modification time of the script file
+	 * @param length       the length of the script file
+	 * @return the script and its metadata
+	 * @throws IOException if the script file could not be read
+	 */
+	private static RegisteredScript read(String name, File file, Charset charset, long lastModified, long length) throws IOException {
+		List<String> aliases = new ArrayList<String>();
+		String usage = null;
+		int cost = 1;
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.length() == 0) {
+					continue;
+				}
+				String comment;
+				if (line.startsWith("//")) {
+					comment = line.substring(2).trim();
+				} else if (line.startsWith("#")) {
+					comment = line.substring(1).trim();
+				} else {
+					break;
+				}
+				if (comment.startsWith(aliasTag)) {
+					String value = comment.substring(aliasTag.length()).trim();
+					if (value.length() > 0) {
+						aliases.addAll(Arrays.asList(value.split("\\s+")));
+					}
+				} else if (comment.startsWith(usageTag)) {
+					String value = comment.substring(usageTag.length()).trim();
+					usage = value.length() > 0 ? value : null;
+				} else if (comment.startsWith(costTag)) {
+					String value = comment.substring(costTag.length()).trim();
+					try {
+						cost = Math.max(Integer.parseInt(value), 0);
+					} catch (NumberFormatException e) {
+						System.err.println("The cost of " + file + " is not a number: " + value);
+					}
+				}
+			}
+		} finally {
+			Utility.tryClose(reader);
+		}
+		return new RegisteredScript(name, file, lastModified, length, Collections.unmodifiableList(aliases), usage, cost);
+	}
+
+}
@@ -0,0 +1,237 @@
+package com.faulch.minecraft.serverwrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the server as a child process with its own JVM flags, rather than
+ * loading it into the wrapper's JVM.  The output of the child process is
+ * copied into standard output, and lines read from standard input are copied
+ * into the child process, so the child process is driven through exactly the
+ * same line pipeline as an embedded server.  Process pipes can only be read
+ * and written with blocking calls, so each pipe is pumped by a dedicated
+ * daemon thread which copies bytes in bulk.  When the child process crashes,
+ * it is restarted after a delay which doubles with every consecutive crash.
+ *
+ * @author Jonathan Faulch
+ */
+public class ServerProcess {
+
+	private final WrapperProperties properties;
+	private final List<String> command;
+	private final Object processLock;
+	private Process process;
+	private OutputStream processInput;
+	private volatile boolean stopping;
+
+	/**
+	 * Creates a <code>ServerProcess</code> which will launch the specified
+	 * server jar.  If a class data sharing archive is configured, the process
+	 * uses it when it is newer than the server jar, and otherwise creates it
+	 * when the process exits.  The process is not started until
+	 * <code>run</code> is called.
+	 *
+	 * @param properties the properties which configure the child JVM and its restarts
+	 * @param serverFile the server jar
+	 * @param args       the arguments passed to the server
+	 */
+	public ServerProcess(WrapperProperties properties, File serverFile, String... args) {
+		this.properties = properties;
+		command = new ArrayList<String>();
+		command.add(properties.getJavaCommand());
+		command.addAll(properties.getServerJvmArguments());
+		File sharedArchiveFile = properties.getServerSharedArchiveFile();
+		if (sharedArchiveFile != null) {
+			if (sharedArchiveFile.isFile() && sharedArchiveFile.lastModified() >= serverFile.lastModified()) {
+				command.add("-XX:SharedArchiveFile=" + sharedArchiveFile.getPath());
+			} else {
+				command.add("-XX:ArchiveClassesAtExit=" + sharedArchiveFile.getPath());
+			}
+		}
+		command.add("-jar");
+		command.add(serverFile.getPath());
+		for (String arg : args) {
+			command.add(arg);
+		}
+		processLock = new Object();
+	}
+
+	/**
+	 * Starts the server process and supervises it until it exits normally.
+	 * The server process is restarted whenever it exits with a non-zero exit
+	 * code, unless restarts are disabled or the wrapper is shutting down.
+	 *
+	 * @return the exit code of the last server process
+	 * @throws IOException          if the server process could not be started
+	 * @throws InterruptedException if the current thread is interrupted while waiting for
+	 *                              the server process
+	 */
+	public int run() throws IOException, InterruptedException {
+		startInputPump();
+		Runtime.getRuntime().addShutdownHook(new Thread("Server-Shutdown") {
+			@Override
+			public void run() {
+				ServerProcess.this.stop();
+			}
+		});
+		int crashes = 0;
+		while (true) {
+			long started = System.currentTimeMillis();
+			Process process = new ProcessBuilder(command).start();
+			synchronized (processLock) {
+				this.process = process;
+				processInput = process.getOutputStream();
+				processLock.notifyAll();
+			}
+			Thread outputPump = startOutputPump(process.getInputStream(), System.out, "Server-Output");
+			Thread errorPump = startOutputPump(process.getErrorStream(), System.err, "Server-Error");
+			int exitCode = process.waitFor();
+			outputPump.join();
+			errorPump.join();
+			synchronized (processLock) {
+				this.process = null;
+				processInput = null;
+				processLock.notifyAll();
+			}
+			process.destroy();
+
+			if (exitCode == 0 || stopping || !properties.isServerRestart()) {
+				return exitCode;
+			}
+			if (System.currentTimeMillis() - started >= properties.getServerRestartResetTime()) {
+				crashes = 0;
+			}
+			long delay = Math.min(properties.getServerRestartMaximumDelay(), properties.getServerRestartMinimumDelay() << Math.min(crashes, 30));
+			crashes++;
+			System.err.println("The server exited with code " + exitCode + ", restarting in " + delay + " ms.");
+			Thread.sleep(delay);
+			if (stopping) {
+				return exitCode;
+			}
+		}
+	}
+
+	/**
+	 * Asks the server process to stop by sending it the <code>stop</code>
+	 * command, and waits for it to exit and for its remaining output to be
+	 * copied.  If it does not exit within the stop timeout, it is destroyed.
+	 * The server process is not restarted after this method has been called.
+	 */
+	public void stop() {
+		stopping = true;
+		Process process;
+		synchronized (processLock) {
+			process = this.process;
+			if (processInput != null) {
+				try {
+					processInput.write(("stop" + Utility.lineSeparator).getBytes(properties.getCharset().name()));
+					processInput.flush();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			processLock.notifyAll();
+			if (process != null) {
+				long deadline = System.currentTimeMillis() + properties.getServerStopTimeout();
+				try {
+					long remaining;
+					while (this.process == process && (remaining = deadline - System.currentTimeMillis()) > 0) {
+						processLock.wait(remaining);
+					}
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		if (process != null) {
+			process.destroy();
+		}
+	}
+
+	/**
+	 * Starts the daemon thread which copies lines read from standard input into
+	 * the current server process.  A line which can't be written, because the
+	 * server process has exited, is held until the server process is restarted.
+	 */
+	private void startInputPump() {
+		final InputStream input = System.in;
+		Thread inputPump = new Thread("Server-Input") {
+			@Override
+			public void run() {
+				try {
+					byte[] buffer = new byte[8192];
+					int count;
+					while ((count = input.read(buffer)) != -1) {
+						deliver(buffer, count);
+					}
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		inputPump.setDaemon(true);
+		inputPump.start();
+	}
+
+	/**
+	 * Writes bytes to the standard input of the current server process,
+	 * waiting for the server process to be restarted if it has exited.
+	 *
+	 * @param buffer the array containing the bytes
+	 * @param count  the number of bytes to write
+	 * @throws InterruptedException if the current thread is interrupted while waiting for
+	 *                              the server process to be restarted
+	 */
+	private void deliver(byte[] buffer, int count) throws InterruptedException {
+		synchronized (processLock) {
+			while (!stopping) {
+				if (processInput != null) {
+					try {
+						processInput.write(buffer, 0, count);
+						processInput.flush();
+						return;
+					} catch (IOException e) {
+						processInput = null;
+					}
+				}
+				processLock.wait();
+			}
+		}
+	}
+
+	/**
+	 * Starts a daemon thread which copies the bytes of a process pipe into the
+	 * specified stream until the pipe is closed.
+	 *
+	 * @param input  the process pipe
+	 * @param output the stream the bytes are copied into
+	 * @param name   the name of the thread
+	 * @return the started thread
+	 */
+	private static Thread startOutputPump(final InputStream input, final PrintStream output, String name) {
+		Thread outputPump = new Thread(name) {
+			@Override
+			public void run() {
+				try {
+					byte[] buffer = new byte[8192];
+					int count;
+					while ((count = input.read(buffer)) != -1) {
+						output.write(buffer, 0, count);
+						output.flush();
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		outputPump.setDaemon(true);
+		outputPump.start();
+		return outputPump;
+	}
+
+}
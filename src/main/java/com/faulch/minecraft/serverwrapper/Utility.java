@@ -102,7 +102,7 @@ public final class Utility {
 	 * <code>value</code> string
 	 * @throws IllegalArgumentException if the supplied type is not supported
 	 */
-	@SuppressWarnings("unchecked")
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	public static <T> T convertString(String value, Class<T> type) {
 		if (type.equals(String.class)) {
 			return (T) value;
@@ -110,6 +110,14 @@ public final class Utility {
 			return (T) Pattern.compile(value);
 		} else if (type.equals(File.class)) {
 			return (T) new File(value);
+		} else if (type.equals(int.class) || type.equals(Integer.class)) {
+			return (T) Integer.valueOf(value.trim());
+		} else if (type.equals(long.class) || type.equals(Long.class)) {
+			return (T) Long.valueOf(value.trim());
+		} else if (type.equals(boolean.class) || type.equals(Boolean.class)) {
+			return (T) Boolean.valueOf(value.trim());
+		} else if (type.isEnum()) {
+			return (T) Enum.valueOf((Class) type, value.trim().toUpperCase());
 		} else {
 			throw new IllegalArgumentException(type + " is not a supported type.");
 		}
@@ -1,15 +1,30 @@
 package com.faulch.minecraft.serverwrapper;
 
+import com.faulch.minecraft.serverwrapper.text.CommandTemplate;
+import com.faulch.minecraft.serverwrapper.trigger.Trigger;
+
 import java.io.*;
-import java.lang.reflect.Field;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.regex.Pattern;
 
 /**
  * Manages the loading and creating of application properties.  Known properties
  * are exposed as read only properties of this object for convenience, and to
- * prevent errors associated with the overuse of string literals.
+ * prevent errors associated with the overuse of string literals.  A
+ * <code>WrapperProperties</code> object is an immutable snapshot: every
+ * property is parsed when the object is created, and if any of them is
+ * invalid, the whole snapshot is rejected.  Reloading the properties creates a
+ * new snapshot.  Since a snapshot cannot change, the external properties file
+ * is no longer loaded into an existing object with
+ * <code>loadExternalProperties()</code>; <code>load()</code> returns a new
+ * snapshot of the default and external properties instead.
  *
  * @author Jonathan Faulch
  */
@@ -17,23 +32,69 @@ public class WrapperProperties {
 
 	private static final String
 			defaultPropertiesFileName = "default.properties",
-			wrapperPropertiesFileName = "wrapper.properties";
-
-	private final Properties properties;
-	private File serverDirectory;
-	private Pattern serverFileRegex;
-	private Pattern inputRegex;
-	private Pattern outputRegex;
-	private File systemPropertiesFile;
-	private File scriptEngineDirectory;
-	private Pattern scriptEngineFileRegex;
-	private File libraryDirectory;
-	private Pattern libraryFileRegex;
-	private File scriptDirectory;
-	private String scriptType;
-	private String scriptExtension;
-	private String characterEncoding;
-	private String executeCommand;
+			wrapperPropertiesFileName = "wrapper.properties",
+			triggerPropertyPrefix = "trigger.",
+			triggerRegexSuffix = ".regex",
+			triggerSourceSuffix = ".source",
+			triggerLiteralSuffix = ".literal";
+
+	private final File serverDirectory;
+	private final Pattern serverFileRegex;
+	private final Pattern inputRegex;
+	private final Pattern outputRegex;
+	private final String inputLiteral;
+	private final String outputLiteral;
+	private final long lineProcessorTimeBudget;
+	private final List<Trigger> triggers;
+	private final File systemPropertiesFile;
+	private final File scriptEngineDirectory;
+	private final Pattern scriptEngineFileRegex;
+	private final File libraryDirectory;
+	private final Pattern libraryFileRegex;
+	private final File scriptDirectory;
+	private final String scriptType;
+	private final String scriptExtension;
+	private final boolean scriptPrecompile;
+	private final int scriptEnginePoolSize;
+	private final long scriptEngineIdleTimeout;
+	private final String characterEncoding;
+	private final String executeCommand;
+	private final CommandTemplate executeCommandTemplate;
+	private final int commandQueueCapacity;
+	private final int commandRate;
+	private final int worldMinY;
+	private final int worldMaxY;
+	private final int fillLimit;
+	private final int scriptThreadPoolSize;
+	private final ScriptExecutor.ThreadMode scriptThreadMode;
+	private final int scriptQueueCapacity;
+	private final ScriptExecutor.RejectionPolicy scriptRejectionPolicy;
+	private final boolean metricsJmx;
+	private final int metricsPort;
+	private final int historyLines;
+	private final int historySlotSize;
+	private final File scheduleFile;
+	private final MinecraftServerWrapper.ServerMode serverMode;
+	private final String javaCommand;
+	private final String serverJvmArguments;
+	private final boolean serverRestart;
+	private final long serverRestartMinimumDelay;
+	private final long serverRestartMaximumDelay;
+	private final long serverRestartResetTime;
+	private final long serverStopTimeout;
+	private final File serverCacheFile;
+	private final File serverSharedArchiveFile;
+	private final long propertiesReloadInterval;
+	private final long scriptScanInterval;
+	private final int playerScriptRate;
+	private final int playerScriptBurst;
+	private final int playerScriptConcurrency;
+	private final int scriptCostCeiling;
+	private final int playerStateCapacity;
+	private final long scriptTimeLimit;
+	private final long scriptCpuTimeLimit;
+	private final long scriptWatchdogInterval;
+	private final List<String> warnings;
 
 	/**
 	 * Creates a <code>WrapperProperties</code> object populated with the
@@ -42,20 +103,197 @@ public class WrapperProperties {
 	 * @throws IOException if the default properties could not be loaded
 	 */
 	public WrapperProperties() throws IOException {
-		properties = new Properties();
-		properties.load(getClass().getResourceAsStream(defaultPropertiesFileName));
-		loadFields(properties);
+		this(loadDefaultProperties());
 	}
 
 	/**
-	 * Loads properties into this object from the external properties file, or
-	 * creates the external properties file if it does not exist.
+	 * Creates a <code>WrapperProperties</code> object from the supplied
+	 * properties.  Each known property is bound directly to its field, and
+	 * properties which are not known are ignored, but recorded as warnings,
+	 * which are reported when the properties are loaded.
 	 *
+	 * @param properties the properties which will be parsed into this object
+	 * @throws IllegalArgumentException if a property is missing or has an invalid value
+	 */
+	public WrapperProperties(Properties properties) {
+		warnings = new ArrayList<String>();
+		PropertyReader reader = new PropertyReader(properties);
+		serverDirectory = reader.get("serverDirectory", File.class);
+		serverFileRegex = reader.get("serverFileRegex", Pattern.class);
+		inputRegex = reader.get("inputRegex", Pattern.class);
+		outputRegex = reader.get("outputRegex", Pattern.class);
+		inputLiteral = reader.get("inputLiteral", String.class);
+		outputLiteral = reader.get("outputLiteral", String.class);
+		lineProcessorTimeBudget = reader.get("lineProcessorTimeBudget", long.class);
+		systemPropertiesFile = reader.get("systemPropertiesFile", File.class);
+		scriptEngineDirectory = reader.get("scriptEngineDirectory", File.class);
+		scriptEngineFileRegex = reader.get("scriptEngineFileRegex", Pattern.class);
+		libraryDirectory = reader.get("libraryDirectory", File.class);
+		libraryFileRegex = reader.get("libraryFileRegex", Pattern.class);
+		scriptDirectory = reader.get("scriptDirectory", File.class);
+		scriptType = reader.get("scriptType", String.class);
+		scriptExtension = reader.get("scriptExtension", String.class);
+		scriptPrecompile = reader.get("scriptPrecompile", boolean.class);
+		scriptEnginePoolSize = reader.get("scriptEnginePoolSize", int.class);
+		scriptEngineIdleTimeout = reader.get("scriptEngineIdleTimeout", long.class);
+		characterEncoding = reader.get("characterEncoding", String.class);
+		executeCommand = reader.get("executeCommand", String.class);
+		try {
+			executeCommandTemplate = CommandTemplate.compile(executeCommand);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("The property executeCommand has an invalid value: " + executeCommand, e);
+		}
+		commandQueueCapacity = reader.get("commandQueueCapacity", int.class);
+		commandRate = reader.get("commandRate", int.class);
+		worldMinY = reader.get("worldMinY", int.class);
+		worldMaxY = reader.get("worldMaxY", int.class);
+		fillLimit = reader.get("fillLimit", int.class);
+		scriptThreadPoolSize = reader.get("scriptThreadPoolSize", int.class);
+		scriptThreadMode = reader.get("scriptThreadMode", ScriptExecutor.ThreadMode.class);
+		scriptQueueCapacity = reader.get("scriptQueueCapacity", int.class);
+		scriptRejectionPolicy = reader.get("scriptRejectionPolicy", ScriptExecutor.RejectionPolicy.class);
+		metricsJmx = reader.get("metricsJmx", boolean.class);
+		metricsPort = reader.get("metricsPort", int.class);
+		historyLines = reader.get("historyLines", int.class);
+		historySlotSize = reader.get("historySlotSize", int.class);
+		scheduleFile = reader.get("scheduleFile", File.class);
+		serverMode = reader.get("serverMode", MinecraftServerWrapper.ServerMode.class);
+		javaCommand = reader.get("javaCommand", String.class);
+		serverJvmArguments = reader.get("serverJvmArguments", String.class);
+		serverRestart = reader.get("serverRestart", boolean.class);
+		serverRestartMinimumDelay = reader.get("serverRestartMinimumDelay", long.class);
+		serverRestartMaximumDelay = reader.get("serverRestartMaximumDelay", long.class);
+		serverRestartResetTime = reader.get("serverRestartResetTime", long.class);
+		serverStopTimeout = reader.get("serverStopTimeout", long.class);
+		serverCacheFile = reader.get("serverCacheFile", File.class);
+		serverSharedArchiveFile = reader.get("serverSharedArchiveFile", File.class);
+		propertiesReloadInterval = reader.get("propertiesReloadInterval", long.class);
+		scriptScanInterval = reader.get("scriptScanInterval", long.class);
+		playerScriptRate = reader.get("playerScriptRate", int.class);
+		playerScriptBurst = reader.get("playerScriptBurst", int.class);
+		playerScriptConcurrency = reader.get("playerScriptConcurrency", int.class);
+		scriptCostCeiling = reader.get("scriptCostCeiling", int.class);
+		playerStateCapacity = reader.get("playerStateCapacity", int.class);
+		scriptTimeLimit = reader.get("scriptTimeLimit", long.class);
+		scriptCpuTimeLimit = reader.get("scriptCpuTimeLimit", long.class);
+		scriptWatchdogInterval = reader.get("scriptWatchdogInterval", long.class);
+		reader.findUnknownProperties(warnings);
+		if (scriptCpuTimeLimit > 0 && scriptThreadMode == ScriptExecutor.ThreadMode.VIRTUAL) {
+			warnings.add("The property scriptCpuTimeLimit is ignored, because the CPU time of virtual threads is not measured.");
+		}
+		if (characterEncoding != null) {
+			try {
+				Charset.forName(characterEncoding);
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("The property characterEncoding has an invalid value: " + characterEncoding, e);
+			}
+		}
+		triggers = loadTriggers(properties);
+	}
+
+	/**
+	 * Loads the application's default properties.
+	 *
+	 * @return the default properties
+	 * @throws IOException if the default properties could not be loaded
+	 */
+	public static Properties loadDefaultProperties() throws IOException {
+		Properties properties = new Properties();
+		InputStream input = null;
+		try {
+			properties.load(input = WrapperProperties.class.getResourceAsStream(defaultPropertiesFileName));
+		} finally {
+			Utility.tryClose(input);
+		}
+		return properties;
+	}
+
+	/**
+	 * Loads the application's properties, which are the default properties
+	 * overridden by the external properties file.  If the external properties
+	 * file does not exist, it is created from the default properties.  If the
+	 * external properties file could not be read, or is invalid, then the
+	 * default properties are used instead.  The warnings of the loaded
+	 * properties are reported.
+	 *
+	 * @return the application's properties
+	 * @throws IOException if the default properties could not be loaded
+	 */
+	public static WrapperProperties load() throws IOException {
+		Properties defaultProperties = loadDefaultProperties();
+		WrapperProperties properties;
+		try {
+			properties = new WrapperProperties(loadExternalProperties(defaultProperties));
+		} catch (IOException e) {
+			e.printStackTrace();
+			properties = new WrapperProperties(defaultProperties);
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+			properties = new WrapperProperties(defaultProperties);
+		}
+		properties.reportWarnings(null);
+		return properties;
+	}
+
+	/**
+	 * Reloads the application's properties from the default properties and
+	 * the external properties file, without falling back to the default
+	 * properties if the external properties file is invalid.  Only the
+	 * warnings which the previous properties did not have are reported, so
+	 * that saving the file does not repeat warnings about properties which
+	 * have not changed.
+	 *
+	 * @param previous the properties currently in effect
+	 * @return the reloaded application properties
+	 * @throws IOException              if the default properties or the external properties file
+	 *                                  could not be read
+	 * @throws IllegalArgumentException if a property has an invalid value
+	 */
+	public static WrapperProperties reload(WrapperProperties previous) throws IOException {
+		WrapperProperties properties = new WrapperProperties(loadExternalProperties(loadDefaultProperties()));
+		properties.reportWarnings(previous);
+		return properties;
+	}
+
+	/**
+	 * Reports the warnings of these properties, which are properties that
+	 * were ignored because they are unknown or have no effect.
+	 *
+	 * @param previous the properties whose warnings have already been reported, or
+	 *                 <code>null</code> if there are none
+	 */
+	private void reportWarnings(WrapperProperties previous) {
+		for (String warning : warnings) {
+			if (previous == null || !previous.warnings.contains(warning)) {
+				System.err.println(warning);
+			}
+		}
+	}
+
+	/**
+	 * Gets the external properties file, which overrides the default
+	 * properties.
+	 *
+	 * @return the external properties file
+	 */
+	public static File getExternalPropertiesFile() {
+		return new File(wrapperPropertiesFileName);
+	}
+
+	/**
+	 * Loads the external properties file over a copy of the supplied default
+	 * properties, or creates the external properties file from the default
+	 * properties if it does not exist.
+	 *
+	 * @param defaultProperties the default properties
+	 * @return the default properties overridden by the external properties
 	 * @throws IOException if the external properties file exists but could not be read, or
 	 *                     if the external properties file does not exist but could not be
 	 *                     created
 	 */
-	public void loadExternalProperties() throws IOException {
+	private static Properties loadExternalProperties(Properties defaultProperties) throws IOException {
+		Properties properties = new Properties();
+		properties.putAll(defaultProperties);
 		FileInputStream input = null;
 		try {
 			properties.load(input = new FileInputStream(wrapperPropertiesFileName));
@@ -69,32 +307,104 @@ public class WrapperProperties {
 		} finally {
 			Utility.tryClose(input);
 		}
-		loadFields(properties);
+		return properties;
 	}
 
 	/**
-	 * Loads all of the properties from the specified <code>Properties</code>
-	 * into the fields of this object.
+	 * Builds the list of triggers from the input and output regex properties,
+	 * along with any additional triggers defined by properties of the form
+	 * <code>trigger.&lt;name&gt;.regex</code>.  Each additional trigger may
+	 * also have a <code>trigger.&lt;name&gt;.source</code> property, which is
+	 * either <code>input</code> or <code>output</code> and defaults to
+	 * <code>output</code>, and a <code>trigger.&lt;name&gt;.literal</code>
+	 * property, which defaults to no literal, since a literal which suits one
+	 * regex may reject lines matching another.
 	 *
-	 * @param properties the properties object which contains the properties which will
-	 *                   be loaded into the fields of this object
-	 * @return <code>true</code> every property from the properties object was
-	 * successfully loaded into this object's fields;
-	 * <code>false</code> otherwise
+	 * @param properties the properties object which contains the trigger
+	 *                   properties
+	 * @return the triggers
+	 */
+	private List<Trigger> loadTriggers(Properties properties) {
+		List<Trigger> triggers = new ArrayList<Trigger>();
+		triggers.add(new Trigger("console", Trigger.Source.INPUT, inputRegex, checkLiteral("inputLiteral", inputRegex, inputLiteral, warnings)));
+		triggers.add(new Trigger("chat", Trigger.Source.OUTPUT, outputRegex, checkLiteral("outputLiteral", outputRegex, outputLiteral, warnings)));
+		for (String propertyName : new TreeSet<String>(properties.stringPropertyNames())) {
+			if (propertyName.startsWith(triggerPropertyPrefix) && propertyName.endsWith(triggerRegexSuffix)) {
+				String name = propertyName.substring(triggerPropertyPrefix.length(), propertyName.length() - triggerRegexSuffix.length());
+				String prefix = triggerPropertyPrefix + name;
+				Pattern regex = Utility.convertString(properties.getProperty(propertyName), Pattern.class);
+				triggers.add(new Trigger(
+						name,
+						Utility.convertString(properties.getProperty(prefix + triggerSourceSuffix, Trigger.Source.OUTPUT.name()), Trigger.Source.class),
+						regex,
+						checkLiteral(prefix + triggerLiteralSuffix, regex, properties.getProperty(prefix + triggerLiteralSuffix, ""), warnings)));
+			}
+		}
+		return Collections.unmodifiableList(triggers);
+	}
+
+	/**
+	 * Reads typed values from a <code>Properties</code> object, and keeps
+	 * track of which properties have been read, so that unknown properties can
+	 * be reported.
 	 */
-	private boolean loadFields(Properties properties) {
-		boolean loadedAll = true;
-		for (String propertyName : properties.stringPropertyNames()) {
+	private static class PropertyReader {
+
+		private final Properties properties;
+		private final Set<String> readNames;
+
+		/**
+		 * Creates a <code>PropertyReader</code> which reads the supplied
+		 * properties.
+		 *
+		 * @param properties the properties to be read
+		 */
+		private PropertyReader(Properties properties) {
+			this.properties = properties;
+			readNames = new HashSet<String>();
+		}
+
+		/**
+		 * Reads a property and converts it to the specified type.
+		 *
+		 * @param name the name of the property
+		 * @param type the type of the property
+		 * @param <T>  the type of the property
+		 * @return the converted value, or <code>null</code> if the property is
+		 * not set and its type is not primitive
+		 * @throws IllegalArgumentException if the property is not set and its type is primitive, or
+		 *                                  if its value could not be converted
+		 */
+		private <T> T get(String name, Class<T> type) {
+			readNames.add(name);
+			String value = properties.getProperty(name);
+			if (value == null) {
+				if (type.isPrimitive()) {
+					throw new IllegalArgumentException("The property " + name + " is missing.");
+				}
+				return null;
+			}
 			try {
-				Field field = getClass().getDeclaredField(propertyName);
-				field.setAccessible(true);
-				field.set(this, Utility.convertString(properties.getProperty(propertyName), field.getType()));
-			} catch (Exception e) {
-				e.printStackTrace();
-				loadedAll = false;
+				return Utility.convertString(value, type);
+			} catch (RuntimeException e) {
+				throw new IllegalArgumentException("The property " + name + " has an invalid value: " + value, e);
 			}
 		}
-		return loadedAll;
+
+		/**
+		 * Warns about any property which has not been read, and is not a
+		 * trigger property, since it is most likely misspelled.
+		 *
+		 * @param warnings the list which receives the warnings
+		 */
+		private void findUnknownProperties(List<String> warnings) {
+			for (String name : new TreeSet<String>(properties.stringPropertyNames())) {
+				if (!readNames.contains(name) && !name.startsWith(triggerPropertyPrefix)) {
+					warnings.add("The property " + name + " is not known, and was ignored.");
+				}
+			}
+		}
+
 	}
 
 	/**
@@ -118,6 +428,38 @@ public class WrapperProperties {
 		return serverFileRegex;
 	}
 
+	/**
+	 * Checks that the literal text required by a trigger appears in its regex,
+	 * so that changing a regex without changing its literal does not silently
+	 * stop the trigger from matching.  The regex is searched with its escapes
+	 * removed.  A literal which does not appear is warned about, and not used.
+	 *
+	 * @param propertyName the name of the property holding the literal
+	 * @param regex        the regex of the trigger
+	 * @param literal      the literal text required by the trigger
+	 * @param warnings     the list which receives the warning
+	 * @return the literal, or an empty string if it does not appear in the regex
+	 */
+	private static String checkLiteral(String propertyName, Pattern regex, String literal, List<String> warnings) {
+		if (literal == null || literal.length() == 0) {
+			return "";
+		}
+		String pattern = regex.pattern();
+		StringBuilder unescaped = new StringBuilder(pattern.length());
+		for (int i = 0; i < pattern.length(); i++) {
+			char c = pattern.charAt(i);
+			if (c == '\\' && i + 1 < pattern.length() && !Character.isLetterOrDigit(pattern.charAt(i + 1))) {
+				c = pattern.charAt(++i);
+			}
+			unescaped.append(c);
+		}
+		if (unescaped.indexOf(literal) == -1) {
+			warnings.add("The property " + propertyName + " was ignored, because \"" + literal + "\" does not appear in the regex " + pattern + ".");
+			return "";
+		}
+		return literal;
+	}
+
 	/**
 	 * Gets the regex used for matching against lines from standard input, which
 	 * will trigger script execution.  This regex should only contain a single
@@ -141,6 +483,58 @@ public class WrapperProperties {
 		return outputRegex;
 	}
 
+	/**
+	 * Gets the text which must appear in a line for it to match the input
+	 * regex.  Lines which do not contain this text are rejected without being
+	 * matched against the regex.  If this is empty, every line is matched.
+	 *
+	 * @return the literal text required by the input regex
+	 */
+	public String getInputLiteral() {
+		return inputLiteral;
+	}
+
+	/**
+	 * Gets the text which must appear in a line for it to match the output
+	 * regex.  Since nearly every line the server writes passes through this
+	 * check, the text should be specific enough that ordinary log lines do not
+	 * contain it.  If this is empty, every line is matched.
+	 *
+	 * @return the literal text required by the output regex
+	 */
+	public String getOutputLiteral() {
+		return outputLiteral;
+	}
+
+	/**
+	 * Gets the number of milliseconds a line processor added by a script may
+	 * spend processing a single line before it is removed.  If this value is
+	 * not positive, then line processors are never removed.
+	 *
+	 * @return the line processor time budget in milliseconds
+	 */
+	public long getLineProcessorTimeBudget() {
+		return lineProcessorTimeBudget;
+	}
+
+	/**
+	 * Gets the triggers which monitor the specified standard stream.  The
+	 * input and output regexes are always the first input and output triggers
+	 * respectively, followed by any additional triggers in order of name.
+	 *
+	 * @param source the standard stream monitored by the triggers
+	 * @return the triggers monitoring the specified standard stream
+	 */
+	public List<Trigger> getTriggers(Trigger.Source source) {
+		List<Trigger> sourceTriggers = new ArrayList<Trigger>();
+		for (Trigger trigger : triggers) {
+			if (trigger.getSource() == source) {
+				sourceTriggers.add(trigger);
+			}
+		}
+		return sourceTriggers;
+	}
+
 	/**
 	 * Gets the file which will be used to merge additional system properties
 	 * into the existing system properties.
@@ -225,6 +619,39 @@ public class WrapperProperties {
 		return scriptExtension;
 	}
 
+	/**
+	 * Determines whether or not every script in the script directory should be
+	 * compiled in the background at startup, so that the first execution of
+	 * each script is not slowed down by reading and compiling it.
+	 *
+	 * @return <code>true</code> if scripts should be precompiled at startup;
+	 * <code>false</code> otherwise
+	 */
+	public boolean isScriptPrecompile() {
+		return scriptPrecompile;
+	}
+
+	/**
+	 * Gets the maximum number of script engines which will be created to run
+	 * scripts concurrently.  This is only used when the script engine is not
+	 * thread safe, otherwise a single engine is shared by every script.
+	 *
+	 * @return the maximum number of script engines
+	 */
+	public int getScriptEnginePoolSize() {
+		return scriptEnginePoolSize;
+	}
+
+	/**
+	 * Gets the number of milliseconds a script engine may go unused before it
+	 * is discarded.
+	 *
+	 * @return the script engine idle timeout in milliseconds
+	 */
+	public long getScriptEngineIdleTimeout() {
+		return scriptEngineIdleTimeout;
+	}
+
 	/**
 	 * Gets the name of the character encoding used to decode strings which will
 	 * be piped into standard input.
@@ -245,6 +672,397 @@ public class WrapperProperties {
 		return executeCommand;
 	}
 
+	/**
+	 * Gets the execute command format string compiled into a template, which
+	 * formats the player's name and the command to execute as them.
+	 *
+	 * @return the compiled execute command template
+	 */
+	public CommandTemplate getExecuteCommandTemplate() {
+		return executeCommandTemplate;
+	}
+
+	/**
+	 * Gets the maximum number of commands which may be waiting to be passed to
+	 * standard input.  Scripts executing commands are blocked while this many
+	 * commands are waiting.
+	 *
+	 * @return the maximum number of commands waiting to be passed to standard
+	 * input
+	 */
+	public int getCommandQueueCapacity() {
+		return commandQueueCapacity;
+	}
+
+	/**
+	 * Gets the maximum number of commands which will be passed to standard
+	 * input per second.  There are 20 server ticks per second, so a rate of 20
+	 * is one command per tick.  If this value is not positive, then commands
+	 * are passed to standard input as fast as possible.
+	 *
+	 * @return the maximum number of commands passed to standard input per
+	 * second
+	 */
+	public int getCommandRate() {
+		return commandRate;
+	}
+
+	/**
+	 * Gets the lowest y coordinate in which blocks can be placed in the world.
+	 *
+	 * @return the lowest y coordinate in the world
+	 */
+	public int getWorldMinY() {
+		return worldMinY;
+	}
+
+	/**
+	 * Gets the highest y coordinate in which blocks can be placed in the
+	 * world.
+	 *
+	 * @return the highest y coordinate in the world
+	 */
+	public int getWorldMaxY() {
+		return worldMaxY;
+	}
+
+	/**
+	 * Gets the largest number of blocks which a single <code>fill</code>
+	 * command is allowed to change.
+	 *
+	 * @return the volume limit of a single <code>fill</code> command
+	 */
+	public int getFillLimit() {
+		return fillLimit;
+	}
+
+	/**
+	 * Gets the number of threads which will be used to run scripts.  If this
+	 * value is not positive, then scripts will be run on the same thread which
+	 * detected their textual trigger, except for scripts triggered by standard
+	 * input, which are run on a single thread of their own.  This is ignored
+	 * when scripts run on virtual threads.
+	 *
+	 * @return the number of threads used to run scripts
+	 */
+	public int getScriptThreadPoolSize() {
+		return scriptThreadPoolSize;
+	}
+
+	/**
+	 * Gets the kind of threads which will be used to run scripts.
+	 *
+	 * @return the kind of threads used to run scripts
+	 */
+	public ScriptExecutor.ThreadMode getScriptThreadMode() {
+		return scriptThreadMode;
+	}
+
+	/**
+	 * Gets the maximum number of scripts which may be waiting to run at any
+	 * given time.
+	 *
+	 * @return the maximum number of scripts waiting to run
+	 */
+	public int getScriptQueueCapacity() {
+		return scriptQueueCapacity;
+	}
+
+	/**
+	 * Gets the policy which decides what happens to a script which is triggered
+	 * while the maximum number of scripts are already waiting to run.
+	 *
+	 * @return the policy applied when too many scripts are waiting to run
+	 */
+	public ScriptExecutor.RejectionPolicy getScriptRejectionPolicy() {
+		return scriptRejectionPolicy;
+	}
+
+	/**
+	 * Determines whether or not the wrapper's metrics should be registered as
+	 * an MBean, so that they can be read by JMX clients.
+	 *
+	 * @return <code>true</code> if the metrics should be exposed through JMX;
+	 * <code>false</code> otherwise
+	 */
+	public boolean isMetricsJmx() {
+		return metricsJmx;
+	}
+
+	/**
+	 * Gets the local port on which the wrapper's metrics are served in the
+	 * Prometheus text format.  If this value is not positive, then the metrics
+	 * are not served.
+	 *
+	 * @return the port the metrics are served on
+	 */
+	public int getMetricsPort() {
+		return metricsPort;
+	}
+
+	/**
+	 * Gets the number of recent lines of standard output which are kept in
+	 * memory so that scripts can search them.  If this value is not positive,
+	 * then no history is kept.
+	 *
+	 * @return the number of lines kept in the history
+	 */
+	public int getHistoryLines() {
+		return historyLines;
+	}
+
+	/**
+	 * Gets the number of bytes of memory used to store each line of the
+	 * history, including its index.  Longer lines are truncated.
+	 *
+	 * @return the number of bytes used to store each line
+	 */
+	public int getHistorySlotSize() {
+		return historySlotSize;
+	}
+
+	/**
+	 * Gets the file listing the scripts which run on a schedule.  Each line
+	 * is a schedule followed by a command, such as
+	 * <code>@every 30m announce Remember to vote!</code>.
+	 *
+	 * @return the schedule file
+	 */
+	public File getScheduleFile() {
+		return scheduleFile;
+	}
+
+	/**
+	 * Gets the way in which the server is run.  An embedded server is loaded
+	 * into the wrapper's own JVM, while a process server is launched as a child
+	 * JVM with its own flags, and is restarted if it crashes.
+	 *
+	 * @return the server mode
+	 */
+	public MinecraftServerWrapper.ServerMode getServerMode() {
+		return serverMode;
+	}
+
+	/**
+	 * Gets the command used to launch the child JVM when the server runs as a
+	 * separate process.  If this value is <code>null</code>, then the
+	 * <code>java</code> executable of the wrapper's own JVM is used.
+	 *
+	 * @return the command used to launch the server process
+	 */
+	public String getJavaCommand() {
+		return javaCommand == null
+				? System.getProperty("java.home") + File.separator + "bin" + File.separator + "java"
+				: javaCommand;
+	}
+
+	/**
+	 * Gets the whitespace separated arguments passed to the child JVM, such as
+	 * <code>-Xmx2G</code>, when the server runs as a separate process.
+	 *
+	 * @return the JVM arguments of the server process
+	 */
+	public List<String> getServerJvmArguments() {
+		List<String> arguments = new ArrayList<String>();
+		if (serverJvmArguments != null) {
+			for (String argument : serverJvmArguments.trim().split("\\s+")) {
+				if (argument.length() > 0) {
+					arguments.add(argument);
+				}
+			}
+		}
+		return arguments;
+	}
+
+	/**
+	 * Determines whether or not the server process is restarted when it exits
+	 * with a non-zero exit code.
+	 *
+	 * @return <code>true</code> if a crashed server process is restarted;
+	 * <code>false</code> otherwise
+	 */
+	public boolean isServerRestart() {
+		return serverRestart;
+	}
+
+	/**
+	 * Gets the number of milliseconds to wait before restarting a crashed
+	 * server process for the first time.  The delay doubles after each
+	 * consecutive crash.
+	 *
+	 * @return the initial restart delay in milliseconds
+	 */
+	public long getServerRestartMinimumDelay() {
+		return serverRestartMinimumDelay;
+	}
+
+	/**
+	 * Gets the largest number of milliseconds to wait before restarting a
+	 * crashed server process.
+	 *
+	 * @return the maximum restart delay in milliseconds
+	 */
+	public long getServerRestartMaximumDelay() {
+		return serverRestartMaximumDelay;
+	}
+
+	/**
+	 * Gets the number of milliseconds a server process must run before a crash
+	 * is no longer considered consecutive with the previous one, which resets
+	 * the restart delay to its minimum.
+	 *
+	 * @return the time after which the restart delay is reset in milliseconds
+	 */
+	public long getServerRestartResetTime() {
+		return serverRestartResetTime;
+	}
+
+	/**
+	 * Gets the number of milliseconds the server process is given to stop
+	 * gracefully when the wrapper shuts down, before it is destroyed.
+	 *
+	 * @return the stop timeout in milliseconds
+	 */
+	public long getServerStopTimeout() {
+		return serverStopTimeout;
+	}
+
+	/**
+	 * Gets the file in which facts about the server file, such as the name of
+	 * its main class, are cached between runs, so that the server jar does not
+	 * have to be opened before the server starts.  If this value is
+	 * <code>null</code>, then nothing is cached.
+	 *
+	 * @return the server cache file
+	 */
+	public File getServerCacheFile() {
+		return serverCacheFile;
+	}
+
+	/**
+	 * Gets the class data sharing archive used to speed up the start of the
+	 * server process.  The archive is created when the server process exits,
+	 * and is recreated whenever the server file changes.  This requires the
+	 * server process to run on Java 13 or later.  If this value is
+	 * <code>null</code>, then no archive is used.
+	 *
+	 * @return the server's class data sharing archive
+	 */
+	public File getServerSharedArchiveFile() {
+		return serverSharedArchiveFile;
+	}
+
+	/**
+	 * Gets the number of milliseconds between checks of the external
+	 * properties file for changes while its directory cannot be watched.
+	 * Otherwise, the file is reloaded as soon as it changes.  Valid changes are
+	 * applied without restarting the wrapper.  If this value is not positive,
+	 * then the external properties file is not watched.
+	 *
+	 * @return the reload interval in milliseconds
+	 */
+	public long getPropertiesReloadInterval() {
+		return propertiesReloadInterval;
+	}
+
+	/**
+	 * Gets the number of milliseconds between scans of the script directory
+	 * while it cannot be watched for added, removed and changed scripts, such
+	 * as when it does not exist yet.  Otherwise, the directory is rescanned as
+	 * soon as a script changes.  If this value is not positive, then the
+	 * script directory is only scanned when the wrapper starts, or when the
+	 * script directory changes.
+	 *
+	 * @return the scan interval in milliseconds
+	 */
+	public long getScriptScanInterval() {
+		return scriptScanInterval;
+	}
+
+	/**
+	 * Gets the cost of scripts each player regains the right to run every
+	 * minute.  The cost of a script is declared in its header, and defaults
+	 * to 1.
+	 *
+	 * @return the cost each player regains per minute
+	 */
+	public int getPlayerScriptRate() {
+		return playerScriptRate;
+	}
+
+	/**
+	 * Gets the largest cost of scripts a player may run in quick succession,
+	 * after not running any scripts for a while.  If this value is not
+	 * positive, then players are not limited by rate.
+	 *
+	 * @return the burst of cost each player may run
+	 */
+	public int getPlayerScriptBurst() {
+		return playerScriptBurst;
+	}
+
+	/**
+	 * Gets the number of scripts each player may have waiting or running at
+	 * once.  If this value is not positive, then there is no limit.
+	 *
+	 * @return the number of scripts each player may have at once
+	 */
+	public int getPlayerScriptConcurrency() {
+		return playerScriptConcurrency;
+	}
+
+	/**
+	 * Gets the total cost of the scripts which every player together may have
+	 * waiting or running at once.  If this value is not positive, then there
+	 * is no limit.
+	 *
+	 * @return the total cost of scripts players may have at once
+	 */
+	public int getScriptCostCeiling() {
+		return scriptCostCeiling;
+	}
+
+	/**
+	 * Gets the number of players whose script limits are remembered.  The
+	 * least recently active players are forgotten first.
+	 *
+	 * @return the number of players remembered
+	 */
+	public int getPlayerStateCapacity() {
+		return playerStateCapacity;
+	}
+
+	/**
+	 * Gets the number of milliseconds a script may run before it is
+	 * interrupted.
+	 *
+	 * @return the wall-clock time limit of a script, or zero if it is unlimited
+	 */
+	public long getScriptTimeLimit() {
+		return scriptTimeLimit;
+	}
+
+	/**
+	 * Gets the number of milliseconds of CPU time a script may use before it
+	 * is interrupted.  The CPU time of virtual threads is not measured, so
+	 * this limit does not apply when scripts run on virtual threads.
+	 *
+	 * @return the CPU time limit of a script, or zero if it is unlimited
+	 */
+	public long getScriptCpuTimeLimit() {
+		return scriptCpuTimeLimit;
+	}
+
+	/**
+	 * Gets the number of milliseconds between checks of the running scripts
+	 * against their time limits.
+	 *
+	 * @return the interval between checks of the running scripts
+	 */
+	public long getScriptWatchdogInterval() {
+		return scriptWatchdogInterval;
+	}
+
 	/**
 	 * Gets the <code>Charset</code> derived from the value of the
 	 * <code>characterEncoding</code> property.  If property value is
@@ -0,0 +1,210 @@
+package com.faulch.minecraft.serverwrapper.admission;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether scripts triggered by players may run, so that no single
+ * player can flood the server by triggering expensive scripts over and over.
+ * Every script has a cost, and three limits are enforced before it is queued:
+ * <ul>
+ * <li>Each player has a token bucket, which holds up to a burst of cost, and
+ * refills at a steady rate.  A script is only admitted if its cost can be
+ * taken from the bucket.</li>
+ * <li>Each player may only have a limited number of scripts queued or running
+ * at once.</li>
+ * <li>The total cost of the scripts queued or running for every player may
+ * not exceed a global ceiling.</li>
+ * </ul>
+ * The state of each player is kept in a map ordered by last use, and the least
+ * recently used idle players are forgotten once the map reaches its capacity,
+ * so that thousands of distinct names cannot grow the heap without limit.
+ * Players with scripts still queued or running are never forgotten, so the map
+ * may briefly exceed its capacity while every remembered player is busy.  A limit which is
+ * not positive is not enforced.
+ *
+ * @author Jonathan Faulch
+ */
+public class AdmissionController {
+
+	private final double tokensPerNano;
+	private final int burst;
+	private final int concurrency;
+	private final int ceiling;
+	private final int capacity;
+	private final Map<String, PlayerState> players;
+	private int totalCost;
+
+	/**
+	 * Creates an <code>AdmissionController</code> with no players.
+	 *
+	 * @param rate        the cost each player's bucket regains per minute
+	 * @param burst       the largest cost each player's bucket can hold
+	 * @param concurrency the number of scripts each player may have queued or running
+	 * @param ceiling     the total cost of scripts which may be queued or running for
+	 *                    every player
+	 * @param capacity    the number of players whose state is remembered
+	 */
+	public AdmissionController(int rate, int burst, int concurrency, int ceiling, int capacity) {
+		this.tokensPerNano = rate / (double) TimeUnit.MINUTES.toNanos(1);
+		this.burst = burst;
+		this.concurrency = concurrency;
+		this.ceiling = ceiling;
+		this.capacity = Math.max(capacity, 1);
+		players = new LinkedHashMap<String, PlayerState>(16, 0.75f, true);
+	}
+
+	/**
+	 * Admits a script triggered by a player, reserving its cost until the
+	 * returned permit is released.  A script costing more than a player's
+	 * burst, or more than the global ceiling, is admitted when the bucket is
+	 * full, or when no other scripts are running, respectively.
+	 *
+	 * @param name the name of the player
+	 * @param cost the cost of the script
+	 * @return the permit which must be released once the script has finished,
+	 * or has been rejected by the executor
+	 * @throws AdmissionException if the script may not run now
+	 */
+	public synchronized Permit acquire(String name, int cost) throws AdmissionException {
+		cost = Math.max(cost, 0);
+		PlayerState player = players.get(name);
+		if (player == null) {
+			evictIdlePlayers(capacity - 1);
+			players.put(name, player = new PlayerState(burst));
+		}
+
+		long now = System.nanoTime();
+		double bucketCost = Math.min(cost, burst);
+		if (burst > 0) {
+			player.tokens = Math.min(burst, player.tokens + (now - player.lastRefill) * tokensPerNano);
+			player.lastRefill = now;
+			if (player.tokens < bucketCost) {
+				long waitSeconds = tokensPerNano > 0
+						? (long) Math.ceil((bucketCost - player.tokens) / tokensPerNano / TimeUnit.SECONDS.toNanos(1))
+						: -1;
+				throw new AdmissionException(waitSeconds < 0
+						? "You may not run any more scripts."
+						: "You are running scripts too quickly, try again in " + waitSeconds + (waitSeconds == 1 ? " second." : " seconds."));
+			}
+		}
+		if (concurrency > 0 && player.running >= concurrency) {
+			throw new AdmissionException("You already have " + player.running + " scripts waiting or running.");
+		}
+		if (ceiling > 0 && totalCost > 0 && totalCost + cost > ceiling) {
+			throw new AdmissionException("The server is busy running scripts, try again shortly.");
+		}
+
+		if (burst > 0) {
+			player.tokens -= bucketCost;
+		}
+		player.running++;
+		totalCost += cost;
+		return new Permit(player, cost);
+	}
+
+	/**
+	 * Forgets the least recently used players without scripts queued or
+	 * running, until no more than a number of players are remembered or every
+	 * remaining player is busy.
+	 *
+	 * @param size the number of players which may be remembered
+	 */
+	private void evictIdlePlayers(int size) {
+		Iterator<PlayerState> iterator = players.values().iterator();
+		while (players.size() > size && iterator.hasNext()) {
+			if (iterator.next().running == 0) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Gets the total cost of the scripts which are queued or running.
+	 *
+	 * @return the total cost of the admitted scripts
+	 */
+	public synchronized int getTotalCost() {
+		return totalCost;
+	}
+
+	/**
+	 * Gets the number of players whose state is currently remembered.
+	 *
+	 * @return the number of remembered players
+	 */
+	public synchronized int getPlayerCount() {
+		return players.size();
+	}
+
+	/**
+	 * Returns the cost of a finished script.
+	 *
+	 * @param player the state of the player who triggered the script
+	 * @param cost   the cost of the script
+	 */
+	private synchronized void release(PlayerState player, int cost) {
+		player.running--;
+		totalCost -= cost;
+	}
+
+	/**
+	 * The reservation of an admitted script, which must be released once the
+	 * script has finished.  Releasing a permit more than once has no further
+	 * effect.
+	 */
+	public class Permit {
+
+		private final PlayerState player;
+		private final int cost;
+		private boolean released;
+
+		/**
+		 * Creates a <code>Permit</code> for a script.
+		 *
+		 * @param player the state of the player who triggered the script
+		 * @param cost   the cost of the script
+		 */
+		private Permit(PlayerState player, int cost) {
+			this.player = player;
+			this.cost = cost;
+		}
+
+		/**
+		 * Releases the cost and concurrency reserved by this permit.
+		 */
+		public void release() {
+			synchronized (AdmissionController.this) {
+				if (!released) {
+					released = true;
+					AdmissionController.this.release(player, cost);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * The token bucket and running script count of a single player.
+	 */
+	private static class PlayerState {
+
+		private double tokens;
+		private long lastRefill;
+		private int running;
+
+		/**
+		 * Creates a <code>PlayerState</code> with a full bucket.
+		 *
+		 * @param tokens the size of the bucket
+		 */
+		private PlayerState(int tokens) {
+			this.tokens = tokens;
+			lastRefill = System.nanoTime();
+		}
+
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.faulch.minecraft.serverwrapper.admission;
+
+/**
+ * Thrown when a script is not admitted to run, because its invoker has run
+ * too many scripts recently, already has too many scripts running, or because
+ * too many scripts are running altogether.  The message is suitable for
+ * showing to the invoker.
+ *
+ * @author Jonathan Faulch
+ */
+public class AdmissionException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates an <code>AdmissionException</code> with a message explaining
+	 * why the script was not admitted.
+	 *
+	 * @param message the reason the script was not admitted
+	 */
+	public AdmissionException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.faulch.minecraft.serverwrapper.command;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Provides the metadata of a command handler from values passed to its
+ * constructor, as a convenience for subclasses.  Since handlers are created
+ * by <code>ServiceLoader</code>, a subclass must have a public constructor
+ * without parameters, which passes its metadata to this class.
+ *
+ * @author Jonathan Faulch
+ */
+public abstract class AbstractCommandHandler implements CommandHandler {
+
+	private final String name;
+	private final String usage;
+	private final int cost;
+	private final List<String> aliases;
+
+	/**
+	 * Creates an <code>AbstractCommandHandler</code> with a cost of 1.
+	 *
+	 * @param name    the name which invokes the handler
+	 * @param usage   the arguments the handler expects, or <code>null</code> if
+	 *                they are not declared
+	 * @param aliases the other names which invoke the handler
+	 */
+	public AbstractCommandHandler(String name, String usage, String... aliases) {
+		this(name, usage, 1, aliases);
+	}
+
+	/**
+	 * Creates an <code>AbstractCommandHandler</code>.
+	 *
+	 * @param name    the name which invokes the handler
+	 * @param usage   the arguments the handler expects, or <code>null</code> if
+	 *                they are not declared
+	 * @param cost    the weight of the handler when limiting how many commands
+	 *                players may run
+	 * @param aliases the other names which invoke the handler
+	 */
+	public AbstractCommandHandler(String name, String usage, int cost, String... aliases) {
+		this.name = name;
+		this.usage = usage;
+		this.cost = cost;
+		this.aliases = Collections.unmodifiableList(Arrays.asList(aliases.clone()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * This is the name passed to the constructor.
+	 */
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * These are the aliases passed to the constructor.
+	 */
+	@Override
+	public List<String> getAliases() {
+		return aliases;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * This is the usage passed to the constructor.
+	 */
+	@Override
+	public String getUsage() {
+		return usage;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * This is the cost passed to the constructor, or 1 if none was.
+	 */
+	@Override
+	public int getCost() {
+		return cost;
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.faulch.minecraft.serverwrapper.command;
+
+import com.faulch.minecraft.serverwrapper.Console;
+import com.faulch.minecraft.serverwrapper.invoker.Invoker;
+
+import java.util.List;
+
+/**
+ * A command written in Java, which runs without going through a script
+ * engine.  Handlers are discovered with <code>ServiceLoader</code> from the
+ * jars in the library directory, by listing their class names in
+ * <code>META-INF/services/com.faulch.minecraft.serverwrapper.command.CommandHandler</code>,
+ * and are looked up by name before scripts.  A single instance of each
+ * handler serves every invocation, possibly on several threads at once, so
+ * handlers should keep no state between invocations.
+ *
+ * @author Jonathan Faulch
+ * @see AbstractCommandHandler
+ */
+public interface CommandHandler {
+
+	/**
+	 * Gets the name which invokes this handler.
+	 *
+	 * @return the name of this handler
+	 */
+	String getName();
+
+	/**
+	 * Gets the other names which invoke this handler.
+	 *
+	 * @return the aliases of this handler, which may be empty
+	 */
+	List<String> getAliases();
+
+	/**
+	 * Gets the arguments this handler expects, which are shown by
+	 * <code>help</code>.
+	 *
+	 * @return the usage of this handler, or <code>null</code> if it is not
+	 * declared
+	 */
+	String getUsage();
+
+	/**
+	 * Gets the weight of this handler when limiting how many commands players
+	 * may run, in the same units as a script's <code>@cost</code>.
+	 *
+	 * @return the cost of this handler
+	 */
+	int getCost();
+
+	/**
+	 * Runs the command.
+	 *
+	 * @param invoker the invoker of the command
+	 * @param args    the words of the command, starting with the name it was
+	 *                invoked by, exactly as a script receives them
+	 * @param console the console the command was issued to
+	 * @throws Exception if the command failed, in which case the message of the
+	 *                   exception is shown to the invoker
+	 */
+	void execute(Invoker invoker, String[] args, Console console) throws Exception;
+
+}
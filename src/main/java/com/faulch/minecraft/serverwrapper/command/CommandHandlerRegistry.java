@@ -0,0 +1,135 @@
+package com.faulch.minecraft.serverwrapper.command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Discovers the command handlers available to a class loader, and indexes
+ * them by name and alias.  A handler which cannot be loaded is reported and
+ * skipped, so that one broken jar does not disable the rest.  When two
+ * handlers share a name, the first one found is kept, and an alias never
+ * hides the name of another handler.  Discovering the handlers opens every
+ * jar in the library directory, so it is done on a background thread, and the
+ * first lookup waits for it to finish.
+ *
+ * @author Jonathan Faulch
+ */
+public class CommandHandlerRegistry {
+
+	private final FutureTask<Void> loader;
+	private volatile Map<String, CommandHandler> commands;
+	private volatile List<CommandHandler> handlers;
+
+	/**
+	 * Creates a <code>CommandHandlerRegistry</code>, and starts discovering
+	 * every handler which the class loader provides on a background thread.
+	 *
+	 * @param classLoader the class loader used to discover the handlers
+	 */
+	public CommandHandlerRegistry(final ClassLoader classLoader) {
+		commands = Collections.emptyMap();
+		handlers = Collections.emptyList();
+		loader = new FutureTask<Void>(new Runnable() {
+			@Override
+			public void run() {
+				load(classLoader);
+			}
+		}, null);
+		Thread loaderThread = new Thread(loader, "Command-Handler-Loader");
+		loaderThread.setDaemon(true);
+		loaderThread.start();
+	}
+
+	/**
+	 * Discovers every handler which the class loader provides, and publishes
+	 * the index of their names and aliases.
+	 *
+	 * @param classLoader the class loader used to discover the handlers
+	 */
+	private void load(ClassLoader classLoader) {
+		Map<String, CommandHandler> commands = new HashMap<String, CommandHandler>();
+		List<CommandHandler> loaded = new ArrayList<CommandHandler>();
+		try {
+			Iterator<CommandHandler> iterator = ServiceLoader.load(CommandHandler.class, classLoader).iterator();
+			while (iterator.hasNext()) {
+				try {
+					CommandHandler handler = iterator.next();
+					if (commands.containsKey(handler.getName())) {
+						System.err.println("The command handler " + handler.getClass().getName() + " was ignored, because another handler is named "
+								+ handler.getName() + ".");
+						continue;
+					}
+					commands.put(handler.getName(), handler);
+					loaded.add(handler);
+				} catch (ServiceConfigurationError e) {
+					e.printStackTrace();
+				}
+			}
+		} catch (ServiceConfigurationError e) {
+			e.printStackTrace();
+		}
+		for (CommandHandler handler : loaded) {
+			for (String alias : handler.getAliases()) {
+				if (!commands.containsKey(alias)) {
+					commands.put(alias, handler);
+				}
+			}
+		}
+		Collections.sort(loaded, new Comparator<CommandHandler>() {
+			@Override
+			public int compare(CommandHandler handler1, CommandHandler handler2) {
+				return handler1.getName().compareTo(handler2.getName());
+			}
+		});
+		this.commands = commands;
+		handlers = Collections.unmodifiableList(loaded);
+	}
+
+	/**
+	 * Waits for the handlers to be discovered.  If the current thread is
+	 * interrupted while waiting, then the interrupt is preserved, and no
+	 * handlers are found until they have been discovered.
+	 */
+	private void awaitLoad() {
+		try {
+			loader.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Gets the handler invoked by a command name, which is either the name of
+	 * the handler or one of its aliases.
+	 *
+	 * @param command the command name
+	 * @return the handler invoked by the command, or <code>null</code> if no
+	 * handler has that name or alias
+	 */
+	public CommandHandler get(String command) {
+		awaitLoad();
+		return commands.get(command);
+	}
+
+	/**
+	 * Gets every handler, sorted by name.
+	 *
+	 * @return an unmodifiable list of the handlers
+	 */
+	public List<CommandHandler> getHandlers() {
+		awaitLoad();
+		return handlers;
+	}
+
+}
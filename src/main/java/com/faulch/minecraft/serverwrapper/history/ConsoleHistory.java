@@ -0,0 +1,562 @@
+package com.faulch.minecraft.serverwrapper.history;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A bounded history of recent console lines, which can be searched by the
+ * words they contain.  Lines are stored off the heap, in a ring of fixed size
+ * slots within a direct buffer, so the history never grows the heap no matter
+ * how many lines it retains, and the oldest line is overwritten once the ring
+ * is full.  The buffers start small, and double as lines are recorded until
+ * they reach the capacity of the history, so that a large history costs
+ * nothing at startup, and only costs its full size once it has filled.
+ * <p>
+ * Each line is also indexed by up to eight of the words following its log
+ * header, such as player names and chat words.  Words are hashed into
+ * buckets, and each bucket holds the sequence number of the newest line
+ * containing a word in that bucket.  Every line stores, next to each of its
+ * words, the sequence number of the previous line in the same bucket, so a
+ * search simply follows the chain of the rarest word it is looking for,
+ * newest line first, until it reaches a line which has been overwritten.
+ * Recording a line encodes it into its slot without allocating anything.
+ *
+ * @author Jonathan Faulch
+ */
+public class ConsoleHistory {
+
+	private static final Charset utf8 = Charset.forName("UTF-8");
+
+	private static final int
+			sequenceOffset = 0,
+			timeOffset = 8,
+			lengthOffset = 16,
+			tokenCountOffset = 18,
+			tokensOffset = 19,
+			tokenSize = 12,
+			maximumTokens = 8,
+			textOffset = tokensOffset + maximumTokens * tokenSize,
+			minimumSlotSize = textOffset + 32,
+			maximumSlotSize = textOffset + 0xFFFF,
+			minimumTokenLength = 2,
+			headOffset = 0,
+			bucketSizeOffset = 8,
+			bucketStride = 16;
+
+	/**
+	 * The previous line value of a word which shares its bucket with an
+	 * earlier word in the same line, and so does not link to another line.
+	 */
+	private static final long noLink = -2;
+
+	private static final int fnvOffset = 0x811C9DC5;
+	private static final int fnvPrime = 0x01000193;
+
+	/**
+	 * The number of lines the buffers initially have room for.
+	 */
+	private static final int initialLines = 1024;
+
+	private final int capacity;
+	private final int slotSize;
+	private final byte[] scratch;
+	private ByteBuffer slots;
+	private ByteBuffer buckets;
+	private int bucketMask;
+	private int allocatedLines;
+	private long nextSequence;
+
+	/**
+	 * Creates an empty <code>ConsoleHistory</code>, with room for a small
+	 * number of lines.
+	 *
+	 * @param capacity the number of lines retained
+	 * @param slotSize the number of bytes used to store each line, including its
+	 *                 index entries; longer lines are truncated
+	 */
+	public ConsoleHistory(int capacity, int slotSize) {
+		this.capacity = Math.max(capacity, 1);
+		this.slotSize = Math.min(Math.max(slotSize, minimumSlotSize), maximumSlotSize);
+		if ((long) this.capacity * this.slotSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A history of " + capacity + " lines of " + slotSize + " bytes is too large.");
+		}
+		scratch = new byte[this.slotSize - textOffset];
+		allocate(Math.min(this.capacity, initialLines));
+	}
+
+	/**
+	 * Allocates buffers with room for more lines, copies the recorded lines
+	 * into them, and rebuilds the word index with as many buckets as suit the
+	 * new number of lines.  This is only done before the ring first wraps, so
+	 * every recorded line is still in the slot matching its sequence number.
+	 *
+	 * @param lines the number of lines the new buffers have room for
+	 */
+	private void allocate(int lines) {
+		ByteBuffer previousSlots = slots;
+		slots = ByteBuffer.allocateDirect(lines * slotSize);
+		if (previousSlots != null) {
+			previousSlots.clear();
+			slots.put(previousSlots);
+		}
+		allocatedLines = lines;
+
+		int bucketCount = Integer.highestOneBit(Math.min(lines, 1 << 24) * 2 - 1) * 2;
+		buckets = ByteBuffer.allocateDirect(bucketCount * bucketStride);
+		bucketMask = bucketCount - 1;
+		for (int i = 0; i < bucketCount; i++) {
+			setHead(i, -1);
+		}
+		for (long sequence = 0; sequence < nextSequence; sequence++) {
+			int base = slot(sequence);
+			int tokenCount = slots.get(base + tokenCountOffset);
+			for (int i = 0; i < tokenCount; i++) {
+				link(base, i, sequence);
+			}
+		}
+	}
+
+	/**
+	 * Records a line, overwriting the oldest line if the history is full.
+	 * Empty lines are ignored.
+	 *
+	 * @param line the line to record
+	 */
+	public synchronized void record(CharSequence line) {
+		if (line.length() == 0) {
+			return;
+		}
+		if (nextSequence == allocatedLines && allocatedLines < capacity) {
+			allocate((int) Math.min((long) allocatedLines * 2, capacity));
+		}
+		long sequence = nextSequence++;
+		int base = slot(sequence);
+		if (sequence >= capacity) {
+			evict(base);
+		}
+		slots.putLong(base + sequenceOffset, sequence);
+		slots.putLong(base + timeOffset, System.currentTimeMillis());
+		int length = encode(line);
+		slots.putShort(base + lengthOffset, (short) length);
+		slots.position(base + textOffset);
+		slots.put(scratch, 0, length);
+
+		int tokenCount = 0;
+		int hash = fnvOffset;
+		int tokenLength = 0;
+		for (int i = messageStart(line); i <= line.length() && tokenCount < maximumTokens; i++) {
+			char c = i < line.length() ? line.charAt(i) : ' ';
+			if (isTokenCharacter(c)) {
+				hash = (hash ^ Character.toLowerCase(c)) * fnvPrime;
+				tokenLength++;
+			} else {
+				if (tokenLength >= minimumTokenLength) {
+					tokenCount = addToken(base, tokenCount, hash, sequence);
+				}
+				hash = fnvOffset;
+				tokenLength = 0;
+			}
+		}
+		slots.put(base + tokenCountOffset, (byte) tokenCount);
+	}
+
+	/**
+	 * Finds the most recent lines containing every word in the query,
+	 * ignoring case.  A query with no words matches every line.
+	 *
+	 * @param query the words to search for
+	 * @param limit the maximum number of lines to return
+	 * @return the matching lines, oldest first
+	 */
+	public synchronized List<HistoryEntry> search(String query, int limit) {
+		List<String> words = new ArrayList<String>();
+		int[] hashes = tokenize(query, words);
+		if (hashes.length == 0) {
+			return tail(limit);
+		}
+		int walkedBucket = bucket(hashes[0]);
+		for (int hash : hashes) {
+			if (getBucketSize(bucket(hash)) < getBucketSize(walkedBucket)) {
+				walkedBucket = bucket(hash);
+			}
+		}
+
+		List<HistoryEntry> entries = new ArrayList<HistoryEntry>();
+		long oldest = oldestSequence();
+		long sequence = getHead(walkedBucket);
+		while (sequence >= oldest && entries.size() < limit) {
+			int base = slot(sequence);
+			if (containsHashes(base, hashes)) {
+				HistoryEntry entry = read(base);
+				if (containsWords(entry.getLine(), words)) {
+					entries.add(entry);
+				}
+			}
+			sequence = previous(base, walkedBucket);
+		}
+		Collections.reverse(entries);
+		return entries;
+	}
+
+	/**
+	 * Gets the most recent lines.
+	 *
+	 * @param count the maximum number of lines to return
+	 * @return the most recent lines, oldest first
+	 */
+	public synchronized List<HistoryEntry> tail(int count) {
+		long start = Math.max(oldestSequence(), nextSequence - Math.max(count, 0));
+		List<HistoryEntry> entries = new ArrayList<HistoryEntry>((int) (nextSequence - start));
+		for (long sequence = start; sequence < nextSequence; sequence++) {
+			entries.add(read(slot(sequence)));
+		}
+		return entries;
+	}
+
+	/**
+	 * Gets the number of lines currently retained.
+	 *
+	 * @return the number of lines retained
+	 */
+	public synchronized int size() {
+		return (int) (nextSequence - oldestSequence());
+	}
+
+	/**
+	 * Gets the sequence number of the oldest line which has not been
+	 * overwritten.
+	 *
+	 * @return the sequence number of the oldest retained line
+	 */
+	private long oldestSequence() {
+		return Math.max(nextSequence - capacity, 0);
+	}
+
+	/**
+	 * Gets the position of the slot which stores a line.
+	 *
+	 * @param sequence the sequence number of the line
+	 * @return the position of the line's slot in the buffer
+	 */
+	private int slot(long sequence) {
+		return (int) (sequence % capacity) * slotSize;
+	}
+
+	/**
+	 * Gets the bucket which a word hash is indexed in.
+	 *
+	 * @param hash the hash of a word
+	 * @return the bucket of the word
+	 */
+	private int bucket(int hash) {
+		return (hash ^ (hash >>> 16)) & bucketMask;
+	}
+
+	/**
+	 * Gets the sequence number of the newest line in a bucket.
+	 *
+	 * @param bucket the bucket
+	 * @return the sequence number of the newest line, or -1 if there is none
+	 */
+	private long getHead(int bucket) {
+		return buckets.getLong(bucket * bucketStride + headOffset);
+	}
+
+	/**
+	 * Sets the sequence number of the newest line in a bucket.
+	 *
+	 * @param bucket   the bucket
+	 * @param sequence the sequence number of the newest line
+	 */
+	private void setHead(int bucket, long sequence) {
+		buckets.putLong(bucket * bucketStride + headOffset, sequence);
+	}
+
+	/**
+	 * Gets the number of retained lines linked into a bucket.  The size is
+	 * stored beside the head of the bucket, so updating both touches a single
+	 * cache line.
+	 *
+	 * @param bucket the bucket
+	 * @return the number of retained lines in the bucket
+	 */
+	private int getBucketSize(int bucket) {
+		return buckets.getInt(bucket * bucketStride + bucketSizeOffset);
+	}
+
+	/**
+	 * Sets the number of retained lines linked into a bucket.
+	 *
+	 * @param bucket the bucket
+	 * @param size   the number of retained lines in the bucket
+	 */
+	private void setBucketSize(int bucket, int size) {
+		buckets.putInt(bucket * bucketStride + bucketSizeOffset, size);
+	}
+
+	/**
+	 * Removes the line stored in a slot from the bucket sizes, before the slot
+	 * is overwritten.  The chains through the slot do not need to be updated,
+	 * since a search stops at the first line which has been overwritten.
+	 *
+	 * @param base the position of the slot
+	 */
+	private void evict(int base) {
+		int tokenCount = slots.get(base + tokenCountOffset);
+		for (int i = 0; i < tokenCount; i++) {
+			int token = base + tokensOffset + i * tokenSize;
+			if (slots.getLong(token + 4) != noLink) {
+				int bucket = bucket(slots.getInt(token));
+				setBucketSize(bucket, getBucketSize(bucket) - 1);
+			}
+		}
+	}
+
+	/**
+	 * Adds a word to the index entries of a line, unless the line already
+	 * contains it.  Only the first word of a line in each bucket links the
+	 * line into that bucket's chain.
+	 *
+	 * @param base       the position of the line's slot
+	 * @param tokenCount the number of words already in the line's index entries
+	 * @param hash       the hash of the word
+	 * @param sequence   the sequence number of the line
+	 * @return the new number of words in the line's index entries
+	 */
+	private int addToken(int base, int tokenCount, int hash, long sequence) {
+		for (int i = 0; i < tokenCount; i++) {
+			if (slots.getInt(base + tokensOffset + i * tokenSize) == hash) {
+				return tokenCount;
+			}
+		}
+		slots.putInt(base + tokensOffset + tokenCount * tokenSize, hash);
+		link(base, tokenCount, sequence);
+		return tokenCount + 1;
+	}
+
+	/**
+	 * Links a word of a line into the chain of its bucket, unless an earlier
+	 * word of the same line is in the same bucket.
+	 *
+	 * @param base     the position of the line's slot
+	 * @param index    the position of the word in the line's index entries
+	 * @param sequence the sequence number of the line
+	 */
+	private void link(int base, int index, long sequence) {
+		int token = base + tokensOffset + index * tokenSize;
+		int bucket = bucket(slots.getInt(token));
+		for (int i = 0; i < index; i++) {
+			if (bucket(slots.getInt(base + tokensOffset + i * tokenSize)) == bucket) {
+				slots.putLong(token + 4, noLink);
+				return;
+			}
+		}
+		slots.putLong(token + 4, getHead(bucket));
+		setHead(bucket, sequence);
+		setBucketSize(bucket, getBucketSize(bucket) + 1);
+	}
+
+	/**
+	 * Gets the sequence number of the previous line in a bucket's chain.
+	 *
+	 * @param base   the position of the current line's slot
+	 * @param bucket the bucket being followed
+	 * @return the sequence number of the previous line, or -1 if there is none
+	 */
+	private long previous(int base, int bucket) {
+		int tokenCount = slots.get(base + tokenCountOffset);
+		for (int i = 0; i < tokenCount; i++) {
+			int token = base + tokensOffset + i * tokenSize;
+			long previous = slots.getLong(token + 4);
+			if (previous != noLink && bucket(slots.getInt(token)) == bucket) {
+				return previous;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Determines whether or not a line's index entries contain every one of
+	 * the supplied word hashes.
+	 *
+	 * @param base   the position of the line's slot
+	 * @param hashes the word hashes
+	 * @return <code>true</code> if the line contains every hash;
+	 * <code>false</code> otherwise
+	 */
+	private boolean containsHashes(int base, int[] hashes) {
+		int tokenCount = slots.get(base + tokenCountOffset);
+		for (int hash : hashes) {
+			boolean found = false;
+			for (int i = 0; i < tokenCount && !found; i++) {
+				found = slots.getInt(base + tokensOffset + i * tokenSize) == hash;
+			}
+			if (!found) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Determines whether or not a line contains every one of the supplied
+	 * lower case words, which guards against hash collisions.
+	 *
+	 * @param line  the line
+	 * @param words the lower case words
+	 * @return <code>true</code> if the line contains every word;
+	 * <code>false</code> otherwise
+	 */
+	private static boolean containsWords(String line, List<String> words) {
+		String lowerCaseLine = toLowerCase(line);
+		for (String word : words) {
+			if (!lowerCaseLine.contains(word)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the line stored in a slot.
+	 *
+	 * @param base the position of the slot
+	 * @return the line stored in the slot
+	 */
+	private HistoryEntry read(int base) {
+		byte[] bytes = new byte[slots.getShort(base + lengthOffset) & 0xFFFF];
+		slots.position(base + textOffset);
+		slots.get(bytes);
+		return new HistoryEntry(slots.getLong(base + timeOffset), new String(bytes, utf8));
+	}
+
+	/**
+	 * Encodes a line as UTF-8 into the reusable scratch array, stopping before
+	 * the first character which does not fit.  The scratch array is then
+	 * copied into the line's slot in bulk, which is much faster than writing
+	 * the direct buffer one byte at a time.
+	 *
+	 * @param line the line to encode
+	 * @return the number of bytes written to the scratch array
+	 */
+	private int encode(CharSequence line) {
+		int length = 0;
+		for (int i = 0; i < line.length(); i++) {
+			int c = line.charAt(i);
+			if (Character.isHighSurrogate((char) c) && i + 1 < line.length() && Character.isLowSurrogate(line.charAt(i + 1))) {
+				c = Character.toCodePoint((char) c, line.charAt(++i));
+			} else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+				c = '?';
+			}
+			if (c < 0x80) {
+				if (length + 1 > scratch.length) {
+					break;
+				}
+				scratch[length++] = (byte) c;
+			} else if (c < 0x800) {
+				if (length + 2 > scratch.length) {
+					break;
+				}
+				scratch[length++] = (byte) (0xC0 | (c >> 6));
+				scratch[length++] = (byte) (0x80 | (c & 0x3F));
+			} else if (c < 0x10000) {
+				if (length + 3 > scratch.length) {
+					break;
+				}
+				scratch[length++] = (byte) (0xE0 | (c >> 12));
+				scratch[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				scratch[length++] = (byte) (0x80 | (c & 0x3F));
+			} else {
+				if (length + 4 > scratch.length) {
+					break;
+				}
+				scratch[length++] = (byte) (0xF0 | (c >> 18));
+				scratch[length++] = (byte) (0x80 | ((c >> 12) & 0x3F));
+				scratch[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				scratch[length++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Hashes the words of a query, in the same way as the words of a line.
+	 *
+	 * @param query the query
+	 * @param words receives the distinct lower case words of the query
+	 * @return the distinct hashes of the query's words
+	 */
+	private static int[] tokenize(String query, List<String> words) {
+		List<Integer> hashes = new ArrayList<Integer>();
+		int hash = fnvOffset;
+		int start = 0;
+		for (int i = 0; i <= query.length(); i++) {
+			char c = i < query.length() ? query.charAt(i) : ' ';
+			if (isTokenCharacter(c)) {
+				hash = (hash ^ Character.toLowerCase(c)) * fnvPrime;
+			} else {
+				if (i - start >= minimumTokenLength && !hashes.contains(hash)) {
+					hashes.add(hash);
+					words.add(toLowerCase(query.substring(start, i)));
+				}
+				hash = fnvOffset;
+				start = i + 1;
+			}
+		}
+		int[] result = new int[hashes.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = hashes.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Converts a string to lower case one character at a time, in the same
+	 * way that words are hashed.
+	 *
+	 * @param text the string
+	 * @return the lower case string
+	 */
+	private static String toLowerCase(String text) {
+		char[] chars = new char[text.length()];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(text.charAt(i));
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Determines whether or not a character is part of a word.
+	 *
+	 * @param c the character
+	 * @return <code>true</code> if the character is a letter, digit, or
+	 * underscore; <code>false</code> otherwise
+	 */
+	private static boolean isTokenCharacter(char c) {
+		return Character.isLetterOrDigit(c) || c == '_';
+	}
+
+	/**
+	 * Finds the start of the message following a log header, so that the
+	 * words of the header, which appear in nearly every line, are not indexed.
+	 *
+	 * @param line the line
+	 * @return the position following the first "]: ", or zero if the line does
+	 * not start with a log header
+	 */
+	private static int messageStart(CharSequence line) {
+		if (line.charAt(0) != '[') {
+			return 0;
+		}
+		for (int i = 1; i + 2 < line.length(); i++) {
+			if (line.charAt(i) == ']' && line.charAt(i + 1) == ':' && line.charAt(i + 2) == ' ') {
+				return i + 3;
+			}
+		}
+		return 0;
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.faulch.minecraft.serverwrapper.history;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * A line of console output retrieved from the <code>ConsoleHistory</code>,
+ * along with the time it was written.
+ *
+ * @author Jonathan Faulch
+ */
+public class HistoryEntry {
+
+	private final long time;
+	private final String line;
+
+	/**
+	 * Creates a <code>HistoryEntry</code>.
+	 *
+	 * @param time the time the line was written, in milliseconds since the epoch
+	 * @param line the line of text
+	 */
+	public HistoryEntry(long time, String line) {
+		this.time = time;
+		this.line = line;
+	}
+
+	/**
+	 * Gets the time the line was written.
+	 *
+	 * @return the time the line was written, in milliseconds since the epoch
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Gets the line of text.  Lines longer than a history slot are truncated.
+	 *
+	 * @return the line of text
+	 */
+	public String getLine() {
+		return line;
+	}
+
+	/**
+	 * Formats this entry as the date and time it was written, followed by the
+	 * line.
+	 *
+	 * @return the formatted entry
+	 */
+	@Override
+	public String toString() {
+		return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(time)) + " " + line;
+	}
+
+}
@@ -49,7 +49,7 @@ public abstract class AbstractInvoker implements Invoker {
 	 */
 	@Override
 	public String execute(String command) {
-		return console.execute(command);
+		return console.execute(this, command);
 	}
 
 }
@@ -19,6 +19,14 @@ public interface Invoker {
 	 */
 	boolean isServer();
 
+	/**
+	 * Gets the name of this invoker.  Scripts triggered by invokers with the
+	 * same name are run one at a time, in the order they were triggered.
+	 *
+	 * @return the name of this invoker
+	 */
+	String getName();
+
 	/**
 	 * Executes a command originating from this invoker.
 	 *
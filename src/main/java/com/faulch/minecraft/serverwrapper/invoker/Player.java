@@ -1,6 +1,7 @@
 package com.faulch.minecraft.serverwrapper.invoker;
 
 import com.faulch.minecraft.serverwrapper.Console;
+import com.faulch.minecraft.serverwrapper.text.TextComponentWriter;
 
 /**
  * Represents a player which has issued a command to invoke a script.  The
@@ -31,19 +32,21 @@ public class Player extends AbstractInvoker {
 	 *
 	 * @return the name of this player
 	 */
+	@Override
 	public String getName() {
 		return name;
 	}
 
 	/**
 	 * Augments the command supplied, so that it appears to originate from the
-	 * player, and then passes it to the console for execution.
+	 * player, and then passes it to the console for execution.  The command is
+	 * augmented with the compiled execute command template.
 	 *
 	 * @return the command as it was augmented by this player for execution
 	 */
 	@Override
 	public String execute(String command) {
-		return getConsole().execute(String.format(getConsole().getWrapperProperties().getExecuteCommand(), name, command));
+		return getConsole().execute(this, getConsole().getWrapperProperties().getExecuteCommandTemplate().format(name, command));
 	}
 
 	/**
@@ -70,13 +73,14 @@ public class Player extends AbstractInvoker {
 
 	/**
 	 * Sends a chat message to the player which will appear in the given color.
+	 * The message may contain any characters, which are escaped as needed.
 	 *
 	 * @param message the message to send to this player
 	 * @param color   the color that the sent message should appear in
 	 * @return the full text of the tellraw command used to send the message
 	 */
 	public String print(String message, String color) {
-		return tellraw("{\"text\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\",\"color\":\"" + color + "\"}");
+		return tellraw(TextComponentWriter.toJson(message, color));
 	}
 
 	/**
@@ -86,7 +90,44 @@ public class Player extends AbstractInvoker {
 	 * @return the full text of the tellraw command used to send the message
 	 */
 	public String tellraw(String json) {
-		return getConsole().execute("tellraw " + name + " " + json);
+		return getConsole().execute(this, createTellraw(json));
+	}
+
+	/**
+	 * Sends a tellraw message to the player using the components written so
+	 * far by the supplied writer.  Scripts sending styled or clickable messages
+	 * can reuse one writer for every message.
+	 *
+	 * @param writer the writer holding the text components of the message
+	 * @return the full text of the tellraw command used to send the message
+	 */
+	public String tellraw(TextComponentWriter writer) {
+		return tellraw(writer.toJson());
+	}
+
+	/**
+	 * Sends an error message to the player, unless too many commands are
+	 * already waiting to be executed, in which case the message is dropped.
+	 * Unlike <code>printError</code>, this never blocks, so it may be used to
+	 * notify the player from threads which must keep reading the server's
+	 * output.
+	 *
+	 * @param message the error message to send to this player
+	 * @return <code>true</code> if the message was sent; <code>false</code> if
+	 * it was dropped
+	 */
+	public boolean tryPrintError(String message) {
+		return getConsole().tryExecute(this, createTellraw(TextComponentWriter.toJson(message, "red")));
+	}
+
+	/**
+	 * Creates the tellraw command which sends the supplied json to the player.
+	 *
+	 * @param json the json which will be passed to the tellraw command
+	 * @return the full text of the tellraw command
+	 */
+	private String createTellraw(String json) {
+		return "tellraw " + name + " " + json;
 	}
 
 }
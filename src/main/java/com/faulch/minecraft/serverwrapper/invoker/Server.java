@@ -36,6 +36,15 @@ public class Server extends AbstractInvoker {
 		return true;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * A server is always named "Server".
+	 */
+	@Override
+	public String getName() {
+		return "Server";
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * The message is sent to the standard output stream.
@@ -0,0 +1,161 @@
+package com.faulch.minecraft.serverwrapper.io;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces the commands which are injected into standard input, so that a script
+ * producing a large number of commands cannot flood the server, or grow the
+ * heap without limit.  Commands wait in a bounded queue, and a daemon thread
+ * passes them to standard input no faster than the configured rate, and no
+ * faster than the server reads them.  Since standard input holds only one
+ * line, this queue is where waiting commands accumulate.  Once the queue is
+ * full, threads scheduling commands are blocked until there is room, which
+ * slows down the scripts producing them, while threads offering commands have
+ * them dropped instead.
+ *
+ * @author Jonathan Faulch
+ */
+public class CommandScheduler {
+
+	/**
+	 * The length of a server tick in nanoseconds.  After falling behind, the
+	 * scheduler may deliver up to one tick's worth of commands at once.
+	 */
+	private static final long tickNanos = TimeUnit.MILLISECONDS.toNanos(50);
+
+	private final StandardInput standardInput;
+	private final BlockingQueue<FutureTask<String>> commands;
+	private final long intervalNanos;
+
+	/**
+	 * Creates a <code>CommandScheduler</code> and starts the daemon thread
+	 * which delivers commands to standard input.
+	 *
+	 * @param standardInput the standard input which commands are delivered to
+	 * @param capacity      the maximum number of commands waiting to be delivered
+	 * @param rate          the maximum number of commands delivered per second, or zero
+	 *                      if commands should be delivered as fast as possible
+	 */
+	public CommandScheduler(StandardInput standardInput, int capacity, int rate) {
+		this.standardInput = standardInput;
+		commands = new ArrayBlockingQueue<FutureTask<String>>(Math.max(capacity, 1));
+		intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+		startDeliveryThread();
+	}
+
+	/**
+	 * Starts the daemon thread which takes commands from the queue and passes
+	 * them to standard input at the configured rate.
+	 */
+	private void startDeliveryThread() {
+		Thread deliveryThread = new Thread("Command-Scheduler") {
+			@Override
+			public void run() {
+				try {
+					long next = System.nanoTime();
+					while (true) {
+						FutureTask<String> command = commands.take();
+						if (intervalNanos > 0) {
+							long now = System.nanoTime();
+							if (next - now > 0) {
+								TimeUnit.NANOSECONDS.sleep(next - now);
+							} else if (now - next > tickNanos) {
+								next = now - tickNanos;
+							}
+							next += intervalNanos;
+						}
+						command.run();
+					}
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		deliveryThread.setDaemon(true);
+		deliveryThread.start();
+	}
+
+	/**
+	 * Schedules a command to be passed to standard input, blocking while the
+	 * queue of waiting commands is full.
+	 *
+	 * @param command the command to be passed to standard input
+	 * @return a future which completes with the command once it has been passed
+	 * to standard input
+	 * @throws InterruptedException if the current thread is interrupted while waiting for
+	 *                              room in the queue
+	 */
+	public Future<String> schedule(String command) throws InterruptedException {
+		return schedule(command, null);
+	}
+
+	/**
+	 * Schedules a command to be passed to standard input, blocking while the
+	 * queue of waiting commands is full, and runs a callback on the delivery
+	 * thread as soon as the command has been passed to standard input.
+	 *
+	 * @param command   the command to be passed to standard input
+	 * @param delivered the callback run once the command has been passed to standard
+	 *                  input, or <code>null</code> if there is none
+	 * @return a future which completes with the command once it has been passed
+	 * to standard input
+	 * @throws InterruptedException if the current thread is interrupted while waiting for
+	 *                              room in the queue
+	 */
+	public Future<String> schedule(String command, Runnable delivered) throws InterruptedException {
+		FutureTask<String> task = createTask(command, delivered);
+		commands.put(task);
+		return task;
+	}
+
+	/**
+	 * Schedules a command to be passed to standard input, unless the queue of
+	 * waiting commands is full, in which case the command is dropped.  This
+	 * never blocks, so it is safe to call from the threads which read the
+	 * server's output and the console's input.
+	 *
+	 * @param command the command to be passed to standard input
+	 * @return <code>true</code> if the command was scheduled; <code>false</code>
+	 * if it was dropped
+	 */
+	public boolean offer(String command) {
+		return commands.offer(createTask(command, null));
+	}
+
+	/**
+	 * Creates the task which passes a command to standard input, and then runs
+	 * its callback.
+	 *
+	 * @param command   the command to be passed to standard input
+	 * @param delivered the callback run once the command has been passed to standard
+	 *                  input, or <code>null</code> if there is none
+	 * @return the task which delivers the command
+	 */
+	private FutureTask<String> createTask(final String command, final Runnable delivered) {
+		return new FutureTask<String>(new Callable<String>() {
+			@Override
+			public String call() throws InterruptedException {
+				standardInput.writeln(command);
+				if (delivered != null) {
+					delivered.run();
+				}
+				return command;
+			}
+		});
+	}
+
+	/**
+	 * Gets the number of commands waiting to be passed to standard input.
+	 *
+	 * @return the number of commands waiting to be delivered
+	 */
+	public int getQueueDepth() {
+		return commands.size();
+	}
+
+}
@@ -4,28 +4,37 @@ import com.faulch.minecraft.serverwrapper.Utility;
 import com.faulch.minecraft.serverwrapper.line.LineEmitter;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ArrayBlockingQueue;
 
 /**
  * Replaces the existing standard input stream with a new standard input stream,
  * which forwards written lines to the original standard input stream, but also
  * emits lines to subscribers.  Canceling a <code>LineEvent</code> emitted from
  * this object will prevent the line from being forwarded to the new standard
- * input stream.
+ * input stream.  Only a single line waits to be read at a time, so threads
+ * passing lines to standard input are held back until the server has read
+ * the previous line, rather than buffering lines without limit.
  *
  * @author Jonathan Faulch
  */
 public class StandardInput extends LineEmitter {
 
+	/**
+	 * The number of lines which may wait to be read by the server.
+	 */
+	private static final int lineCapacity = 1;
+
 	private final Charset charset;
 	private final InputStream originalInput;
 	private final BlockingQueue<String> lines;
-	private ByteArrayInputStream lineStream;
 
 	/**
 	 * Creates a <code>StandardInput</code> object which replaces the current
@@ -33,12 +42,13 @@ public class StandardInput extends LineEmitter {
 	 * forwards lines from the original standard input, allows for injecting
 	 * lines into standard input, and only provides bytes in batches, one line
 	 * at a time.
+	 *
+	 * @param charset the charset used to encode lines passed to standard input
 	 */
 	public StandardInput(Charset charset) {
 		this.charset = charset;
 		originalInput = System.in;
-		lines = new LinkedBlockingQueue<String>();
-		lineStream = new ByteArrayInputStream(new byte[0]);
+		lines = new ArrayBlockingQueue<String>(lineCapacity);
 		setStandardInput();
 		startForwardingThread();
 	}
@@ -48,55 +58,7 @@ public class StandardInput extends LineEmitter {
 	 * queue, and offers up bytes from each line as they become available.
 	 */
 	private void setStandardInput() {
-		System.setIn(new InputStream() {
-			/**
-			 * {@inheritDoc}
-			 * This implementation will block until an entire line of text is
-			 * available to be read.
-			 */
-			@Override
-			public int read() {
-				int value = lineStream.read();
-				if (value == -1) {
-					try {
-						String line;
-						while (emitLine(line = lines.take())) ;
-						lineStream = new ByteArrayInputStream((line + Utility.lineSeparator).getBytes(charset));
-						value = lineStream.read();
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-				}
-				return value;
-			}
-
-			/**
-			 * Reads at most one byte from the input stream and writes int into
-			 * the supplied array.  This method has been overriden, so that
-			 * <code>BufferedReader</code>s don't attempt to fill their entire
-			 * buffer.  The default implementation will always try to fill as
-			 * much of the array as possible, which is not the desired behavior
-			 * for a <code>BufferedReader</code> reading from standard input.
-			 * {@inheritDoc}
-			 */
-			@Override
-			public int read(byte[] b, int off, int len) {
-				if (b == null) {
-					throw new NullPointerException();
-				} else if (off < 0 || len < 0 || len > b.length - off) {
-					throw new IndexOutOfBoundsException();
-				} else if (len == 0) {
-					return 0;
-				}
-
-				int c = read();
-				if (c == -1) {
-					return -1;
-				}
-				b[off] = (byte) c;
-				return 1;
-			}
-		});
+		System.setIn(new LineInputStream());
 	}
 
 	/**
@@ -112,7 +74,7 @@ public class StandardInput extends LineEmitter {
 					BufferedReader reader = new BufferedReader(new InputStreamReader(originalInput));
 					String line;
 					while ((line = reader.readLine()) != null) {
-						lines.add(line);
+						lines.put(line);
 					}
 				} catch (Exception e) {
 					e.printStackTrace();
@@ -124,12 +86,135 @@ public class StandardInput extends LineEmitter {
 	}
 
 	/**
-	 * Passes a line of text to the underlying standard input stream.
+	 * Passes a line of text to the underlying standard input stream, blocking
+	 * until the server has read the line before it.
 	 *
 	 * @param line the line of text to be passed to standard input
+	 * @throws InterruptedException if the current thread is interrupted while waiting for
+	 *                              the server to read the previous line
+	 */
+	public void writeln(String line) throws InterruptedException {
+		lines.put(line);
+	}
+
+	/**
+	 * Gets the number of lines which have been passed to standard input, but
+	 * have not yet been read.
+	 *
+	 * @return the number of lines waiting to be read
 	 */
-	public void writeln(String line) {
-		lines.add(line);
+	public int getQueueDepth() {
+		return lines.size();
+	}
+
+	/**
+	 * An input stream which takes lines from the blocking queue one at a time,
+	 * and encodes each line into a reusable buffer.  A read never returns bytes
+	 * from more than one line, and only blocks when the current line has been
+	 * completely read, so readers are never made to wait for more input than
+	 * is available.
+	 */
+	private class LineInputStream extends InputStream {
+
+		private final CharsetEncoder encoder;
+		private CharBuffer lineChars;
+		private ByteBuffer lineBytes;
+
+		/**
+		 * Creates a <code>LineInputStream</code> with no bytes available.
+		 */
+		private LineInputStream() {
+			encoder = charset.newEncoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			lineChars = CharBuffer.allocate(256);
+			lineBytes = ByteBuffer.allocate(256);
+			lineBytes.flip();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * This implementation will block until an entire line of text is
+		 * available to be read.
+		 */
+		@Override
+		public synchronized int read() {
+			if (!lineBytes.hasRemaining() && !takeLine()) {
+				return -1;
+			}
+			return lineBytes.get() & 0xFF;
+		}
+
+		/**
+		 * Reads bytes from the current line into the supplied array.  This
+		 * will block until an entire line of text is available to be read, but
+		 * will never read past the end of the current line, so that
+		 * <code>BufferedReader</code>s don't wait to fill their entire buffer.
+		 * {@inheritDoc}
+		 */
+		@Override
+		public synchronized int read(byte[] b, int off, int len) {
+			if (b == null) {
+				throw new NullPointerException();
+			} else if (off < 0 || len < 0 || len > b.length - off) {
+				throw new IndexOutOfBoundsException();
+			} else if (len == 0) {
+				return 0;
+			}
+
+			if (!lineBytes.hasRemaining() && !takeLine()) {
+				return -1;
+			}
+			int count = Math.min(len, lineBytes.remaining());
+			lineBytes.get(b, off, count);
+			return count;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * This is the number of bytes remaining in the current line.
+		 */
+		@Override
+		public synchronized int available() {
+			return lineBytes.remaining();
+		}
+
+		/**
+		 * Takes the next line which has not been cancelled from the blocking
+		 * queue, and encodes it, along with a line separator, into the line
+		 * buffer.
+		 *
+		 * @return <code>true</code> if a line was taken; <code>false</code> if
+		 * the current thread was interrupted while waiting for a line
+		 */
+		private boolean takeLine() {
+			String line;
+			try {
+				while (emitLine(line = lines.take())) ;
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+				return false;
+			}
+
+			int length = line.length() + Utility.lineSeparator.length();
+			if (lineChars.capacity() < length) {
+				lineChars = CharBuffer.allocate(Math.max(lineChars.capacity() * 2, length));
+			}
+			lineChars.clear();
+			lineChars.put(line).put(Utility.lineSeparator).flip();
+
+			int maximumBytes = (int) Math.ceil(length * (double) encoder.maxBytesPerChar());
+			if (lineBytes.capacity() < maximumBytes) {
+				lineBytes = ByteBuffer.allocate(Math.max(lineBytes.capacity() * 2, maximumBytes));
+			}
+			lineBytes.clear();
+			encoder.reset();
+			encoder.encode(lineChars, lineBytes, true);
+			encoder.flush(lineBytes);
+			lineBytes.flip();
+			return true;
+		}
+
 	}
 
 }
@@ -2,9 +2,14 @@ package com.faulch.minecraft.serverwrapper.io;
 
 import com.faulch.minecraft.serverwrapper.line.LineEmitter;
 
-import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 
 /**
  * Replaces the existing standard output stream with a new standard output
@@ -22,26 +27,148 @@ public class StandardOutput extends LineEmitter {
 	 * Creates a <code>StandardOutput</code> object, which replaces the current
 	 * standard output stream with a monitoring output stream, which forwards
 	 * lines to subscribed listeners.
+	 *
+	 * @param charset the charset used to encode text written to the new standard
+	 *                output stream, and to decode the lines emitted from it
 	 */
-	public StandardOutput() {
+	public StandardOutput(Charset charset) {
 		originalOutput = System.out;
-		System.setOut(new PrintStream(new OutputStream() {
-			private final ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
-
-			@Override
-			public void write(int b) {
-				originalOutput.write(b);
-				if ("\r\n".contains(Character.toString((char) b))) {
-					if (byteBuffer.size() > 0) {
-						String line = byteBuffer.toString();
-						byteBuffer.reset();
-						emitLine(line);
-					}
+		try {
+			System.setOut(new PrintStream(new TeeOutputStream(charset), false, charset.name()));
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * An output stream which forwards bytes to the original standard output
+	 * stream, and collects them into lines.  Bytes are scanned for line
+	 * terminators in bulk, and are collected into a reusable buffer, which is
+	 * decoded with a reusable decoder once a line is complete.
+	 */
+	private class TeeOutputStream extends OutputStream {
+
+		private final CharsetDecoder decoder;
+		private ByteBuffer lineBytes;
+		private CharBuffer lineChars;
+		private boolean emitting;
+
+		/**
+		 * Creates a <code>TeeOutputStream</code> which decodes lines with the
+		 * specified charset.
+		 *
+		 * @param charset the charset used to decode lines
+		 */
+		private TeeOutputStream(Charset charset) {
+			decoder = charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			lineBytes = ByteBuffer.allocate(256);
+			lineChars = CharBuffer.allocate(256);
+		}
+
+		@Override
+		public void write(int b) {
+			originalOutput.write(b);
+			if (b == '\r' || b == '\n') {
+				endLine();
+			} else {
+				ensureCapacity(1);
+				lineBytes.put((byte) b);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			originalOutput.write(b, off, len);
+			int start = off;
+			int end = off + len;
+			for (int i = off; i < end; i++) {
+				if (b[i] == '\r' || b[i] == '\n') {
+					append(b, start, i - start);
+					endLine();
+					start = i + 1;
+				}
+			}
+			append(b, start, end - start);
+		}
+
+		@Override
+		public void flush() {
+			originalOutput.flush();
+		}
+
+		/**
+		 * Appends bytes to the line currently being collected.
+		 *
+		 * @param b   the array containing the bytes
+		 * @param off the offset of the first byte to append
+		 * @param len the number of bytes to append
+		 */
+		private void append(byte[] b, int off, int len) {
+			if (len > 0) {
+				ensureCapacity(len);
+				lineBytes.put(b, off, len);
+			}
+		}
+
+		/**
+		 * Grows the line buffer, if necessary, so that it has room for the
+		 * specified number of additional bytes.
+		 *
+		 * @param additional the number of additional bytes
+		 */
+		private void ensureCapacity(int additional) {
+			if (lineBytes.remaining() < additional) {
+				ByteBuffer grown = ByteBuffer.allocate(Math.max(lineBytes.capacity() * 2, lineBytes.position() + additional));
+				lineBytes.flip();
+				grown.put(lineBytes);
+				lineBytes = grown;
+			}
+		}
+
+		/**
+		 * Decodes the line currently being collected, emits it, and clears the
+		 * line buffer.  Empty lines are not emitted, and lines are not decoded
+		 * at all if there are no line processors.  The emitted line is a view
+		 * over the reusable character buffer, unless a line is completed while
+		 * another is still being emitted, such as when a line processor writes
+		 * to standard output, in which case it is decoded into a new buffer.
+		 */
+		private void endLine() {
+			if (lineBytes.position() > 0) {
+				if (!hasLineProcessors()) {
+					lineBytes.clear();
+					return;
+				}
+				lineBytes.flip();
+				int maximumChars = (int) Math.ceil(lineBytes.remaining() * (double) decoder.maxCharsPerByte());
+				CharBuffer chars;
+				if (emitting) {
+					chars = CharBuffer.allocate(maximumChars);
 				} else {
-					byteBuffer.write(b);
+					if (lineChars.capacity() < maximumChars) {
+						lineChars = CharBuffer.allocate(Math.max(lineChars.capacity() * 2, maximumChars));
+					}
+					chars = lineChars;
+				}
+				chars.clear();
+				decoder.reset();
+				decoder.decode(lineBytes, chars, true);
+				decoder.flush(chars);
+				chars.flip();
+				lineBytes.clear();
+
+				boolean nested = emitting;
+				emitting = true;
+				try {
+					emitLine(chars);
+				} finally {
+					emitting = nested;
 				}
 			}
-		}));
+		}
+
 	}
 
 }
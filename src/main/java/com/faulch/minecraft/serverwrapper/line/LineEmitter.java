@@ -1,55 +1,160 @@
 package com.faulch.minecraft.serverwrapper.line;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A convenience class for managing the subscription of line processors to a
  * line source, and the emitting of lines to subscribed processors.  It
  * maintains a list of subscribed line processors, and allows subclasses to emit
  * lines to subscribed processors.
+ * <p>
+ * The list of subscribed processors is copied whenever it changes, so line
+ * processors can be added and removed from any thread, while lines are being
+ * emitted, without ever blocking the emitting thread.  Processors are called in
+ * order of priority, and the time each spends processing lines is recorded.  A
+ * processor which exceeds its time budget while processing a single line is
+ * detached, so that one slow processor can't slow down every line.
  *
  * @author Jonathan Faulch
  */
 public class LineEmitter {
 
-	private final List<LineProcessor> lineProcessors;
+	private static final LineProcessorRegistration[] noRegistrations = new LineProcessorRegistration[0];
+
+	private final Object registrationLock;
+	private final ThreadLocal<LineEvent> events;
+	private volatile LineProcessorRegistration[] registrations;
+	private volatile long defaultTimeBudget;
 
 	/**
 	 * Creates a <code>LineEmitter</code> with an empty processing list.
 	 */
 	public LineEmitter() {
-		lineProcessors = new ArrayList<LineProcessor>();
+		registrationLock = new Object();
+		registrations = noRegistrations;
+		events = new ThreadLocal<LineEvent>() {
+			@Override
+			protected LineEvent initialValue() {
+				return new LineEvent(null);
+			}
+		};
 	}
 
 	/**
 	 * Emits the specified line of text to all attached line processors, and
-	 * returns whether or not the associated event was cancelled.
+	 * returns whether or not the associated event was cancelled.  Each thread
+	 * reuses a single event, unless a line is emitted while that event is
+	 * still being processed, in which case a new event is created.
 	 *
-	 * @param line the line of text to emit to all attached line processors
+	 * @param line the line of text to emit to all attached line processors,
+	 *             which may be a view over a buffer that the caller reuses once
+	 *             this method returns
 	 * @return <code>true</code> if the event was cancelled during processing;
 	 * <code>false</code> otherwise
 	 */
-	protected boolean emitLine(String line) {
-		LineEvent event = new LineEvent(line);
-		for (LineProcessor lineListener : lineProcessors) {
-			lineListener.processLine(event);
+	protected boolean emitLine(CharSequence line) {
+		LineProcessorRegistration[] snapshot = registrations;
+		if (snapshot.length == 0) {
+			return false;
+		}
+		LineEvent event = events.get();
+		if (event.inUse) {
+			event = new LineEvent(line);
+		} else {
+			event.reset(line);
+		}
+		event.inUse = true;
+		try {
+			for (LineProcessorRegistration registration : snapshot) {
+				if (!registration.isDetached() && !registration.process(event)) {
+					if (removeRegistration(registration)) {
+						System.err.println("Line processor " + registration.getLineProcessor() + " took "
+								+ TimeUnit.NANOSECONDS.toMillis(registration.getMaximumTime()) + " ms to process a line, exceeding its budget of "
+								+ TimeUnit.NANOSECONDS.toMillis(registration.getTimeBudget()) + " ms, and has been removed.");
+					}
+				}
+			}
+			return event.isCancelled();
+		} finally {
+			event.inUse = false;
+			event.reset(null);
 		}
-		return event.isCancelled();
 	}
 
 	/**
-	 * Adds a line processor to the end of the line processing list, so that it
-	 * will be called whenever a line is emitted.  A line processor can be added
-	 * multiple times, so that it will be called multiple times.
+	 * Determines whether or not any line processors are attached, so that
+	 * subclasses can skip preparing lines which nobody will process.
 	 *
-	 * @param lineProcessor the line processor to append to the end of the processing list
+	 * @return <code>true</code> if at least one line processor is attached;
+	 * <code>false</code> otherwise
+	 */
+	protected boolean hasLineProcessors() {
+		return registrations.length > 0;
+	}
+
+	/**
+	 * Adds a line processor with the default priority of zero and the default
+	 * time budget, so that it will be called whenever a line is emitted.  A
+	 * line processor can be added multiple times, so that it will be called
+	 * multiple times.
+	 *
+	 * @param lineProcessor the line processor to add to the processing list
 	 * @return <code>true</code> if the line processor was successfully added
-	 * to the end of the processing list; <code>false</code> otherwise.
+	 * to the processing list; <code>false</code> otherwise.
 	 * This method should always return true.
 	 */
 	public boolean addLineProcessor(LineProcessor lineProcessor) {
-		return lineProcessors.add(lineProcessor);
+		return addLineProcessor(lineProcessor, 0);
+	}
+
+	/**
+	 * Adds a line processor with the specified priority and the default time
+	 * budget.  Processors with a higher priority are called first, and
+	 * processors with the same priority are called in the order they were
+	 * added.
+	 *
+	 * @param lineProcessor the line processor to add to the processing list
+	 * @param priority      the priority of the line processor
+	 * @return <code>true</code> if the line processor was successfully added
+	 * to the processing list; <code>false</code> otherwise.
+	 * This method should always return true.
+	 */
+	public boolean addLineProcessor(LineProcessor lineProcessor, int priority) {
+		return addLineProcessor(lineProcessor, priority, defaultTimeBudget, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Adds a line processor with the specified priority and time budget.  If
+	 * the processor ever takes longer than its time budget to process a single
+	 * line, then it is removed from the processing list.
+	 *
+	 * @param lineProcessor the line processor to add to the processing list
+	 * @param priority      the priority of the line processor
+	 * @param timeBudget    the time the processor may spend processing a single line,
+	 *                      or zero if there is no limit
+	 * @param unit          the unit of the time budget
+	 * @return <code>true</code> if the line processor was successfully added
+	 * to the processing list; <code>false</code> otherwise.
+	 * This method should always return true.
+	 */
+	public boolean addLineProcessor(LineProcessor lineProcessor, int priority, long timeBudget, TimeUnit unit) {
+		LineProcessorRegistration registration = new LineProcessorRegistration(lineProcessor, priority, unit.toNanos(timeBudget));
+		synchronized (registrationLock) {
+			LineProcessorRegistration[] current = registrations;
+			int index = 0;
+			while (index < current.length && current[index].getPriority() >= priority) {
+				index++;
+			}
+			LineProcessorRegistration[] updated = new LineProcessorRegistration[current.length + 1];
+			System.arraycopy(current, 0, updated, 0, index);
+			updated[index] = registration;
+			System.arraycopy(current, index, updated, index + 1, current.length - index);
+			registrations = updated;
+		}
+		return true;
 	}
 
 	/**
@@ -62,7 +167,62 @@ public class LineEmitter {
 	 * otherwise
 	 */
 	public boolean removeLineProcessor(LineProcessor lineProcessor) {
-		return lineProcessors.remove(lineProcessor);
+		for (LineProcessorRegistration registration : registrations) {
+			if (registration.getLineProcessor().equals(lineProcessor) && removeRegistration(registration)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes a registration from the processing list, and marks it as
+	 * detached.
+	 *
+	 * @param registration the registration to be removed
+	 * @return <code>true</code> if the registration was removed;
+	 * <code>false</code> if it had already been removed
+	 */
+	private boolean removeRegistration(LineProcessorRegistration registration) {
+		synchronized (registrationLock) {
+			LineProcessorRegistration[] current = registrations;
+			for (int index = 0; index < current.length; index++) {
+				if (current[index] == registration) {
+					LineProcessorRegistration[] updated = new LineProcessorRegistration[current.length - 1];
+					System.arraycopy(current, 0, updated, 0, index);
+					System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+					registrations = updated;
+					registration.detach();
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the registrations of every line processor currently in the
+	 * processing list, in the order they are called.  The registrations
+	 * include statistics about the time each processor has spent processing
+	 * lines.
+	 *
+	 * @return the registrations of the attached line processors
+	 */
+	public List<LineProcessorRegistration> getLineProcessorRegistrations() {
+		return Collections.unmodifiableList(Arrays.asList(registrations));
+	}
+
+	/**
+	 * Sets the time budget given to line processors which are added without
+	 * specifying one.  Processors which have already been added are not
+	 * affected.
+	 *
+	 * @param timeBudget the time a processor may spend processing a single line, or
+	 *                   zero if there is no limit
+	 * @param unit       the unit of the time budget
+	 */
+	public void setDefaultTimeBudget(long timeBudget, TimeUnit unit) {
+		defaultTimeBudget = unit.toNanos(timeBudget);
 	}
 
 }
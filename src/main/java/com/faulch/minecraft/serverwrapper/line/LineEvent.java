@@ -6,21 +6,41 @@ package com.faulch.minecraft.serverwrapper.line;
  * whether or not the line generator should continue with its own processing
  * after all <code>LineProcessor</code> objects have been notified.  Once an
  * event has been cancelled, the flag cannot be reversed.
+ * <p>
+ * To avoid creating garbage for every line, the text of an event may be a view
+ * over a buffer which the line generator reuses, and the event itself may be
+ * reused for later lines.  Line processors must therefore not hold on to the
+ * event, or to the <code>CharSequence</code> returned by <code>getText</code>,
+ * after <code>processLine</code> returns.  The <code>String</code> returned by
+ * <code>getLine</code> is always safe to keep.
  *
  * @author Jonathan Faulch
  */
 public class LineEvent {
 
-	private final String line;
+	private CharSequence text;
+	private String line;
 	private boolean cancelled;
+	boolean inUse;
 
 	/**
 	 * Creates a <code>LineEvent</code> with an associated line of text.
 	 *
-	 * @param line the line of text associated with this event
+	 * @param text the line of text associated with this event
 	 */
-	public LineEvent(String line) {
-		this.line = line;
+	public LineEvent(CharSequence text) {
+		this.text = text;
+	}
+
+	/**
+	 * Associates a new line of text with this event, and clears the
+	 * <code>cancelled</code> flag, so that this event can be reused.
+	 *
+	 * @param text the line of text associated with this event
+	 */
+	void reset(CharSequence text) {
+		this.text = text;
+		line = null;
 		cancelled = false;
 	}
 
@@ -32,11 +52,26 @@ public class LineEvent {
 	}
 
 	/**
-	 * Gets the line of text associated with this event.
+	 * Gets the line of text associated with this event, without copying it.
+	 * The returned sequence is only valid while this event is being processed.
+	 *
+	 * @return the line of text associated with this event
+	 */
+	public CharSequence getText() {
+		return text;
+	}
+
+	/**
+	 * Gets the line of text associated with this event as a
+	 * <code>String</code>.  The string is only created the first time it is
+	 * requested for each line.
 	 *
 	 * @return the line of text associated with this event
 	 */
 	public String getLine() {
+		if (line == null) {
+			line = text.toString();
+		}
 		return line;
 	}
 
@@ -0,0 +1,141 @@
+package com.faulch.minecraft.serverwrapper.line;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Describes a line processor's subscription to a <code>LineEmitter</code>,
+ * along with statistics about the time the processor has spent processing
+ * lines.  A processor which takes longer than its time budget to process a
+ * single line is detached from the emitter.
+ *
+ * @author Jonathan Faulch
+ */
+public class LineProcessorRegistration {
+
+	private final LineProcessor lineProcessor;
+	private final int priority;
+	private final long timeBudget;
+	private final AtomicLong invocationCount;
+	private final AtomicLong totalTime;
+	private final AtomicLong maximumTime;
+	private volatile boolean detached;
+
+	/**
+	 * Creates a <code>LineProcessorRegistration</code>.
+	 *
+	 * @param lineProcessor the subscribed line processor
+	 * @param priority      the priority of the processor, where processors with a higher
+	 *                      priority are called first
+	 * @param timeBudget    the number of nanoseconds the processor may spend processing
+	 *                      a single line, or zero if there is no limit
+	 */
+	LineProcessorRegistration(LineProcessor lineProcessor, int priority, long timeBudget) {
+		this.lineProcessor = lineProcessor;
+		this.priority = priority;
+		this.timeBudget = timeBudget;
+		invocationCount = new AtomicLong();
+		totalTime = new AtomicLong();
+		maximumTime = new AtomicLong();
+	}
+
+	/**
+	 * Calls the line processor with the supplied event, and records the time
+	 * it took.
+	 *
+	 * @param event the event to be processed
+	 * @return <code>true</code> if the processor stayed within its time
+	 * budget; <code>false</code> otherwise
+	 */
+	boolean process(LineEvent event) {
+		long start = System.nanoTime();
+		long elapsed;
+		try {
+			lineProcessor.processLine(event);
+		} finally {
+			elapsed = System.nanoTime() - start;
+			invocationCount.incrementAndGet();
+			totalTime.addAndGet(elapsed);
+			long maximum;
+			while (elapsed > (maximum = maximumTime.get()) && !maximumTime.compareAndSet(maximum, elapsed)) ;
+		}
+		return timeBudget <= 0 || elapsed <= timeBudget;
+	}
+
+	/**
+	 * Marks this registration as detached from its emitter.
+	 */
+	void detach() {
+		detached = true;
+	}
+
+	/**
+	 * Gets the subscribed line processor.
+	 *
+	 * @return the subscribed line processor
+	 */
+	public LineProcessor getLineProcessor() {
+		return lineProcessor;
+	}
+
+	/**
+	 * Gets the priority of the line processor.  Processors with a higher
+	 * priority are called first.
+	 *
+	 * @return the priority of the line processor
+	 */
+	public int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Gets the number of nanoseconds the line processor may spend processing a
+	 * single line before it is detached.
+	 *
+	 * @return the time budget in nanoseconds, or zero if there is no limit
+	 */
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	/**
+	 * Gets the number of lines the line processor has processed.
+	 *
+	 * @return the number of lines processed
+	 */
+	public long getInvocationCount() {
+		return invocationCount.get();
+	}
+
+	/**
+	 * Gets the total number of nanoseconds the line processor has spent
+	 * processing lines.
+	 *
+	 * @return the total processing time in nanoseconds
+	 */
+	public long getTotalTime() {
+		return totalTime.get();
+	}
+
+	/**
+	 * Gets the largest number of nanoseconds the line processor has spent
+	 * processing a single line.
+	 *
+	 * @return the maximum processing time in nanoseconds
+	 */
+	public long getMaximumTime() {
+		return maximumTime.get();
+	}
+
+	/**
+	 * Determines whether or not the line processor has been detached from its
+	 * emitter, either because it was removed, or because it exceeded its time
+	 * budget.
+	 *
+	 * @return <code>true</code> if the line processor has been detached;
+	 * <code>false</code> otherwise
+	 */
+	public boolean isDetached() {
+		return detached;
+	}
+
+}
@@ -0,0 +1,183 @@
+package com.faulch.minecraft.serverwrapper.log;
+
+/**
+ * A server log message which has been split into its header and message, and
+ * classified by the <code>LogParser</code>.  The parts of the message are
+ * stored as offsets into the original line, so parsing a line does not
+ * allocate anything, and strings are only created for the parts which are
+ * actually requested.
+ * <p>
+ * Like <code>LineEvent</code>, a <code>LogEvent</code> is reused for later
+ * lines, so listeners must not hold on to the event, or to the
+ * <code>CharSequence</code> returned by <code>getText</code>, after they
+ * return.  The strings returned by the other getters are always safe to keep.
+ *
+ * @author Jonathan Faulch
+ */
+public class LogEvent {
+
+	private CharSequence text;
+	private LogEventType type;
+	private int timeStart;
+	private int timeEnd;
+	private int threadStart;
+	private int threadEnd;
+	private int levelStart;
+	private int levelEnd;
+	private int messageStart;
+	private int playerStart;
+	private int playerEnd;
+	private int detailStart;
+	private int detailEnd;
+	boolean inUse;
+
+	/**
+	 * Sets the line of text this event refers to, and clears every part.
+	 *
+	 * @param text the line of text this event refers to
+	 */
+	void reset(CharSequence text) {
+		this.text = text;
+		type = LogEventType.OTHER;
+		timeStart = timeEnd = threadStart = threadEnd = levelStart = levelEnd = messageStart = 0;
+		playerStart = playerEnd = detailStart = detailEnd = 0;
+	}
+
+	/**
+	 * Sets the positions of the parts of the log header.
+	 *
+	 * @param timeStart    the start of the time
+	 * @param timeEnd      the end of the time
+	 * @param threadStart  the start of the thread name
+	 * @param threadEnd    the end of the thread name
+	 * @param levelStart   the start of the level
+	 * @param levelEnd     the end of the level
+	 * @param messageStart the start of the message
+	 */
+	void setHeader(int timeStart, int timeEnd, int threadStart, int threadEnd, int levelStart, int levelEnd, int messageStart) {
+		this.timeStart = timeStart;
+		this.timeEnd = timeEnd;
+		this.threadStart = threadStart;
+		this.threadEnd = threadEnd;
+		this.levelStart = levelStart;
+		this.levelEnd = levelEnd;
+		this.messageStart = messageStart;
+	}
+
+	/**
+	 * Sets the type of this event, and the positions of the player's name and
+	 * the detail of the message.
+	 *
+	 * @param type        the type of this event
+	 * @param playerStart the start of the player's name
+	 * @param playerEnd   the end of the player's name
+	 * @param detailStart the start of the detail
+	 * @param detailEnd   the end of the detail
+	 */
+	void setType(LogEventType type, int playerStart, int playerEnd, int detailStart, int detailEnd) {
+		this.type = type;
+		this.playerStart = playerStart;
+		this.playerEnd = playerEnd;
+		this.detailStart = detailStart;
+		this.detailEnd = detailEnd;
+	}
+
+	/**
+	 * Gets the entire line of text this event was parsed from, without copying
+	 * it.  The returned sequence is only valid while this event is being
+	 * processed.
+	 *
+	 * @return the line of text this event was parsed from
+	 */
+	public CharSequence getText() {
+		return text;
+	}
+
+	/**
+	 * Gets the type of this event.
+	 *
+	 * @return the type of this event
+	 */
+	public LogEventType getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the time in the log header, such as "12:34:56".
+	 *
+	 * @return the time the message was logged
+	 */
+	public String getTime() {
+		return substring(timeStart, timeEnd);
+	}
+
+	/**
+	 * Gets the name of the thread in the log header, such as "Server thread".
+	 * Log formats which do not include the thread have an empty thread name.
+	 *
+	 * @return the name of the thread which logged the message
+	 */
+	public String getThread() {
+		return substring(threadStart, threadEnd);
+	}
+
+	/**
+	 * Gets the level in the log header, such as "INFO".
+	 *
+	 * @return the level of the message
+	 */
+	public String getLevel() {
+		return substring(levelStart, levelEnd);
+	}
+
+	/**
+	 * Gets the message following the log header.
+	 *
+	 * @return the message following the log header
+	 */
+	public String getMessage() {
+		return substring(messageStart, text.length());
+	}
+
+	/**
+	 * Gets the name of the player the message is about.
+	 *
+	 * @return the name of the player, or <code>null</code> if the message is
+	 * not about a player
+	 */
+	public String getPlayerName() {
+		return playerEnd > playerStart ? substring(playerStart, playerEnd) : null;
+	}
+
+	/**
+	 * Gets the detail of the message, which depends on the type of this
+	 * event.
+	 *
+	 * @return the detail of the message, which may be empty
+	 */
+	public String getDetail() {
+		return substring(detailStart, detailEnd);
+	}
+
+	/**
+	 * Copies part of the line of text into a new string.
+	 *
+	 * @param start the start of the part
+	 * @param end   the end of the part
+	 * @return the part of the line
+	 */
+	private String substring(int start, int end) {
+		return text.subSequence(start, end).toString();
+	}
+
+	/**
+	 * Describes this event, for use in debugging.
+	 *
+	 * @return a description of this event
+	 */
+	@Override
+	public String toString() {
+		return type + " player=" + getPlayerName() + " detail=" + getDetail();
+	}
+
+}
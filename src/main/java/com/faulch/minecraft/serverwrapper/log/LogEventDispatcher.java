@@ -0,0 +1,133 @@
+package com.faulch.minecraft.serverwrapper.log;
+
+import com.faulch.minecraft.serverwrapper.line.LineEvent;
+import com.faulch.minecraft.serverwrapper.line.LineProcessor;
+
+/**
+ * A line processor which parses each line once, and passes the resulting
+ * <code>LogEvent</code> to every listener subscribed to its type.  Lines are
+ * not parsed at all while there are no listeners.  Like the processing list
+ * of a <code>LineEmitter</code>, the listener lists are copied whenever they
+ * change, so listeners can be added and removed from any thread without
+ * blocking the thread emitting lines.
+ *
+ * @author Jonathan Faulch
+ */
+public class LogEventDispatcher implements LineProcessor {
+
+	private static final LogEventListener[] noListeners = new LogEventListener[0];
+
+	private final Object listenerLock;
+	private final ThreadLocal<LogEvent> events;
+	private volatile LogEventListener[][] listeners;
+	private volatile int listenerCount;
+
+	/**
+	 * Creates a <code>LogEventDispatcher</code> with no listeners.
+	 */
+	public LogEventDispatcher() {
+		listenerLock = new Object();
+		listeners = new LogEventListener[LogEventType.values().length][];
+		for (int i = 0; i < listeners.length; i++) {
+			listeners[i] = noListeners;
+		}
+		events = new ThreadLocal<LogEvent>() {
+			@Override
+			protected LogEvent initialValue() {
+				return new LogEvent();
+			}
+		};
+	}
+
+	/**
+	 * Parses the line, and passes the event to the listeners subscribed to
+	 * its type.  Each thread reuses a single event, unless a line is processed
+	 * while that event is still in use, such as when a listener writes to
+	 * standard output, in which case a new event is created.  An exception
+	 * thrown by one listener does not prevent the others from being called.
+	 *
+	 * @param lineEvent the event containing the line to be parsed
+	 */
+	@Override
+	public void processLine(LineEvent lineEvent) {
+		if (listenerCount == 0) {
+			return;
+		}
+		LogEvent event = events.get();
+		if (event.inUse) {
+			event = new LogEvent();
+		}
+		event.inUse = true;
+		try {
+			if (LogParser.parse(lineEvent.getText(), event)) {
+				for (LogEventListener listener : listeners[event.getType().ordinal()]) {
+					try {
+						listener.processLogEvent(event);
+					} catch (RuntimeException e) {
+						e.printStackTrace();
+					}
+				}
+			}
+		} finally {
+			event.inUse = false;
+			event.reset(null);
+		}
+	}
+
+	/**
+	 * Subscribes a listener to a type of log event.  A listener can be added
+	 * multiple times, so that it will be called multiple times.
+	 *
+	 * @param type     the type of log event
+	 * @param listener the listener to be called for each event of the type
+	 */
+	public void addLogEventListener(LogEventType type, LogEventListener listener) {
+		synchronized (listenerLock) {
+			LogEventListener[] current = listeners[type.ordinal()];
+			LogEventListener[] updated = new LogEventListener[current.length + 1];
+			System.arraycopy(current, 0, updated, 0, current.length);
+			updated[current.length] = listener;
+			setListeners(type, updated);
+		}
+	}
+
+	/**
+	 * Removes the first subscription of a listener to a type of log event.
+	 *
+	 * @param type     the type of log event
+	 * @param listener the listener to be removed
+	 * @return <code>true</code> if the listener was removed;
+	 * <code>false</code> if it was not subscribed to the type
+	 */
+	public boolean removeLogEventListener(LogEventType type, LogEventListener listener) {
+		synchronized (listenerLock) {
+			LogEventListener[] current = listeners[type.ordinal()];
+			for (int index = 0; index < current.length; index++) {
+				if (current[index].equals(listener)) {
+					LogEventListener[] updated = new LogEventListener[current.length - 1];
+					System.arraycopy(current, 0, updated, 0, index);
+					System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+					setListeners(type, updated);
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Publishes a new listener list for a type of log event, by copying the
+	 * outer array, so that the emitting thread always sees a consistent set
+	 * of lists.  Must be called while holding the listener lock.
+	 *
+	 * @param type    the type of log event
+	 * @param updated the new listener list for the type
+	 */
+	private void setListeners(LogEventType type, LogEventListener[] updated) {
+		LogEventListener[][] copy = listeners.clone();
+		copy[type.ordinal()] = updated;
+		listenerCount += updated.length - listeners[type.ordinal()].length;
+		listeners = copy;
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.faulch.minecraft.serverwrapper.log;
+
+/**
+ * Supports objects which need to respond to typed server log messages.
+ *
+ * @author Jonathan Faulch
+ */
+public interface LogEventListener {
+
+	/**
+	 * Called when the server logs a message of a type this listener has
+	 * subscribed to.  This is called on the thread which wrote the message,
+	 * which is usually the server's main thread, so listeners should return
+	 * quickly, and hand off any lengthy work.
+	 *
+	 * @param event an event containing the parts of the log message
+	 */
+	void processLogEvent(LogEvent event);
+
+}
@@ -0,0 +1,55 @@
+package com.faulch.minecraft.serverwrapper.log;
+
+/**
+ * The kinds of server log messages which are recognized by the
+ * <code>LogParser</code>.
+ *
+ * @author Jonathan Faulch
+ */
+public enum LogEventType {
+
+	/**
+	 * A player joined the game.  The detail is empty.
+	 */
+	JOIN,
+
+	/**
+	 * A player left the game.  The detail is empty.
+	 */
+	LEAVE,
+
+	/**
+	 * A player sent a chat message.  The detail is the text of the message.
+	 */
+	CHAT,
+
+	/**
+	 * A player died.  The detail is the rest of the death message, such as
+	 * "was slain by Zombie".
+	 */
+	DEATH,
+
+	/**
+	 * A player made an advancement, completed a challenge, or reached a goal.
+	 * The detail is the name of the advancement.
+	 */
+	ADVANCEMENT,
+
+	/**
+	 * The server finished starting up.  There is no player, and the detail is
+	 * empty.
+	 */
+	STARTED,
+
+	/**
+	 * The server finished saving the world.  There is no player, and the
+	 * detail is empty.
+	 */
+	SAVED,
+
+	/**
+	 * Any other log message.  There is no player, and the detail is empty.
+	 */
+	OTHER
+
+}
@@ -0,0 +1,265 @@
+package com.faulch.minecraft.serverwrapper.log;
+
+/**
+ * Parses server log lines into <code>LogEvent</code>s without using regular
+ * expressions.  The vanilla header, <code>[time] [thread/LEVEL]: message</code>,
+ * and the shorter <code>[time LEVEL]: message</code> header used by some
+ * modded servers are both recognized.  The message is then classified by
+ * comparing it against the fixed English phrases the server uses for common
+ * events.  Parsing walks each line once, and never allocates.
+ *
+ * @author Jonathan Faulch
+ */
+public class LogParser {
+
+	private static final String
+			joinSuffix = " joined the game",
+			leaveSuffix = " left the game",
+			startedPrefix = "Done (";
+
+	private static final String[] savedMessages = {
+			"Saved the game",
+			"Saved the world",
+			"Save complete."
+	};
+
+	private static final String[] advancementPhrases = {
+			"has made the advancement [",
+			"has completed the challenge [",
+			"has reached the goal ["
+	};
+
+	private static final String[] deathPhrases = {
+			"was ",
+			"walked into ",
+			"drowned",
+			"died",
+			"experienced kinetic energy",
+			"blew up",
+			"hit the ground too hard",
+			"fell ",
+			"went up in flames",
+			"went off with a bang",
+			"burned to death",
+			"tried to swim in lava",
+			"suffocated in a wall",
+			"starved to death",
+			"withered away",
+			"froze to death",
+			"discovered the floor was lava",
+			"didn't want to live",
+			"left the confines of this world"
+	};
+
+	/**
+	 * The longest name a player may have.
+	 */
+	private static final int maximumNameLength = 16;
+
+	/**
+	 * Prevents the construction of a <code>LogParser</code>, since all of its
+	 * methods are static.
+	 */
+	private LogParser() {
+	}
+
+	/**
+	 * Parses a line of text into the supplied event.
+	 *
+	 * @param line  the line of text to parse
+	 * @param event the event which receives the parts of the line
+	 * @return <code>true</code> if the line has a log header;
+	 * <code>false</code> if it does not, in which case the event is left
+	 * unclassified
+	 */
+	public static boolean parse(CharSequence line, LogEvent event) {
+		event.reset(line);
+		int length = line.length();
+		if (length < 2 || line.charAt(0) != '[') {
+			return false;
+		}
+		int timeEnd = indexOf(line, ']', 1);
+		if (timeEnd == -1) {
+			return false;
+		}
+
+		int messageStart;
+		if (timeEnd + 2 < length && line.charAt(timeEnd + 1) == ' ' && line.charAt(timeEnd + 2) == '[') {
+			int threadStart = timeEnd + 3;
+			int headerEnd = indexOf(line, ']', threadStart);
+			if (headerEnd == -1 || !startsWith(line, headerEnd + 1, ": ")) {
+				return false;
+			}
+			int slash = lastIndexOf(line, '/', threadStart, headerEnd);
+			if (slash == -1) {
+				return false;
+			}
+			messageStart = headerEnd + 3;
+			event.setHeader(1, timeEnd, threadStart, slash, slash + 1, headerEnd, messageStart);
+		} else {
+			int space = lastIndexOf(line, ' ', 1, timeEnd);
+			if (space == -1 || !startsWith(line, timeEnd + 1, ": ")) {
+				return false;
+			}
+			messageStart = timeEnd + 3;
+			event.setHeader(1, space, space + 1, space + 1, space + 1, timeEnd, messageStart);
+		}
+		classify(line, messageStart, event);
+		return true;
+	}
+
+	/**
+	 * Classifies the message of a log line.
+	 *
+	 * @param line  the line of text being parsed
+	 * @param start the start of the message
+	 * @param event the event which receives the type of the message
+	 */
+	private static void classify(CharSequence line, int start, LogEvent event) {
+		int length = line.length();
+		if (start >= length) {
+			return;
+		}
+		if (line.charAt(start) == '<') {
+			int nameEnd = indexOf(line, '>', start + 1);
+			if (nameEnd != -1 && startsWith(line, nameEnd + 1, " ")) {
+				event.setType(LogEventType.CHAT, start + 1, nameEnd, nameEnd + 2, length);
+			}
+			return;
+		}
+		if (startsWith(line, start, startedPrefix)) {
+			event.setType(LogEventType.STARTED, 0, 0, 0, 0);
+			return;
+		}
+		for (String savedMessage : savedMessages) {
+			if (startsWith(line, start, savedMessage)) {
+				event.setType(LogEventType.SAVED, 0, 0, 0, 0);
+				return;
+			}
+		}
+
+		int nameEnd = start;
+		while (nameEnd < length && nameEnd - start <= maximumNameLength && isNameCharacter(line.charAt(nameEnd))) {
+			nameEnd++;
+		}
+		if (nameEnd == start || nameEnd - start > maximumNameLength || nameEnd == length || line.charAt(nameEnd) != ' ') {
+			return;
+		}
+		if (isConnectionMessage(line, nameEnd, joinSuffix)) {
+			event.setType(LogEventType.JOIN, start, nameEnd, 0, 0);
+			return;
+		}
+		if (isConnectionMessage(line, nameEnd, leaveSuffix)) {
+			event.setType(LogEventType.LEAVE, start, nameEnd, 0, 0);
+			return;
+		}
+		int rest = nameEnd + 1;
+		for (String advancementPhrase : advancementPhrases) {
+			if (startsWith(line, rest, advancementPhrase) && line.charAt(length - 1) == ']') {
+				event.setType(LogEventType.ADVANCEMENT, start, nameEnd, rest + advancementPhrase.length(), length - 1);
+				return;
+			}
+		}
+		for (String deathPhrase : deathPhrases) {
+			if (startsWith(line, rest, deathPhrase)) {
+				event.setType(LogEventType.DEATH, start, nameEnd, rest, length);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Determines whether or not the rest of a message, following a player's
+	 * name, is a join or leave message.  The name may be followed by the
+	 * player's former name, in parentheses, when the player has been renamed.
+	 *
+	 * @param line    the line of text being parsed
+	 * @param nameEnd the end of the player's name
+	 * @param suffix  the phrase which ends the message
+	 * @return <code>true</code> if the message is a join or leave message;
+	 * <code>false</code> otherwise
+	 */
+	private static boolean isConnectionMessage(CharSequence line, int nameEnd, String suffix) {
+		return endsWith(line, suffix) && (nameEnd == line.length() - suffix.length() || line.charAt(nameEnd + 1) == '(');
+	}
+
+	/**
+	 * Determines whether or not a character may appear in a player's name.
+	 *
+	 * @param c the character
+	 * @return <code>true</code> if the character is a letter, digit, or
+	 * underscore; <code>false</code> otherwise
+	 */
+	private static boolean isNameCharacter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+	}
+
+	/**
+	 * Finds the first occurrence of a character at or after an index.
+	 *
+	 * @param line  the sequence to search
+	 * @param c     the character to search for
+	 * @param start the index to start searching from
+	 * @return the index of the character, or -1 if it does not occur
+	 */
+	private static int indexOf(CharSequence line, char c, int start) {
+		for (int i = start; i < line.length(); i++) {
+			if (line.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the last occurrence of a character within a range.
+	 *
+	 * @param line  the sequence to search
+	 * @param c     the character to search for
+	 * @param start the start of the range
+	 * @param end   the end of the range
+	 * @return the index of the character, or -1 if it does not occur
+	 */
+	private static int lastIndexOf(CharSequence line, char c, int start, int end) {
+		for (int i = end - 1; i >= start; i--) {
+			if (line.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Determines whether or not a sequence contains a string at an index.
+	 *
+	 * @param line   the sequence to check
+	 * @param offset the index the string should start at
+	 * @param prefix the string
+	 * @return <code>true</code> if the string occurs at the index;
+	 * <code>false</code> otherwise
+	 */
+	private static boolean startsWith(CharSequence line, int offset, String prefix) {
+		if (offset < 0 || offset + prefix.length() > line.length()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (line.charAt(offset + i) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Determines whether or not a sequence ends with a string.
+	 *
+	 * @param line   the sequence to check
+	 * @param suffix the string
+	 * @return <code>true</code> if the sequence ends with the string;
+	 * <code>false</code> otherwise
+	 */
+	private static boolean endsWith(CharSequence line, String suffix) {
+		return startsWith(line, line.length() - suffix.length(), suffix);
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.faulch.minecraft.serverwrapper.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of non-negative values, such as durations in
+ * nanoseconds.  Values are counted in logarithmic buckets, with four buckets
+ * for every power of two, so percentiles are accurate to within about twenty
+ * percent, while recording a value is a single atomic increment.
+ *
+ * @author Jonathan Faulch
+ */
+public class Histogram {
+
+	private static final int subBucketBits = 2;
+	private static final int bucketCount = 64 << subBucketBits;
+
+	private final AtomicLongArray buckets;
+	private final StripedCounter count;
+	private final StripedCounter sum;
+
+	/**
+	 * Creates an empty <code>Histogram</code>.
+	 */
+	public Histogram() {
+		buckets = new AtomicLongArray(bucketCount);
+		count = new StripedCounter();
+		sum = new StripedCounter();
+	}
+
+	/**
+	 * Records a value.  Negative values are recorded as zero.
+	 *
+	 * @param value the value to record
+	 */
+	public void record(long value) {
+		value = Math.max(value, 0);
+		buckets.incrementAndGet(bucketIndex(value));
+		count.increment();
+		sum.add(value);
+	}
+
+	/**
+	 * Gets the number of values recorded.
+	 *
+	 * @return the number of values recorded
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Gets the sum of every value recorded.
+	 *
+	 * @return the sum of every value recorded
+	 */
+	public long getSum() {
+		return sum.sum();
+	}
+
+	/**
+	 * Estimates the value below which the specified fraction of recorded
+	 * values fall.  The estimate is the upper bound of the bucket containing
+	 * the percentile.
+	 *
+	 * @param fraction the fraction of values, between zero and one
+	 * @return the estimated percentile, or zero if no values have been recorded
+	 */
+	public long getPercentile(double fraction) {
+		long total = 0;
+		long[] counts = new long[bucketCount];
+		for (int i = 0; i < bucketCount; i++) {
+			total += counts[i] = buckets.get(i);
+		}
+		long rank = (long) Math.ceil(total * Math.min(Math.max(fraction, 0), 1));
+		long seen = 0;
+		for (int i = 0; i < bucketCount; i++) {
+			seen += counts[i];
+			if (counts[i] > 0 && seen >= rank) {
+				return bucketUpperBound(i);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Gets the index of the bucket which counts the specified value.
+	 *
+	 * @param value a non-negative value
+	 * @return the index of the bucket counting the value
+	 */
+	private static int bucketIndex(long value) {
+		if (value < (1 << subBucketBits)) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - subBucketBits)) & ((1 << subBucketBits) - 1);
+		return ((exponent - subBucketBits + 1) << subBucketBits) | subBucket;
+	}
+
+	/**
+	 * Gets the largest value counted by the specified bucket.
+	 *
+	 * @param index the index of a bucket
+	 * @return the largest value counted by the bucket
+	 */
+	private static long bucketUpperBound(int index) {
+		if (index < (1 << subBucketBits)) {
+			return index;
+		}
+		int exponent = (index >>> subBucketBits) + subBucketBits - 1;
+		long subBucket = index & ((1 << subBucketBits) - 1);
+		long lowerBound = (1L << exponent) | (subBucket << (exponent - subBucketBits));
+		return lowerBound + (1L << (exponent - subBucketBits)) - 1;
+	}
+
+}
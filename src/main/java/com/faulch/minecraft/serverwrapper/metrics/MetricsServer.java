@@ -0,0 +1,79 @@
+package com.faulch.minecraft.serverwrapper.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+/**
+ * Serves the wrapper's metrics in the Prometheus text format over HTTP, using
+ * the HTTP server built into the JDK.  The server only listens on the loopback
+ * interface, and answers requests on a single daemon thread.
+ *
+ * @author Jonathan Faulch
+ */
+public class MetricsServer {
+
+	/**
+	 * The path the metrics are served from.
+	 */
+	public static final String path = "/metrics";
+
+	private final HttpServer server;
+
+	/**
+	 * Creates a <code>MetricsServer</code> and starts listening for requests.
+	 * The server is started from a daemon thread, since its dispatcher thread
+	 * inherits the daemon status of the thread starting it, and must not keep
+	 * the wrapper alive once the Minecraft server has stopped.
+	 *
+	 * @param metrics the metrics to be served
+	 * @param port    the local port to listen on
+	 * @throws IOException if the server could not be bound to the port
+	 */
+	public MetricsServer(final WrapperMetrics metrics, int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getByName(null), port), 0);
+		server.createContext(path, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					byte[] body = metrics.toPrometheusText().getBytes("UTF-8");
+					exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream responseBody = exchange.getResponseBody();
+					responseBody.write(body);
+					responseBody.close();
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		});
+		Thread serverThread = new Thread("Metrics-Server") {
+			@Override
+			public void run() {
+				server.start();
+			}
+		};
+		serverThread.setDaemon(true);
+		serverThread.start();
+	}
+
+	/**
+	 * Stops listening for requests.
+	 */
+	public void stop() {
+		server.stop(0);
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.faulch.minecraft.serverwrapper.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The metrics recorded for a single script, which are the number of times it
+ * has been run, the number of times it has failed, how long it takes to run,
+ * and how much CPU time it has used altogether.
+ *
+ * @author Jonathan Faulch
+ */
+public class ScriptMetrics {
+
+	private final String name;
+	private final StripedCounter errors;
+	private final Histogram latency;
+	private final StripedCounter cpuTime;
+
+	/**
+	 * Creates an empty <code>ScriptMetrics</code> object for the named script.
+	 *
+	 * @param name the name of the script
+	 */
+	public ScriptMetrics(String name) {
+		this.name = name;
+		errors = new StripedCounter();
+		latency = new Histogram();
+		cpuTime = new StripedCounter();
+	}
+
+	/**
+	 * Records a single run of the script.
+	 *
+	 * @param nanos    the number of nanoseconds the script took to run
+	 * @param cpuNanos the number of nanoseconds of CPU time the script used
+	 * @param failed   <code>true</code> if the script failed; <code>false</code>
+	 *                 otherwise
+	 */
+	public void record(long nanos, long cpuNanos, boolean failed) {
+		latency.record(nanos);
+		cpuTime.add(cpuNanos);
+		if (failed) {
+			errors.increment();
+		}
+	}
+
+	/**
+	 * Gets the name of the script.
+	 *
+	 * @return the name of the script
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the number of times the script has been run.
+	 *
+	 * @return the number of times the script has been run
+	 */
+	public long getInvocations() {
+		return latency.getCount();
+	}
+
+	/**
+	 * Gets the number of times the script has failed.
+	 *
+	 * @return the number of times the script has failed
+	 */
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	/**
+	 * Gets the histogram of how long the script takes to run, in nanoseconds.
+	 *
+	 * @return the latency histogram of the script
+	 */
+	public Histogram getLatency() {
+		return latency;
+	}
+
+	/**
+	 * Gets the total number of nanoseconds of CPU time the script has used.
+	 *
+	 * @return the total CPU time of the script
+	 */
+	public long getCpuTime() {
+		return cpuTime.sum();
+	}
+
+	/**
+	 * Summarizes these metrics on a single line, with latencies in
+	 * milliseconds.
+	 *
+	 * @return a summary of these metrics
+	 */
+	@Override
+	public String toString() {
+		return name
+				+ " invocations=" + getInvocations()
+				+ " errors=" + getErrors()
+				+ " p50=" + toMillis(latency.getPercentile(0.5))
+				+ " p95=" + toMillis(latency.getPercentile(0.95))
+				+ " p99=" + toMillis(latency.getPercentile(0.99))
+				+ " cpu=" + toMillis(getCpuTime());
+	}
+
+	/**
+	 * Converts nanoseconds into fractional milliseconds.
+	 *
+	 * @param nanos a number of nanoseconds
+	 * @return the equivalent number of milliseconds
+	 */
+	private static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+}
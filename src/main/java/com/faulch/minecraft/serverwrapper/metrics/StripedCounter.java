@@ -0,0 +1,67 @@
+package com.faulch.minecraft.serverwrapper.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter which can be incremented by many threads at once without
+ * contention.  The count is spread across several stripes, each on its own
+ * cache line, and each thread increments the stripe chosen by its id.  Reading
+ * the count sums every stripe, so reads are slower than writes, which suits
+ * counters that are written on every line but only read when metrics are
+ * collected.
+ *
+ * @author Jonathan Faulch
+ */
+public class StripedCounter {
+
+	/**
+	 * The number of array elements between stripes, so that each stripe sits
+	 * on its own 64 byte cache line.
+	 */
+	private static final int padding = 8;
+
+	private final AtomicLongArray stripes;
+	private final int mask;
+
+	/**
+	 * Creates a <code>StripedCounter</code> with a count of zero, and enough
+	 * stripes for the number of available processors.
+	 */
+	public StripedCounter() {
+		int stripeCount = Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors(), 1) * 2 - 1) * 2;
+		stripes = new AtomicLongArray(stripeCount * padding);
+		mask = stripeCount - 1;
+	}
+
+	/**
+	 * Adds one to the count.
+	 */
+	public void increment() {
+		add(1);
+	}
+
+	/**
+	 * Adds the specified amount to the count.
+	 *
+	 * @param amount the amount to add
+	 */
+	public void add(long amount) {
+		long id = Thread.currentThread().threadId();
+		int stripe = (int) (id ^ (id >>> 16)) & mask;
+		stripes.addAndGet(stripe * padding, amount);
+	}
+
+	/**
+	 * Gets the count, by summing every stripe.
+	 *
+	 * @return the count
+	 */
+	public long sum() {
+		long sum = 0;
+		for (int i = 0; i < stripes.length(); i += padding) {
+			sum += stripes.get(i);
+		}
+		return sum;
+	}
+
+}
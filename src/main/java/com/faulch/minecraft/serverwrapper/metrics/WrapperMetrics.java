@@ -0,0 +1,458 @@
+package com.faulch.minecraft.serverwrapper.metrics;
+
+import com.faulch.minecraft.serverwrapper.Console;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records what the wrapper is doing, so that it can be observed while under
+ * load.  Lines and commands are counted with striped counters, and script
+ * latencies are recorded in lock free histograms, so recording is cheap enough
+ * to be done on every line.  The metrics can be read through JMX once this
+ * object is registered, or in the Prometheus text format.
+ * <p>
+ * Scripts and invokers are each tracked under at most a fixed number of
+ * names, so that thousands of distinct players cannot grow the heap, or the
+ * metrics text, without limit.  Once that many names are tracked, any new name
+ * is counted under <code>(other)</code>.  Names are never forgotten, since
+ * that would make their counters go backwards.
+ *
+ * @author Jonathan Faulch
+ */
+public class WrapperMetrics implements WrapperMetricsMBean {
+
+	/**
+	 * The name this object is registered under with the platform MBean server.
+	 */
+	public static final String objectName = "com.faulch.minecraft.serverwrapper:type=WrapperMetrics";
+
+	/**
+	 * The number of script names, and of invoker names, which are tracked
+	 * separately.
+	 */
+	private static final int nameLimit = 256;
+
+	/**
+	 * The name which scripts and invokers beyond the limit are counted under.
+	 */
+	private static final String otherName = "(other)";
+
+	private final Console console;
+	private final StripedCounter outputLines;
+	private final StripedCounter inputLines;
+	private final StripedCounter triggerMatches;
+	private final StripedCounter scheduledRuns;
+	private final StripedCounter missedScheduledRuns;
+	private final StripedCounter rejectedScripts;
+	private final StripedCounter cancelledScripts;
+	private final ConcurrentMap<String, ScriptMetrics> scripts;
+	private final ConcurrentMap<String, StripedCounter> commands;
+	private final Rate outputRate;
+	private final Rate inputRate;
+
+	/**
+	 * Creates an empty <code>WrapperMetrics</code> object, which reads the
+	 * depths of the queues of the supplied console.
+	 *
+	 * @param console the console whose queues are measured
+	 */
+	public WrapperMetrics(Console console) {
+		this.console = console;
+		outputLines = new StripedCounter();
+		inputLines = new StripedCounter();
+		triggerMatches = new StripedCounter();
+		scheduledRuns = new StripedCounter();
+		missedScheduledRuns = new StripedCounter();
+		rejectedScripts = new StripedCounter();
+		cancelledScripts = new StripedCounter();
+		scripts = new ConcurrentHashMap<String, ScriptMetrics>();
+		commands = new ConcurrentHashMap<String, StripedCounter>();
+		outputRate = new Rate();
+		inputRate = new Rate();
+	}
+
+	/**
+	 * Registers this object with the platform MBean server, so that it can be
+	 * read by JMX clients.
+	 */
+	public void register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Records a line written to standard output.
+	 *
+	 * @param matched <code>true</code> if the line matched a trigger;
+	 *                <code>false</code> otherwise
+	 */
+	public void recordOutputLine(boolean matched) {
+		outputLines.increment();
+		if (matched) {
+			triggerMatches.increment();
+		}
+	}
+
+	/**
+	 * Records a line read from standard input.
+	 *
+	 * @param matched <code>true</code> if the line matched a trigger;
+	 *                <code>false</code> otherwise
+	 */
+	public void recordInputLine(boolean matched) {
+		inputLines.increment();
+		if (matched) {
+			triggerMatches.increment();
+		}
+	}
+
+	/**
+	 * Records a single run of a script.  If too many scripts are already
+	 * tracked, then the run is counted under <code>(other)</code>.
+	 *
+	 * @param name     the name of the script
+	 * @param nanos    the number of nanoseconds the script took to run
+	 * @param cpuNanos the number of nanoseconds of CPU time the script used
+	 * @param failed   <code>true</code> if the script failed; <code>false</code>
+	 *                 otherwise
+	 */
+	public void recordScript(String name, long nanos, long cpuNanos, boolean failed) {
+		ScriptMetrics script = scripts.get(name);
+		if (script == null && scripts.size() >= nameLimit) {
+			name = otherName;
+			script = scripts.get(name);
+		}
+		if (script == null) {
+			ScriptMetrics created = new ScriptMetrics(name);
+			script = scripts.putIfAbsent(name, created);
+			if (script == null) {
+				script = created;
+			}
+		}
+		script.record(nanos, cpuNanos, failed);
+	}
+
+	/**
+	 * Records a planned run of a scheduled job.
+	 *
+	 * @param missed <code>true</code> if the run was skipped; <code>false</code>
+	 *               if it was started
+	 */
+	public void recordScheduledRun(boolean missed) {
+		if (missed) {
+			missedScheduledRuns.increment();
+		} else {
+			scheduledRuns.increment();
+		}
+	}
+
+	/**
+	 * Records a script which a player triggered, but was not admitted to run.
+	 */
+	public void recordRejectedScript() {
+		rejectedScripts.increment();
+	}
+
+	/**
+	 * Records a script which was stopped before it finished, because it
+	 * exceeded its time limits or was killed.
+	 */
+	public void recordCancelledScript() {
+		cancelledScripts.increment();
+	}
+
+	/**
+	 * Records a command executed by an invoker.  If too many invokers are
+	 * already tracked, then the command is counted under <code>(other)</code>.
+	 *
+	 * @param invoker the name of the invoker which executed the command
+	 */
+	public void recordCommand(String invoker) {
+		StripedCounter counter = commands.get(invoker);
+		if (counter == null && commands.size() >= nameLimit) {
+			invoker = otherName;
+			counter = commands.get(invoker);
+		}
+		if (counter == null) {
+			StripedCounter created = new StripedCounter();
+			counter = commands.putIfAbsent(invoker, created);
+			if (counter == null) {
+				counter = created;
+			}
+		}
+		counter.increment();
+	}
+
+	@Override
+	public long getOutputLines() {
+		return outputLines.sum();
+	}
+
+	@Override
+	public double getOutputLinesPerSecond() {
+		return outputRate.update(getOutputLines());
+	}
+
+	@Override
+	public long getInputLines() {
+		return inputLines.sum();
+	}
+
+	@Override
+	public double getInputLinesPerSecond() {
+		return inputRate.update(getInputLines());
+	}
+
+	@Override
+	public int getInputQueueDepth() {
+		return console.getStandardInput().getQueueDepth();
+	}
+
+	@Override
+	public int getCommandQueueDepth() {
+		return console.getCommandQueueDepth();
+	}
+
+	@Override
+	public int getScriptQueueDepth() {
+		return console.getScriptQueueDepth();
+	}
+
+	@Override
+	public long getTriggerMatches() {
+		return triggerMatches.sum();
+	}
+
+	@Override
+	public double getTriggerMatchRate() {
+		long lines = getOutputLines() + getInputLines();
+		return lines == 0 ? 0 : getTriggerMatches() / (double) lines;
+	}
+
+	@Override
+	public long getScriptInvocations() {
+		long invocations = 0;
+		for (ScriptMetrics script : scripts.values()) {
+			invocations += script.getInvocations();
+		}
+		return invocations;
+	}
+
+	@Override
+	public long getScriptErrors() {
+		long errors = 0;
+		for (ScriptMetrics script : scripts.values()) {
+			errors += script.getErrors();
+		}
+		return errors;
+	}
+
+	@Override
+	public long getScheduledRuns() {
+		return scheduledRuns.sum();
+	}
+
+	@Override
+	public long getMissedScheduledRuns() {
+		return missedScheduledRuns.sum();
+	}
+
+	@Override
+	public long getRejectedScripts() {
+		return rejectedScripts.sum();
+	}
+
+	@Override
+	public long getCancelledScripts() {
+		return cancelledScripts.sum();
+	}
+
+	@Override
+	public String[] getScriptStatistics() {
+		List<String> statistics = new ArrayList<String>();
+		for (ScriptMetrics script : new TreeMap<String, ScriptMetrics>(scripts).values()) {
+			statistics.add(script.toString());
+		}
+		return statistics.toArray(new String[statistics.size()]);
+	}
+
+	@Override
+	public String[] getCommandsByInvoker() {
+		List<String> counts = new ArrayList<String>();
+		for (Map.Entry<String, StripedCounter> entry : new TreeMap<String, StripedCounter>(commands).entrySet()) {
+			counts.add(entry.getKey() + " commands=" + entry.getValue().sum());
+		}
+		return counts.toArray(new String[counts.size()]);
+	}
+
+	/**
+	 * Writes every metric in the Prometheus text exposition format.
+	 *
+	 * @return the metrics in the Prometheus text format
+	 */
+	public String toPrometheusText() {
+		StringBuilder text = new StringBuilder(1024);
+		appendMetric(text, "wrapper_output_lines_total", "counter", "Lines written to standard output.", getOutputLines());
+		appendMetric(text, "wrapper_input_lines_total", "counter", "Lines read from standard input.", getInputLines());
+		appendMetric(text, "wrapper_trigger_matches_total", "counter", "Lines which matched a trigger.", getTriggerMatches());
+		appendMetric(text, "wrapper_scheduled_runs_total", "counter", "Runs of scheduled jobs which were started.", getScheduledRuns());
+		appendMetric(text, "wrapper_scheduled_missed_runs_total", "counter", "Runs of scheduled jobs which were skipped.", getMissedScheduledRuns());
+		appendMetric(text, "wrapper_rejected_scripts_total", "counter", "Scripts triggered by players which were not admitted.", getRejectedScripts());
+		appendMetric(text, "wrapper_cancelled_scripts_total", "counter", "Scripts stopped for exceeding their time limits or being killed.", getCancelledScripts());
+		appendMetric(text, "wrapper_input_queue_depth", "gauge", "Lines waiting to be read from standard input.", getInputQueueDepth());
+		appendMetric(text, "wrapper_command_queue_depth", "gauge", "Commands waiting to be passed to standard input.", getCommandQueueDepth());
+		appendMetric(text, "wrapper_script_queue_depth", "gauge", "Scripts waiting to run.", getScriptQueueDepth());
+
+		Map<String, ScriptMetrics> sortedScripts = new TreeMap<String, ScriptMetrics>(scripts);
+		appendHeader(text, "wrapper_script_errors_total", "counter", "Scripts which failed.");
+		for (ScriptMetrics script : sortedScripts.values()) {
+			appendSample(text, "wrapper_script_errors_total", "script", script.getName(), null, script.getErrors());
+		}
+		appendHeader(text, "wrapper_script_duration_seconds", "summary", "Time taken to run scripts.");
+		for (ScriptMetrics script : sortedScripts.values()) {
+			Histogram latency = script.getLatency();
+			for (String quantile : new String[] {"0.5", "0.95", "0.99"}) {
+				appendSample(text, "wrapper_script_duration_seconds", "script", script.getName(), quantile, toSeconds(latency.getPercentile(Double.parseDouble(quantile))));
+			}
+			appendSample(text, "wrapper_script_duration_seconds_sum", "script", script.getName(), null, toSeconds(latency.getSum()));
+			appendSample(text, "wrapper_script_duration_seconds_count", "script", script.getName(), null, latency.getCount());
+		}
+		appendHeader(text, "wrapper_script_cpu_seconds_total", "counter", "CPU time used by scripts.");
+		for (ScriptMetrics script : sortedScripts.values()) {
+			appendSample(text, "wrapper_script_cpu_seconds_total", "script", script.getName(), null, toSeconds(script.getCpuTime()));
+		}
+		appendHeader(text, "wrapper_commands_total", "counter", "Commands executed by each invoker.");
+		for (Map.Entry<String, StripedCounter> entry : new TreeMap<String, StripedCounter>(commands).entrySet()) {
+			appendSample(text, "wrapper_commands_total", "invoker", entry.getKey(), null, entry.getValue().sum());
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Appends an unlabeled metric, along with its help and type comments.
+	 *
+	 * @param text  the text being written
+	 * @param name  the name of the metric
+	 * @param type  the type of the metric
+	 * @param help  a description of the metric
+	 * @param value the value of the metric
+	 */
+	private static void appendMetric(StringBuilder text, String name, String type, String help, Number value) {
+		appendHeader(text, name, type, help);
+		appendSample(text, name, null, null, null, value);
+	}
+
+	/**
+	 * Appends the help and type comments of a metric.
+	 *
+	 * @param text the text being written
+	 * @param name the name of the metric
+	 * @param type the type of the metric
+	 * @param help a description of the metric
+	 */
+	private static void appendHeader(StringBuilder text, String name, String type, String help) {
+		text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	/**
+	 * Appends a single sample of a metric.
+	 *
+	 * @param text       the text being written
+	 * @param name       the name of the metric
+	 * @param labelName  the name of the sample's label, or <code>null</code> if it
+	 *                   has no label
+	 * @param labelValue the value of the sample's label
+	 * @param quantile   the quantile of the sample, or <code>null</code> if it is
+	 *                   not a quantile
+	 * @param value      the value of the sample
+	 */
+	private static void appendSample(StringBuilder text, String name, String labelName, String labelValue, String quantile, Number value) {
+		text.append(name);
+		if (labelName != null || quantile != null) {
+			text.append('{');
+			if (labelName != null) {
+				text.append(labelName).append("=\"");
+				appendEscaped(text, labelValue);
+				text.append('"');
+			}
+			if (quantile != null) {
+				text.append(labelName != null ? "," : "").append("quantile=\"").append(quantile).append('"');
+			}
+			text.append('}');
+		}
+		text.append(' ').append(value).append('\n');
+	}
+
+	/**
+	 * Appends a label value, escaping backslashes, quotes, and line feeds.
+	 *
+	 * @param text  the text being written
+	 * @param value the label value
+	 */
+	private static void appendEscaped(StringBuilder text, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' || c == '"') {
+				text.append('\\').append(c);
+			} else if (c == '\n') {
+				text.append("\\n");
+			} else {
+				text.append(c);
+			}
+		}
+	}
+
+	/**
+	 * Converts nanoseconds into fractional seconds.
+	 *
+	 * @param nanos a number of nanoseconds
+	 * @return the equivalent number of seconds
+	 */
+	private static double toSeconds(long nanos) {
+		return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+	}
+
+	/**
+	 * Measures how quickly a counter increases, averaged over the time between
+	 * reads.
+	 */
+	private static class Rate {
+
+		private long lastCount;
+		private long lastTime = System.nanoTime();
+		private double rate;
+
+		/**
+		 * Updates this rate with the current value of a counter.  If less
+		 * than a second has passed since the last update, then the previous
+		 * rate is returned, so that frequent reads remain meaningful.
+		 *
+		 * @param count the current value of the counter
+		 * @return the number of counts per second
+		 */
+		private synchronized double update(long count) {
+			long now = System.nanoTime();
+			long elapsed = now - lastTime;
+			if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+				rate = (count - lastCount) / (elapsed / (double) TimeUnit.SECONDS.toNanos(1));
+				lastCount = count;
+				lastTime = now;
+			}
+			return rate;
+		}
+
+	}
+
+}
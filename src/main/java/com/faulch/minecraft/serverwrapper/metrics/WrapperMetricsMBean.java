@@ -0,0 +1,137 @@
+package com.faulch.minecraft.serverwrapper.metrics;
+
+/**
+ * The management interface of <code>WrapperMetrics</code>, which exposes the
+ * wrapper's metrics to JMX clients such as JConsole and VisualVM.  Rates are
+ * averaged over the time since they were last read, so they are most
+ * meaningful when polled at a regular interval.
+ *
+ * @author Jonathan Faulch
+ */
+public interface WrapperMetricsMBean {
+
+	/**
+	 * Gets the number of lines written to standard output.
+	 *
+	 * @return the number of lines written to standard output
+	 */
+	long getOutputLines();
+
+	/**
+	 * Gets the number of lines written to standard output per second.
+	 *
+	 * @return the number of lines written to standard output per second
+	 */
+	double getOutputLinesPerSecond();
+
+	/**
+	 * Gets the number of lines read from standard input.
+	 *
+	 * @return the number of lines read from standard input
+	 */
+	long getInputLines();
+
+	/**
+	 * Gets the number of lines read from standard input per second.
+	 *
+	 * @return the number of lines read from standard input per second
+	 */
+	double getInputLinesPerSecond();
+
+	/**
+	 * Gets the number of lines waiting to be read from standard input.
+	 *
+	 * @return the number of lines waiting to be read from standard input
+	 */
+	int getInputQueueDepth();
+
+	/**
+	 * Gets the number of commands waiting to be passed to standard input.
+	 *
+	 * @return the number of commands waiting to be passed to standard input
+	 */
+	int getCommandQueueDepth();
+
+	/**
+	 * Gets the number of scripts waiting to run.
+	 *
+	 * @return the number of scripts waiting to run
+	 */
+	int getScriptQueueDepth();
+
+	/**
+	 * Gets the number of lines which have matched a trigger.
+	 *
+	 * @return the number of lines which have matched a trigger
+	 */
+	long getTriggerMatches();
+
+	/**
+	 * Gets the fraction of lines which have matched a trigger.
+	 *
+	 * @return the fraction of lines which have matched a trigger
+	 */
+	double getTriggerMatchRate();
+
+	/**
+	 * Gets the number of times any script has been run.
+	 *
+	 * @return the number of times any script has been run
+	 */
+	long getScriptInvocations();
+
+	/**
+	 * Gets the number of times any script has failed.
+	 *
+	 * @return the number of times any script has failed
+	 */
+	long getScriptErrors();
+
+	/**
+	 * Gets the number of runs of scheduled jobs which were started.
+	 *
+	 * @return the number of scheduled runs started
+	 */
+	long getScheduledRuns();
+
+	/**
+	 * Gets the number of runs of scheduled jobs which were skipped, because
+	 * the previous run had not finished, because too many scripts were waiting
+	 * to run, or because the scheduler fell behind.
+	 *
+	 * @return the number of scheduled runs skipped
+	 */
+	long getMissedScheduledRuns();
+
+	/**
+	 * Gets the number of scripts triggered by players which were not admitted
+	 * to run, because a player or the server had reached its limits.
+	 *
+	 * @return the number of scripts rejected by admission control
+	 */
+	long getRejectedScripts();
+
+	/**
+	 * Gets the number of scripts which were stopped before they finished,
+	 * because they exceeded their time limits or were killed.
+	 *
+	 * @return the number of cancelled scripts
+	 */
+	long getCancelledScripts();
+
+	/**
+	 * Gets a summary of the metrics of each script, one script per element.
+	 *
+	 * @return a summary of the metrics of each script
+	 */
+	String[] getScriptStatistics();
+
+	/**
+	 * Gets the number of commands executed by each invoker, one invoker per
+	 * element.
+	 *
+	 * @return the number of commands executed by each invoker
+	 */
+	String[] getCommandsByInvoker();
+
+}
@@ -0,0 +1,142 @@
+package com.faulch.minecraft.serverwrapper.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The future result of a query, which completes once enough lines of standard
+ * output have matched the query's response pattern, or fails with a
+ * <code>TimeoutException</code> if they do not arrive in time.  Cancelling the
+ * future withdraws the query.
+ *
+ * @author Jonathan Faulch
+ */
+public class QueryFuture extends FutureTask<List<MatchResult>> {
+
+	private final ResponseCorrelator correlator;
+	private final String command;
+	private final Pattern responsePattern;
+	private final int responseCount;
+	private final List<MatchResult> responses;
+	private volatile boolean delivered;
+	private volatile ScheduledFuture<?> timeout;
+
+	/**
+	 * Creates a <code>QueryFuture</code>.
+	 *
+	 * @param correlator      the correlator the query is registered with
+	 * @param command         the command which was issued
+	 * @param responsePattern the pattern which the response lines match
+	 * @param responseCount   the number of response lines to wait for
+	 */
+	QueryFuture(ResponseCorrelator correlator, String command, Pattern responsePattern, int responseCount) {
+		super(new Callable<List<MatchResult>>() {
+			@Override
+			public List<MatchResult> call() {
+				throw new IllegalStateException("Queries are completed by their responses.");
+			}
+		});
+		this.correlator = correlator;
+		this.command = command;
+		this.responsePattern = responsePattern;
+		this.responseCount = Math.max(responseCount, 1);
+		responses = new ArrayList<MatchResult>(this.responseCount);
+	}
+
+	/**
+	 * Gets the command which was issued by this query.
+	 *
+	 * @return the command which was issued
+	 */
+	public String getCommand() {
+		return command;
+	}
+
+	/**
+	 * Marks the command as having been passed to standard input, after which
+	 * output lines may be matched against this query.
+	 */
+	void setDelivered() {
+		delivered = true;
+	}
+
+	/**
+	 * Sets the task which fails this query once it times out, so that it can
+	 * be cancelled once the query completes.
+	 *
+	 * @param timeout the timeout task
+	 */
+	void setTimeout(ScheduledFuture<?> timeout) {
+		this.timeout = timeout;
+		if (isDone()) {
+			timeout.cancel(false);
+		}
+	}
+
+	/**
+	 * Attempts to match a line of output against this query, and completes
+	 * the query once enough lines have matched.
+	 *
+	 * @param line the line of output
+	 * @return <code>true</code> if this query consumed the line;
+	 * <code>false</code> otherwise
+	 */
+	synchronized boolean offer(CharSequence line) {
+		if (!delivered || isDone()) {
+			return false;
+		}
+		Matcher matcher = responsePattern.matcher(line);
+		if (!matcher.find()) {
+			return false;
+		}
+		responses.add(snapshot(matcher, line));
+		if (responses.size() >= responseCount) {
+			set(Collections.unmodifiableList(new ArrayList<MatchResult>(responses)));
+		}
+		return true;
+	}
+
+	/**
+	 * Fails this query with a <code>TimeoutException</code>, unless it has
+	 * already completed.
+	 */
+	void expire() {
+		setException(new TimeoutException("No response to \"" + command + "\" matching \"" + responsePattern.pattern() + "\"."));
+	}
+
+	/**
+	 * Withdraws this query from the correlator, and cancels its timeout, once
+	 * it completes for any reason.
+	 */
+	@Override
+	protected void done() {
+		correlator.remove(this);
+		ScheduledFuture<?> currentTimeout = timeout;
+		if (currentTimeout != null) {
+			currentTimeout.cancel(false);
+		}
+	}
+
+	/**
+	 * Copies a match, so that it remains valid after the line it was matched
+	 * against, which may be a view over a reused buffer, has changed.
+	 *
+	 * @param matcher the matcher which found the match
+	 * @param line    the line which was matched
+	 * @return a match result over a copy of the line
+	 */
+	private MatchResult snapshot(Matcher matcher, CharSequence line) {
+		Matcher copy = responsePattern.matcher(line.toString());
+		copy.find(matcher.start());
+		return copy.toMatchResult();
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.faulch.minecraft.serverwrapper.query;
+
+import com.faulch.minecraft.serverwrapper.line.LineEvent;
+import com.faulch.minecraft.serverwrapper.line.LineProcessor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Correlates lines of standard output with the queries which are waiting for
+ * them.  The server does not say which command a line of output responds to,
+ * so each line is offered to the waiting queries in the order their commands
+ * were issued, and is consumed by the oldest query whose response pattern it
+ * matches.  A query only starts matching lines once its command has been
+ * passed to standard input, so output logged before the command was issued is
+ * never mistaken for its response.  Timeouts for every query are handled by a
+ * single shared daemon thread.
+ *
+ * @author Jonathan Faulch
+ */
+public class ResponseCorrelator implements LineProcessor {
+
+	private final Queue<QueryFuture> queries;
+	private final ScheduledExecutorService timeoutExecutor;
+
+	/**
+	 * Creates a <code>ResponseCorrelator</code> with no waiting queries.  The
+	 * timeout of a query which completes in time is removed from the timeout
+	 * thread's queue as soon as it is cancelled, rather than lingering until
+	 * it would have expired.
+	 */
+	public ResponseCorrelator() {
+		queries = new ConcurrentLinkedQueue<QueryFuture>();
+		ScheduledThreadPoolExecutor timeoutExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Query-Timeout");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		timeoutExecutor.setRemoveOnCancelPolicy(true);
+		this.timeoutExecutor = timeoutExecutor;
+	}
+
+	/**
+	 * Registers a query which will wait for its response.  The query does not
+	 * match any lines until <code>setDelivered</code> is called on it.
+	 *
+	 * @param command         the command being issued
+	 * @param responsePattern the pattern which the response lines match
+	 * @param responseCount   the number of response lines to wait for
+	 * @param timeout         the time to wait for the response
+	 * @param unit            the unit of the timeout
+	 * @return the future result of the query
+	 */
+	public QueryFuture register(String command, Pattern responsePattern, int responseCount, long timeout, TimeUnit unit) {
+		final QueryFuture query = new QueryFuture(this, command, responsePattern, responseCount);
+		queries.add(query);
+		query.setTimeout(timeoutExecutor.schedule(new Runnable() {
+			@Override
+			public void run() {
+				query.expire();
+			}
+		}, timeout, unit));
+		return query;
+	}
+
+	/**
+	 * Marks the command of a query as having been passed to standard input.
+	 *
+	 * @param query the query whose command was delivered
+	 */
+	public void setDelivered(QueryFuture query) {
+		query.setDelivered();
+	}
+
+	/**
+	 * Withdraws a query, so that it is no longer offered lines.
+	 *
+	 * @param query the query to withdraw
+	 */
+	void remove(QueryFuture query) {
+		queries.remove(query);
+	}
+
+	/**
+	 * Gets the number of queries waiting for a response.
+	 *
+	 * @return the number of waiting queries
+	 */
+	public int getPendingCount() {
+		return queries.size();
+	}
+
+	/**
+	 * Offers the line to each waiting query, oldest first, until one of them
+	 * consumes it.  Nothing is done when no queries are waiting.
+	 *
+	 * @param event the event containing the line of output
+	 */
+	@Override
+	public void processLine(LineEvent event) {
+		if (queries.isEmpty()) {
+			return;
+		}
+		for (QueryFuture query : queries) {
+			if (query.offer(event.getText())) {
+				return;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.faulch.minecraft.serverwrapper.region;
+
+/**
+ * A solid box of blocks.
+ *
+ * @author Jonathan Faulch
+ */
+class Box implements Shape {
+
+	private final Cuboid cuboid;
+
+	/**
+	 * Creates a <code>Box</code> covering the supplied cuboid.
+	 *
+	 * @param cuboid the blocks covered by the box
+	 */
+	Box(Cuboid cuboid) {
+		this.cuboid = cuboid;
+	}
+
+	@Override
+	public Cuboid getBounds() {
+		return cuboid;
+	}
+
+	@Override
+	public void rasterize(VoxelGrid grid) {
+		for (int z = cuboid.getMinZ(); z <= cuboid.getMaxZ(); z++) {
+			for (int x = cuboid.getMinX(); x <= cuboid.getMaxX(); x++) {
+				grid.setColumn(x, cuboid.getMinY(), cuboid.getMaxY(), z);
+			}
+		}
+	}
+
+}
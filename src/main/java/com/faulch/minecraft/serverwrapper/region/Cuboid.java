@@ -0,0 +1,108 @@
+package com.faulch.minecraft.serverwrapper.region;
+
+/**
+ * An axis aligned box of blocks, identified by two opposite corners.  Both
+ * corners are included in the box, exactly as they are in a
+ * <code>fill</code> command.
+ *
+ * @author Jonathan Faulch
+ */
+public class Cuboid {
+
+	private final int x1, y1, z1, x2, y2, z2;
+
+	/**
+	 * Creates a <code>Cuboid</code> from two opposite corners, which may be
+	 * supplied in any order.
+	 *
+	 * @param x1 the x coordinate of the first corner
+	 * @param y1 the y coordinate of the first corner
+	 * @param z1 the z coordinate of the first corner
+	 * @param x2 the x coordinate of the second corner
+	 * @param y2 the y coordinate of the second corner
+	 * @param z2 the z coordinate of the second corner
+	 */
+	public Cuboid(int x1, int y1, int z1, int x2, int y2, int z2) {
+		this.x1 = Math.min(x1, x2);
+		this.y1 = Math.min(y1, y2);
+		this.z1 = Math.min(z1, z2);
+		this.x2 = Math.max(x1, x2);
+		this.y2 = Math.max(y1, y2);
+		this.z2 = Math.max(z1, z2);
+	}
+
+	/**
+	 * Gets the smallest x coordinate in this cuboid.
+	 *
+	 * @return the smallest x coordinate
+	 */
+	public int getMinX() {
+		return x1;
+	}
+
+	/**
+	 * Gets the smallest y coordinate in this cuboid.
+	 *
+	 * @return the smallest y coordinate
+	 */
+	public int getMinY() {
+		return y1;
+	}
+
+	/**
+	 * Gets the smallest z coordinate in this cuboid.
+	 *
+	 * @return the smallest z coordinate
+	 */
+	public int getMinZ() {
+		return z1;
+	}
+
+	/**
+	 * Gets the largest x coordinate in this cuboid.
+	 *
+	 * @return the largest x coordinate
+	 */
+	public int getMaxX() {
+		return x2;
+	}
+
+	/**
+	 * Gets the largest y coordinate in this cuboid.
+	 *
+	 * @return the largest y coordinate
+	 */
+	public int getMaxY() {
+		return y2;
+	}
+
+	/**
+	 * Gets the largest z coordinate in this cuboid.
+	 *
+	 * @return the largest z coordinate
+	 */
+	public int getMaxZ() {
+		return z2;
+	}
+
+	/**
+	 * Gets the number of blocks in this cuboid.
+	 *
+	 * @return the number of blocks in this cuboid
+	 */
+	public long getVolume() {
+		return (long) (x2 - x1 + 1) * (y2 - y1 + 1) * (z2 - z1 + 1);
+	}
+
+	/**
+	 * Formats the corners of this cuboid as they would appear in a
+	 * <code>fill</code> command.
+	 *
+	 * @return the six corner coordinates separated by spaces
+	 */
+	@Override
+	public String toString() {
+		return x1 + " " + y1 + " " + z1 + " " + x2 + " " + y2 + " " + z2;
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.faulch.minecraft.serverwrapper.region;
+
+/**
+ * A solid, axis aligned ellipsoid of blocks.  A block is inside the ellipsoid
+ * when its offset from the center satisfies the ellipsoid equation, which is
+ * evaluated with integer arithmetic so that the result is exact.
+ *
+ * @author Jonathan Faulch
+ */
+class Ellipsoid implements Shape {
+
+	private final int x, y, z;
+	private final int rx, ry, rz;
+
+	/**
+	 * Creates an <code>Ellipsoid</code> from its center and radii.
+	 *
+	 * @param x  the x coordinate of the center
+	 * @param y  the y coordinate of the center
+	 * @param z  the z coordinate of the center
+	 * @param rx the radius along the x axis
+	 * @param ry the radius along the y axis
+	 * @param rz the radius along the z axis
+	 */
+	Ellipsoid(int x, int y, int z, int rx, int ry, int rz) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.rx = Math.abs(rx);
+		this.ry = Math.abs(ry);
+		this.rz = Math.abs(rz);
+	}
+
+	@Override
+	public Cuboid getBounds() {
+		return new Cuboid(x - rx, y - ry, z - rz, x + rx, y + ry, z + rz);
+	}
+
+	@Override
+	public void rasterize(VoxelGrid grid) {
+		long rx2 = (long) rx * rx, ry2 = (long) ry * ry, rz2 = (long) rz * rz;
+		long limit = rx2 * rz2;
+		for (int mz = -rz; mz <= rz; mz++) {
+			for (int mx = -rx; mx <= rx; mx++) {
+				long remainder = limit - (long) mx * mx * rz2 - rx2 * mz * mz;
+				if (remainder >= 0) {
+					int my = limit == 0 ? ry : (int) Math.min(ry, (long) (ry * Math.sqrt((double) remainder / limit)));
+					while (my < ry && isWithin(my + 1, ry2, remainder, limit)) {
+						my++;
+					}
+					while (my > 0 && !isWithin(my, ry2, remainder, limit)) {
+						my--;
+					}
+					grid.setColumn(x + mx, y - my, y + my, z + mz);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determines whether or not a vertical offset lies within the ellipsoid,
+	 * in the column whose horizontal offsets leave the supplied remainder.
+	 * The radius along the y axis is not limited by the size of the grid, so
+	 * the products are compared with 128 bits of precision.
+	 *
+	 * @param my        the vertical offset from the center
+	 * @param ry2       the square of the radius along the y axis
+	 * @param remainder the limit, less the horizontal terms of the ellipsoid
+	 *                  equation scaled by the limit
+	 * @param limit     the product of the squares of the x and z radii
+	 * @return <code>true</code> if the offset lies within the ellipsoid;
+	 * <code>false</code> otherwise
+	 */
+	private static boolean isWithin(int my, long ry2, long remainder, long limit) {
+		long my2 = (long) my * my;
+		long high = Math.multiplyHigh(my2, limit), otherHigh = Math.multiplyHigh(ry2, remainder);
+		return high != otherHigh ? high < otherHigh : Long.compareUnsigned(my2 * limit, ry2 * remainder) <= 0;
+	}
+
+}
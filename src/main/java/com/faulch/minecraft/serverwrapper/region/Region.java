@@ -0,0 +1,230 @@
+package com.faulch.minecraft.serverwrapper.region;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A collection of solid shapes which can be converted into a short list of
+ * <code>fill</code> commands.  Rather than issuing a command for every column
+ * of a shape, the blocks of every shape in the region are merged into as few
+ * cuboids as possible, without exceeding the volume limit of a single
+ * <code>fill</code> command, and without leaving the height limits of the
+ * world.  The <code>hollow</code> and <code>outline</code> modes of
+ * <code>fill</code> only change the faces of each cuboid, so blocks filled
+ * with those modes are instead split into single columns, which have no
+ * interior.
+ *
+ * @author Jonathan Faulch
+ */
+public class Region {
+
+	private final int minY;
+	private final int maxY;
+	private final int volumeLimit;
+	private final List<Shape> shapes;
+	private VoxelSet voxels;
+
+	/**
+	 * Creates an empty <code>Region</code>.
+	 *
+	 * @param minY        the lowest y coordinate in the world
+	 * @param maxY        the highest y coordinate in the world
+	 * @param volumeLimit the largest number of blocks a single <code>fill</code>
+	 *                    command may change
+	 */
+	public Region(int minY, int maxY, int volumeLimit) {
+		this.minY = minY;
+		this.maxY = maxY;
+		this.volumeLimit = Math.max(volumeLimit, 1);
+		shapes = new ArrayList<Shape>();
+	}
+
+	/**
+	 * Adds a solid box to this region.
+	 *
+	 * @param x1 the x coordinate of the first corner
+	 * @param y1 the y coordinate of the first corner
+	 * @param z1 the z coordinate of the first corner
+	 * @param x2 the x coordinate of the opposite corner
+	 * @param y2 the y coordinate of the opposite corner
+	 * @param z2 the z coordinate of the opposite corner
+	 * @return this region as a convenience
+	 */
+	public Region addBox(int x1, int y1, int z1, int x2, int y2, int z2) {
+		shapes.add(new Box(new Cuboid(x1, y1, z1, x2, y2, z2)));
+		return this;
+	}
+
+	/**
+	 * Adds a solid sphere to this region.
+	 *
+	 * @param x      the x coordinate of the center
+	 * @param y      the y coordinate of the center
+	 * @param z      the z coordinate of the center
+	 * @param radius the radius of the sphere
+	 * @return this region as a convenience
+	 */
+	public Region addSphere(int x, int y, int z, int radius) {
+		return addEllipsoid(x, y, z, radius, radius, radius);
+	}
+
+	/**
+	 * Adds a solid, axis aligned ellipsoid to this region.
+	 *
+	 * @param x  the x coordinate of the center
+	 * @param y  the y coordinate of the center
+	 * @param z  the z coordinate of the center
+	 * @param rx the radius along the x axis
+	 * @param ry the radius along the y axis
+	 * @param rz the radius along the z axis
+	 * @return this region as a convenience
+	 */
+	public Region addEllipsoid(int x, int y, int z, int rx, int ry, int rz) {
+		shapes.add(new Ellipsoid(x, y, z, rx, ry, rz));
+		return this;
+	}
+
+	/**
+	 * Adds the solid between a horizontal base and a sloped triangle to this
+	 * region.  Every column within the triangle, when viewed from above, is
+	 * filled from the base height to the height of the triangle's plane.
+	 *
+	 * @param x1    the x coordinate of the first corner
+	 * @param y1    the y coordinate of the first corner
+	 * @param z1    the z coordinate of the first corner
+	 * @param x2    the x coordinate of the second corner
+	 * @param y2    the y coordinate of the second corner
+	 * @param z2    the z coordinate of the second corner
+	 * @param x3    the x coordinate of the third corner
+	 * @param y3    the y coordinate of the third corner
+	 * @param z3    the z coordinate of the third corner
+	 * @param baseY the height of the base
+	 * @return this region as a convenience
+	 */
+	public Region addTriangle(int x1, int y1, int z1, int x2, int y2, int z2, int x3, int y3, int z3, int baseY) {
+		shapes.add(new Triangle(x1, y1, z1, x2, y2, z2, x3, y3, z3, baseY));
+		return this;
+	}
+
+	/**
+	 * Adds a single block to this region.
+	 *
+	 * @param x the x coordinate of the block
+	 * @param y the y coordinate of the block
+	 * @param z the z coordinate of the block
+	 * @return this region as a convenience
+	 */
+	public Region addBlock(int x, int y, int z) {
+		if (voxels == null) {
+			shapes.add(voxels = new VoxelSet());
+		}
+		voxels.add(x, y, z);
+		return this;
+	}
+
+	/**
+	 * Merges every shape in this region into cuboids.  The cuboids do not
+	 * overlap, cover exactly the blocks of this region which lie within the
+	 * height limits of the world, and never exceed the volume limit.
+	 *
+	 * @return the cuboids covering this region
+	 * @throws IllegalArgumentException if the bounding box of this region is too large
+	 */
+	public List<Cuboid> toCuboids() {
+		VoxelGrid grid = rasterize();
+		return grid == null ? Collections.<Cuboid>emptyList() : grid.merge(volumeLimit);
+	}
+
+	/**
+	 * Splits every shape in this region into vertical columns, without
+	 * merging neighbouring columns.  The cuboids do not overlap, cover exactly
+	 * the blocks of this region which lie within the height limits of the
+	 * world, and never exceed the volume limit.
+	 *
+	 * @return the single block wide cuboids covering this region
+	 * @throws IllegalArgumentException if the bounding box of this region is too large
+	 */
+	public List<Cuboid> toColumns() {
+		VoxelGrid grid = rasterize();
+		return grid == null ? Collections.<Cuboid>emptyList() : grid.columns(volumeLimit);
+	}
+
+	/**
+	 * Marks the blocks of every shape in this region on a grid covering their
+	 * bounding box, within the height limits of the world.
+	 *
+	 * @return the grid of blocks, or <code>null</code> if this region has no
+	 * blocks within the height limits of the world
+	 * @throws IllegalArgumentException if the bounding box of this region is too large
+	 */
+	private VoxelGrid rasterize() {
+		if (shapes.isEmpty()) {
+			return null;
+		}
+		Cuboid bounds = shapes.get(0).getBounds();
+		for (Shape shape : shapes) {
+			Cuboid shapeBounds = shape.getBounds();
+			bounds = new Cuboid(
+					Math.min(bounds.getMinX(), shapeBounds.getMinX()),
+					Math.min(bounds.getMinY(), shapeBounds.getMinY()),
+					Math.min(bounds.getMinZ(), shapeBounds.getMinZ()),
+					Math.max(bounds.getMaxX(), shapeBounds.getMaxX()),
+					Math.max(bounds.getMaxY(), shapeBounds.getMaxY()),
+					Math.max(bounds.getMaxZ(), shapeBounds.getMaxZ()));
+		}
+		if (bounds.getMaxY() < minY || bounds.getMinY() > maxY) {
+			return null;
+		}
+		VoxelGrid grid = new VoxelGrid(new Cuboid(
+				bounds.getMinX(), Math.max(bounds.getMinY(), minY), bounds.getMinZ(),
+				bounds.getMaxX(), Math.min(bounds.getMaxY(), maxY), bounds.getMaxZ()));
+		for (Shape shape : shapes) {
+			shape.rasterize(grid);
+		}
+		return grid;
+	}
+
+	/**
+	 * Converts this region into <code>fill</code> commands.  The region is
+	 * merged into cuboids, unless the block text selects the
+	 * <code>hollow</code> or <code>outline</code> mode, in which case it is
+	 * split into columns.
+	 *
+	 * @param block the text following the coordinates in each command, such as the
+	 *              block name and any block data
+	 * @return the <code>fill</code> commands which fill this region
+	 * @throws IllegalArgumentException if the bounding box of this region is too large
+	 */
+	public List<String> toFillCommands(String block) {
+		List<Cuboid> cuboids = isFaceMode(block) ? toColumns() : toCuboids();
+		List<String> commands = new ArrayList<String>(cuboids.size());
+		for (Cuboid cuboid : cuboids) {
+			commands.add("fill " + cuboid + " " + block);
+		}
+		return commands;
+	}
+
+	/**
+	 * Determines whether or not the text following the coordinates of a
+	 * <code>fill</code> command selects a mode which only changes the faces of
+	 * the filled cuboid.  Data tags, which begin with a brace, are not
+	 * searched.
+	 *
+	 * @param block the text following the coordinates in a command
+	 * @return <code>true</code> if the text selects the <code>hollow</code> or
+	 * <code>outline</code> mode; <code>false</code> otherwise
+	 */
+	private static boolean isFaceMode(String block) {
+		for (String token : block.trim().split("\\s+")) {
+			if (token.startsWith("{")) {
+				break;
+			}
+			if (token.equals("hollow") || token.equals("outline")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.faulch.minecraft.serverwrapper.region;
+
+/**
+ * A solid volume of blocks which can be added to a <code>Region</code>.  A
+ * shape knows its own bounding box, and marks the blocks it occupies within a
+ * <code>VoxelGrid</code>.
+ *
+ * @author Jonathan Faulch
+ */
+interface Shape {
+
+	/**
+	 * Gets the bounding box of this shape.  Every block occupied by this shape
+	 * must lie within the bounding box.
+	 *
+	 * @return the bounding box of this shape
+	 */
+	Cuboid getBounds();
+
+	/**
+	 * Marks every block occupied by this shape in the supplied grid.  Blocks
+	 * outside of the grid are ignored by the grid.
+	 *
+	 * @param grid the grid in which the blocks of this shape are marked
+	 */
+	void rasterize(VoxelGrid grid);
+
+}
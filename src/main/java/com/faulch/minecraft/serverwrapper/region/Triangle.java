@@ -0,0 +1,150 @@
+package com.faulch.minecraft.serverwrapper.region;
+
+/**
+ * A solid of blocks between a horizontal base and a sloped triangle.  Every
+ * column whose horizontal position lies within the triangle is filled from the
+ * base height up, or down, to the height of the triangle's plane at that
+ * column.
+ *
+ * @author Jonathan Faulch
+ */
+class Triangle implements Shape {
+
+	private final int x1, y1, z1, x2, y2, z2, x3, y3, z3;
+	private final int baseY;
+
+	/**
+	 * Creates a <code>Triangle</code> from its three corners and its base
+	 * height.
+	 *
+	 * @param x1    the x coordinate of the first corner
+	 * @param y1    the y coordinate of the first corner
+	 * @param z1    the z coordinate of the first corner
+	 * @param x2    the x coordinate of the second corner
+	 * @param y2    the y coordinate of the second corner
+	 * @param z2    the z coordinate of the second corner
+	 * @param x3    the x coordinate of the third corner
+	 * @param y3    the y coordinate of the third corner
+	 * @param z3    the z coordinate of the third corner
+	 * @param baseY the height of the base
+	 */
+	Triangle(int x1, int y1, int z1, int x2, int y2, int z2, int x3, int y3, int z3, int baseY) {
+		this.x1 = x1;
+		this.y1 = y1;
+		this.z1 = z1;
+		this.x2 = x2;
+		this.y2 = y2;
+		this.z2 = z2;
+		this.x3 = x3;
+		this.y3 = y3;
+		this.z3 = z3;
+		this.baseY = baseY;
+	}
+
+	@Override
+	public Cuboid getBounds() {
+		return new Cuboid(
+				min(x1, x2, x3), min(y1, y2, y3, baseY), min(z1, z2, z3),
+				max(x1, x2, x3), max(y1, y2, y3, baseY), max(z1, z2, z3));
+	}
+
+	@Override
+	public void rasterize(VoxelGrid grid) {
+		// plane through the three corners: ax + by + cz = d
+		double a = (double) y1 * (z2 - z3) + (double) y2 * (z3 - z1) + (double) y3 * (z1 - z2);
+		double b = (double) z1 * (x2 - x3) + (double) z2 * (x3 - x1) + (double) z3 * (x1 - x2);
+		double c = (double) x1 * (y2 - y3) + (double) x2 * (y3 - y1) + (double) x3 * (y1 - y2);
+		double d = (double) x1 * ((double) y2 * z3 - (double) y3 * z2)
+				+ (double) x2 * ((double) y3 * z1 - (double) y1 * z3)
+				+ (double) x3 * ((double) y1 * z2 - (double) y2 * z1);
+		Cuboid bounds = getBounds();
+		for (int z = bounds.getMinZ(); z <= bounds.getMaxZ(); z++) {
+			for (int x = bounds.getMinX(); x <= bounds.getMaxX(); x++) {
+				if (contains(x, z)) {
+					double height = (d - a * x - c * z) / b;
+					if (!Double.isNaN(height)) {
+						int y = (int) Math.floor(Math.max(Math.min(height, Integer.MAX_VALUE / 2), Integer.MIN_VALUE / 2));
+						grid.setColumn(x, baseY, y, z);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determines whether or not a horizontal position lies within the closed
+	 * triangle, when viewed from above.
+	 *
+	 * @param x the x coordinate of the position
+	 * @param z the z coordinate of the position
+	 * @return <code>true</code> if the position lies within the triangle;
+	 * <code>false</code> otherwise
+	 */
+	private boolean contains(int x, int z) {
+		return sameSide(x, z, x1, z1, x2, z2, x3, z3)
+				&& sameSide(x, z, x2, z2, x3, z3, x1, z1)
+				&& sameSide(x, z, x3, z3, x1, z1, x2, z2);
+	}
+
+	/**
+	 * Determines whether or not two points lie on the same side of the line
+	 * through points a and b.  A point lying on the line is considered to be
+	 * on both sides.
+	 *
+	 * @param px the x coordinate of the first point
+	 * @param pz the z coordinate of the first point
+	 * @param qx the x coordinate of the second point
+	 * @param qz the z coordinate of the second point
+	 * @param ax the x coordinate of point a on the line
+	 * @param az the z coordinate of point a on the line
+	 * @param bx the x coordinate of point b on the line
+	 * @param bz the z coordinate of point b on the line
+	 * @return <code>true</code> if both points lie on the same side of the
+	 * line; <code>false</code> otherwise
+	 */
+	private static boolean sameSide(long px, long pz, long qx, long qz, long ax, long az, long bx, long bz) {
+		return Long.signum(cross(bx - ax, bz - az, px - ax, pz - az)) * Long.signum(cross(bx - ax, bz - az, qx - ax, qz - az)) >= 0;
+	}
+
+	/**
+	 * Calculates the magnitude of the cross product of two vectors.
+	 *
+	 * @param x1 the x component of the first vector
+	 * @param z1 the z component of the first vector
+	 * @param x2 the x component of the second vector
+	 * @param z2 the z component of the second vector
+	 * @return the magnitude of the cross product
+	 */
+	private static long cross(long x1, long z1, long x2, long z2) {
+		return x1 * z2 - z1 * x2;
+	}
+
+	/**
+	 * Gets the smallest of the supplied values.
+	 *
+	 * @param values the values to compare
+	 * @return the smallest value
+	 */
+	private static int min(int... values) {
+		int min = values[0];
+		for (int value : values) {
+			min = Math.min(min, value);
+		}
+		return min;
+	}
+
+	/**
+	 * Gets the largest of the supplied values.
+	 *
+	 * @param values the values to compare
+	 * @return the largest value
+	 */
+	private static int max(int... values) {
+		int max = values[0];
+		for (int value : values) {
+			max = Math.max(max, value);
+		}
+		return max;
+	}
+
+}
@@ -0,0 +1,186 @@
+package com.faulch.minecraft.serverwrapper.region;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A dense grid of blocks covering a bounding box, in which shapes mark the
+ * blocks they occupy.  Once every shape has been marked, the grid can be merged
+ * into a small number of cuboids which cover exactly the marked blocks.
+ *
+ * @author Jonathan Faulch
+ */
+class VoxelGrid {
+
+	/**
+	 * The largest number of blocks a grid may cover.  This keeps the memory
+	 * used by a single region to a few tens of megabytes.
+	 */
+	private static final long maximumVolume = 1L << 28;
+
+	private final int minX, minY, minZ;
+	private final int sizeX, sizeY, sizeZ;
+	private final BitSet voxels;
+
+	/**
+	 * Creates an empty <code>VoxelGrid</code> covering the supplied bounding
+	 * box.
+	 *
+	 * @param bounds the bounding box covered by the grid
+	 * @throws IllegalArgumentException if the bounding box contains too many blocks
+	 */
+	VoxelGrid(Cuboid bounds) {
+		if (bounds.getVolume() > maximumVolume) {
+			throw new IllegalArgumentException("The region spans " + bounds.getVolume() + " blocks, but may span at most " + maximumVolume + " blocks.");
+		}
+		minX = bounds.getMinX();
+		minY = bounds.getMinY();
+		minZ = bounds.getMinZ();
+		sizeX = bounds.getMaxX() - minX + 1;
+		sizeY = bounds.getMaxY() - minY + 1;
+		sizeZ = bounds.getMaxZ() - minZ + 1;
+		voxels = new BitSet((int) bounds.getVolume());
+	}
+
+	/**
+	 * Marks a single block.  Blocks outside of the grid are ignored.
+	 *
+	 * @param x the x coordinate of the block
+	 * @param y the y coordinate of the block
+	 * @param z the z coordinate of the block
+	 */
+	void set(int x, int y, int z) {
+		setColumn(x, y, y, z);
+	}
+
+	/**
+	 * Marks a vertical column of blocks.  Blocks outside of the grid are
+	 * ignored.
+	 *
+	 * @param x  the x coordinate of the column
+	 * @param y1 the y coordinate of one end of the column
+	 * @param y2 the y coordinate of the other end of the column
+	 * @param z  the z coordinate of the column
+	 */
+	void setColumn(int x, int y1, int y2, int z) {
+		int gx = x - minX, gz = z - minZ;
+		if (gx < 0 || gx >= sizeX || gz < 0 || gz >= sizeZ) {
+			return;
+		}
+		int from = Math.max(Math.min(y1, y2) - minY, 0);
+		int to = Math.min(Math.max(y1, y2) - minY, sizeY - 1);
+		for (int gy = from; gy <= to; gy++) {
+			voxels.set(index(gx, gy, gz));
+		}
+	}
+
+	/**
+	 * Merges the marked blocks into cuboids using greedy box merging.  Starting
+	 * from each unmerged block, a box is grown along the x axis, then the z
+	 * axis, then the y axis, for as long as every block it would gain is marked
+	 * and unmerged, and its volume stays within the limit.
+	 *
+	 * @param volumeLimit the largest number of blocks in a single cuboid
+	 * @return cuboids which cover exactly the marked blocks, without overlapping
+	 */
+	List<Cuboid> merge(int volumeLimit) {
+		List<Cuboid> cuboids = new ArrayList<Cuboid>();
+		BitSet remaining = (BitSet) voxels.clone();
+		for (int i = remaining.nextSetBit(0); i >= 0; i = remaining.nextSetBit(i + 1)) {
+			int gx = i % sizeX, gz = i / sizeX % sizeZ, gy = i / sizeX / sizeZ;
+
+			int dx = 1;
+			while (gx + dx < sizeX && dx + 1 <= volumeLimit && remaining.get(i + dx)) {
+				dx++;
+			}
+			int dz = 1;
+			while (gz + dz < sizeZ && (long) dx * (dz + 1) <= volumeLimit && isFilled(remaining, gx, dx, gy, 1, gz + dz, 1)) {
+				dz++;
+			}
+			int dy = 1;
+			while (gy + dy < sizeY && (long) dx * dz * (dy + 1) <= volumeLimit && isFilled(remaining, gx, dx, gy + dy, 1, gz, dz)) {
+				dy++;
+			}
+
+			for (int y = gy; y < gy + dy; y++) {
+				for (int z = gz; z < gz + dz; z++) {
+					int row = index(gx, y, z);
+					remaining.clear(row, row + dx);
+				}
+			}
+			cuboids.add(new Cuboid(minX + gx, minY + gy, minZ + gz, minX + gx + dx - 1, minY + gy + dy - 1, minZ + gz + dz - 1));
+		}
+		return cuboids;
+	}
+
+	/**
+	 * Splits the marked blocks into vertical columns, without merging
+	 * neighbouring columns.  Each run of marked blocks in a column becomes one
+	 * cuboid, split further if it exceeds the volume limit.
+	 *
+	 * @param volumeLimit the largest number of blocks in a single cuboid
+	 * @return cuboids which cover exactly the marked blocks, without overlapping
+	 */
+	List<Cuboid> columns(int volumeLimit) {
+		List<Cuboid> cuboids = new ArrayList<Cuboid>();
+		for (int gz = 0; gz < sizeZ; gz++) {
+			for (int gx = 0; gx < sizeX; gx++) {
+				int gy = 0;
+				while (gy < sizeY) {
+					if (!voxels.get(index(gx, gy, gz))) {
+						gy++;
+						continue;
+					}
+					int dy = 1;
+					while (gy + dy < sizeY && dy + 1 <= volumeLimit && voxels.get(index(gx, gy + dy, gz))) {
+						dy++;
+					}
+					cuboids.add(new Cuboid(minX + gx, minY + gy, minZ + gz, minX + gx, minY + gy + dy - 1, minZ + gz));
+					gy += dy;
+				}
+			}
+		}
+		return cuboids;
+	}
+
+	/**
+	 * Determines whether or not every block in a box of the grid is set in the
+	 * supplied bit set.
+	 *
+	 * @param bits the bit set to check, indexed in the same way as the grid
+	 * @param gx   the smallest x coordinate of the box, relative to the grid
+	 * @param dx   the size of the box along the x axis
+	 * @param gy   the smallest y coordinate of the box, relative to the grid
+	 * @param dy   the size of the box along the y axis
+	 * @param gz   the smallest z coordinate of the box, relative to the grid
+	 * @param dz   the size of the box along the z axis
+	 * @return <code>true</code> if every block in the box is set;
+	 * <code>false</code> otherwise
+	 */
+	private boolean isFilled(BitSet bits, int gx, int dx, int gy, int dy, int gz, int dz) {
+		for (int y = gy; y < gy + dy; y++) {
+			for (int z = gz; z < gz + dz; z++) {
+				int row = index(gx, y, z);
+				if (bits.nextClearBit(row) < row + dx) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the bit index of a block, relative to the grid.  The x axis varies
+	 * fastest, so that rows along the x axis are contiguous.
+	 *
+	 * @param gx the x coordinate relative to the grid
+	 * @param gy the y coordinate relative to the grid
+	 * @param gz the z coordinate relative to the grid
+	 * @return the bit index of the block
+	 */
+	private int index(int gx, int gy, int gz) {
+		return (gy * sizeZ + gz) * sizeX + gx;
+	}
+
+}
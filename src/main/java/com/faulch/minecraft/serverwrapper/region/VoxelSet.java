@@ -0,0 +1,74 @@
+package com.faulch.minecraft.serverwrapper.region;
+
+import java.util.Arrays;
+
+/**
+ * An arbitrary set of individual blocks.  Blocks are stored as packed
+ * coordinate triples, so adding a block does not create any objects.
+ *
+ * @author Jonathan Faulch
+ */
+class VoxelSet implements Shape {
+
+	private int[] coordinates;
+	private int size;
+	private int minX, minY, minZ, maxX, maxY, maxZ;
+
+	/**
+	 * Creates an empty <code>VoxelSet</code>.
+	 */
+	VoxelSet() {
+		coordinates = new int[48];
+	}
+
+	/**
+	 * Adds a single block to this set.
+	 *
+	 * @param x the x coordinate of the block
+	 * @param y the y coordinate of the block
+	 * @param z the z coordinate of the block
+	 */
+	void add(int x, int y, int z) {
+		if (size == 0) {
+			minX = maxX = x;
+			minY = maxY = y;
+			minZ = maxZ = z;
+		} else {
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			minZ = Math.min(minZ, z);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+			maxZ = Math.max(maxZ, z);
+		}
+		if (size + 3 > coordinates.length) {
+			coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+		}
+		coordinates[size++] = x;
+		coordinates[size++] = y;
+		coordinates[size++] = z;
+	}
+
+	/**
+	 * Determines whether or not this set contains any blocks.
+	 *
+	 * @return <code>true</code> if this set contains no blocks;
+	 * <code>false</code> otherwise
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public Cuboid getBounds() {
+		return new Cuboid(minX, minY, minZ, maxX, maxY, maxZ);
+	}
+
+	@Override
+	public void rasterize(VoxelGrid grid) {
+		for (int i = 0; i < size; i += 3) {
+			grid.set(coordinates[i], coordinates[i + 1], coordinates[i + 2]);
+		}
+	}
+
+}
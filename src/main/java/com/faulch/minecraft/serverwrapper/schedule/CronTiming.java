@@ -0,0 +1,198 @@
+package com.faulch.minecraft.serverwrapper.schedule;
+
+import java.util.Calendar;
+
+/**
+ * Runs a job whenever the local time matches a five field cron expression,
+ * <code>minute hour day-of-month month day-of-week</code>.  Each field may
+ * be <code>*</code>, a number, a range such as <code>1-5</code>, or a
+ * comma separated list of these, and each may be followed by a step such as
+ * <code>&#42;/15</code>.  Months and days of the week may also be written as
+ * three letter English names.  As in cron, when both the day of the month and
+ * the day of the week are restricted, a day matching either one matches.
+ *
+ * @author Jonathan Faulch
+ */
+class CronTiming implements Timing {
+
+	private static final String[] monthNames = {"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"};
+	private static final String[] dayNames = {"SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
+
+	/**
+	 * The number of years searched for a matching time, after which an
+	 * expression such as February 31st is considered to never match.
+	 */
+	private static final int searchYears = 5;
+
+	private final String expression;
+	private final long minutes;
+	private final long hours;
+	private final long daysOfMonth;
+	private final long months;
+	private final long daysOfWeek;
+	private final boolean dayOfMonthRestricted;
+	private final boolean dayOfWeekRestricted;
+
+	/**
+	 * Creates a <code>CronTiming</code> from a cron expression.
+	 *
+	 * @param expression the five fields of the cron expression, separated by whitespace
+	 * @throws IllegalArgumentException if the expression is not valid
+	 */
+	CronTiming(String expression) {
+		this.expression = expression.trim();
+		String[] fields = this.expression.split("\\s+");
+		if (fields.length != 5) {
+			throw new IllegalArgumentException("The cron expression \"" + expression + "\" does not have five fields.");
+		}
+		minutes = parseField(fields[0], 0, 59, null, 0);
+		hours = parseField(fields[1], 0, 23, null, 0);
+		daysOfMonth = parseField(fields[2], 1, 31, null, 0);
+		months = parseField(fields[3], 1, 12, monthNames, 1);
+		long parsedDaysOfWeek = parseField(fields[4], 0, 7, dayNames, 0);
+		daysOfWeek = (parsedDaysOfWeek | (parsedDaysOfWeek >>> 7)) & 0x7F;
+		dayOfMonthRestricted = !fields[2].startsWith("*");
+		dayOfWeekRestricted = !fields[4].startsWith("*");
+	}
+
+	@Override
+	public long nextRun(long previousRun) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(previousRun);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		calendar.add(Calendar.MINUTE, 1);
+		int lastYear = calendar.get(Calendar.YEAR) + searchYears;
+		while (calendar.get(Calendar.YEAR) <= lastYear) {
+			if (!matches(months, calendar.get(Calendar.MONTH) + 1)) {
+				calendar.add(Calendar.MONTH, 1);
+				calendar.set(Calendar.DAY_OF_MONTH, 1);
+				calendar.set(Calendar.HOUR_OF_DAY, 0);
+				calendar.set(Calendar.MINUTE, 0);
+			} else if (!matchesDay(calendar)) {
+				calendar.add(Calendar.DAY_OF_MONTH, 1);
+				calendar.set(Calendar.HOUR_OF_DAY, 0);
+				calendar.set(Calendar.MINUTE, 0);
+			} else if (!matches(hours, calendar.get(Calendar.HOUR_OF_DAY))) {
+				calendar.add(Calendar.HOUR_OF_DAY, 1);
+				calendar.set(Calendar.MINUTE, 0);
+			} else if (!matches(minutes, calendar.get(Calendar.MINUTE))) {
+				calendar.add(Calendar.MINUTE, 1);
+			} else {
+				return calendar.getTimeInMillis();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Determines whether or not the day of a calendar matches this
+	 * expression.
+	 *
+	 * @param calendar the calendar
+	 * @return <code>true</code> if the day matches; <code>false</code>
+	 * otherwise
+	 */
+	private boolean matchesDay(Calendar calendar) {
+		boolean dayOfMonth = matches(daysOfMonth, calendar.get(Calendar.DAY_OF_MONTH));
+		boolean dayOfWeek = matches(daysOfWeek, calendar.get(Calendar.DAY_OF_WEEK) - 1);
+		return dayOfMonthRestricted && dayOfWeekRestricted ? dayOfMonth || dayOfWeek : dayOfMonth && dayOfWeek;
+	}
+
+	/**
+	 * Determines whether or not a value is in a field's set of values.
+	 *
+	 * @param field the bits of the field's values
+	 * @param value the value
+	 * @return <code>true</code> if the value is in the field; <code>false</code>
+	 * otherwise
+	 */
+	private static boolean matches(long field, int value) {
+		return (field & (1L << value)) != 0;
+	}
+
+	/**
+	 * Parses a field of a cron expression into a set of bits, one for each
+	 * value in the field.
+	 *
+	 * @param field      the text of the field
+	 * @param minimum    the smallest value allowed in the field
+	 * @param maximum    the largest value allowed in the field
+	 * @param names      the names of the field's values, or <code>null</code> if the
+	 *                   values have no names
+	 * @param nameOffset the value of the first name
+	 * @return the bits of the field's values
+	 * @throws IllegalArgumentException if the field is not valid
+	 */
+	private static long parseField(String field, int minimum, int maximum, String[] names, int nameOffset) {
+		long bits = 0;
+		for (String part : field.split(",")) {
+			int step = 1;
+			int slash = part.indexOf('/');
+			if (slash != -1) {
+				step = parseValue(part.substring(slash + 1), 1, maximum, null, 0);
+				part = part.substring(0, slash);
+			}
+			int start;
+			int end;
+			if (part.equals("*")) {
+				start = minimum;
+				end = maximum;
+			} else {
+				int dash = part.indexOf('-');
+				start = parseValue(dash == -1 ? part : part.substring(0, dash), minimum, maximum, names, nameOffset);
+				end = dash == -1 ? (slash == -1 ? start : maximum) : parseValue(part.substring(dash + 1), minimum, maximum, names, nameOffset);
+				if (end < start) {
+					throw new IllegalArgumentException("The range \"" + part + "\" is backwards.");
+				}
+			}
+			for (int value = start; value <= end; value += step) {
+				bits |= 1L << value;
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * Parses a single value of a cron field.
+	 *
+	 * @param value      the text of the value
+	 * @param minimum    the smallest value allowed
+	 * @param maximum    the largest value allowed
+	 * @param names      the names of the values, or <code>null</code> if the values
+	 *                   have no names
+	 * @param nameOffset the value of the first name
+	 * @return the value
+	 * @throws IllegalArgumentException if the value is not valid
+	 */
+	private static int parseValue(String value, int minimum, int maximum, String[] names, int nameOffset) {
+		if (names != null) {
+			for (int i = 0; i < names.length; i++) {
+				if (names[i].equalsIgnoreCase(value)) {
+					return i + nameOffset;
+				}
+			}
+		}
+		int parsed;
+		try {
+			parsed = Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("\"" + value + "\" is not a valid cron value.", e);
+		}
+		if (parsed < minimum || parsed > maximum) {
+			throw new IllegalArgumentException("The cron value " + parsed + " is not between " + minimum + " and " + maximum + ".");
+		}
+		return parsed;
+	}
+
+	/**
+	 * Gets the cron expression this timing was created from.
+	 *
+	 * @return the cron expression
+	 */
+	@Override
+	public String toString() {
+		return expression;
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.faulch.minecraft.serverwrapper.schedule;
+
+/**
+ * Runs a job once, after a delay.
+ *
+ * @author Jonathan Faulch
+ */
+class DelayTiming implements Timing {
+
+	private final long delay;
+	private boolean planned;
+
+	/**
+	 * Creates a <code>DelayTiming</code>.
+	 *
+	 * @param delay the time to wait before running the job in milliseconds
+	 */
+	DelayTiming(long delay) {
+		this.delay = Math.max(delay, 0);
+	}
+
+	@Override
+	public synchronized long nextRun(long previousRun) {
+		if (planned) {
+			return -1;
+		}
+		planned = true;
+		return previousRun + delay;
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.faulch.minecraft.serverwrapper.schedule;
+
+/**
+ * Runs a job repeatedly, at a fixed interval after it was scheduled.
+ *
+ * @author Jonathan Faulch
+ */
+class FixedRateTiming implements Timing {
+
+	private final long period;
+
+	/**
+	 * Creates a <code>FixedRateTiming</code>.
+	 *
+	 * @param period the time between runs in milliseconds
+	 */
+	FixedRateTiming(long period) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("The period must be positive.");
+		}
+		this.period = period;
+	}
+
+	@Override
+	public long nextRun(long previousRun) {
+		return previousRun + period;
+	}
+
+}
@@ -0,0 +1,197 @@
+package com.faulch.minecraft.serverwrapper.schedule;
+
+import java.util.Arrays;
+
+/**
+ * A parsed schedule line, which says when a job runs, how it is run, and
+ * what it runs.  A schedule line has the form
+ * <code>&lt;when&gt; [jitter=&lt;duration&gt;] [overlap] [&lt;command&gt;]</code>,
+ * where <code>&lt;when&gt;</code> is one of the following:
+ * <ul>
+ * <li><code>@every &lt;duration&gt;</code> runs the job repeatedly, first
+ * running it one period after it is scheduled</li>
+ * <li><code>@after &lt;duration&gt;</code> runs the job once</li>
+ * <li>five cron fields, such as <code>0 *&#47;6 * * *</code></li>
+ * </ul>
+ * Durations are a number followed by <code>ms</code>, <code>s</code>,
+ * <code>m</code>, <code>h</code>, or <code>d</code>.  The jitter delays each
+ * run by a random amount up to the given duration, so that jobs scheduled for
+ * the same moment are spread out.  Unless <code>overlap</code> is given, a
+ * run is skipped if the previous run has not finished.
+ *
+ * @author Jonathan Faulch
+ */
+public class ScheduleDefinition {
+
+	private static final String
+			everyKeyword = "@every",
+			afterKeyword = "@after",
+			jitterPrefix = "jitter=",
+			overlapKeyword = "overlap";
+
+	private final String when;
+	private final Timing timing;
+	private final long jitter;
+	private final boolean overlapAllowed;
+	private final String command;
+
+	/**
+	 * Creates a <code>ScheduleDefinition</code>.
+	 *
+	 * @param when           the text describing when the job runs
+	 * @param timing         the timing of the job
+	 * @param jitter         the maximum random delay added to each run, in milliseconds
+	 * @param overlapAllowed <code>true</code> if a run may start before the previous
+	 *                       run has finished; <code>false</code> otherwise
+	 * @param command        the text following the options, which may be empty
+	 */
+	private ScheduleDefinition(String when, Timing timing, long jitter, boolean overlapAllowed, String command) {
+		this.when = when;
+		this.timing = timing;
+		this.jitter = jitter;
+		this.overlapAllowed = overlapAllowed;
+		this.command = command;
+	}
+
+	/**
+	 * Parses a schedule line.
+	 *
+	 * @param line the schedule line
+	 * @return the parsed schedule line
+	 * @throws IllegalArgumentException if the line is not valid
+	 */
+	public static ScheduleDefinition parse(String line) {
+		String[] tokens = line.trim().split("\\s+");
+		int index;
+		Timing timing;
+		if (tokens[0].equalsIgnoreCase(everyKeyword) || tokens[0].equalsIgnoreCase(afterKeyword)) {
+			if (tokens.length < 2) {
+				throw new IllegalArgumentException("\"" + tokens[0] + "\" must be followed by a duration.");
+			}
+			long duration = parseDuration(tokens[1]);
+			timing = tokens[0].equalsIgnoreCase(everyKeyword) ? new FixedRateTiming(duration) : new DelayTiming(duration);
+			index = 2;
+		} else {
+			if (tokens.length < 5) {
+				throw new IllegalArgumentException("\"" + line + "\" does not start with @every, @after, or five cron fields.");
+			}
+			timing = new CronTiming(join(tokens, 0, 5));
+			index = 5;
+		}
+		String when = join(tokens, 0, index);
+
+		long jitter = 0;
+		boolean overlapAllowed = false;
+		for (; index < tokens.length; index++) {
+			if (tokens[index].toLowerCase().startsWith(jitterPrefix)) {
+				jitter = parseDuration(tokens[index].substring(jitterPrefix.length()));
+			} else if (tokens[index].equalsIgnoreCase(overlapKeyword)) {
+				overlapAllowed = true;
+			} else {
+				break;
+			}
+		}
+		return new ScheduleDefinition(when, timing, jitter, overlapAllowed, join(tokens, index, tokens.length));
+	}
+
+	/**
+	 * Parses a duration, such as <code>30s</code> or <code>5m</code>.
+	 *
+	 * @param duration the text of the duration
+	 * @return the duration in milliseconds
+	 * @throws IllegalArgumentException if the duration is not valid
+	 */
+	private static long parseDuration(String duration) {
+		String lowerCaseDuration = duration.toLowerCase();
+		int unitStart = 0;
+		while (unitStart < lowerCaseDuration.length() && Character.isDigit(lowerCaseDuration.charAt(unitStart))) {
+			unitStart++;
+		}
+		if (unitStart == 0) {
+			throw new IllegalArgumentException("\"" + duration + "\" is not a valid duration.");
+		}
+		long amount = Long.parseLong(lowerCaseDuration.substring(0, unitStart));
+		String unit = lowerCaseDuration.substring(unitStart);
+		if (unit.equals("ms")) {
+			return amount;
+		} else if (unit.equals("s") || unit.length() == 0) {
+			return amount * 1000;
+		} else if (unit.equals("m")) {
+			return amount * 60 * 1000;
+		} else if (unit.equals("h")) {
+			return amount * 60 * 60 * 1000;
+		} else if (unit.equals("d")) {
+			return amount * 24 * 60 * 60 * 1000;
+		}
+		throw new IllegalArgumentException("\"" + duration + "\" does not have a valid unit.");
+	}
+
+	/**
+	 * Joins a range of tokens with single spaces.
+	 *
+	 * @param tokens the tokens
+	 * @param start  the index of the first token
+	 * @param end    the index following the last token
+	 * @return the joined tokens
+	 */
+	private static String join(String[] tokens, int start, int end) {
+		StringBuilder joined = new StringBuilder();
+		for (String token : Arrays.asList(tokens).subList(start, end)) {
+			if (joined.length() > 0) {
+				joined.append(' ');
+			}
+			joined.append(token);
+		}
+		return joined.toString();
+	}
+
+	/**
+	 * Gets the text describing when the job runs, such as
+	 * <code>@every 5m</code>.
+	 *
+	 * @return the text describing when the job runs
+	 */
+	public String getWhen() {
+		return when;
+	}
+
+	/**
+	 * Gets the timing of the job.
+	 *
+	 * @return the timing of the job
+	 */
+	public Timing getTiming() {
+		return timing;
+	}
+
+	/**
+	 * Gets the maximum random delay added to each run.
+	 *
+	 * @return the maximum random delay in milliseconds
+	 */
+	public long getJitter() {
+		return jitter;
+	}
+
+	/**
+	 * Determines whether or not a run may start before the previous run has
+	 * finished.
+	 *
+	 * @return <code>true</code> if runs may overlap; <code>false</code>
+	 * otherwise
+	 */
+	public boolean isOverlapAllowed() {
+		return overlapAllowed;
+	}
+
+	/**
+	 * Gets the text following the options, which is the command to be run for
+	 * lines of a schedule file.
+	 *
+	 * @return the command, which may be empty
+	 */
+	public String getCommand() {
+		return command;
+	}
+
+}
@@ -0,0 +1,184 @@
+package com.faulch.minecraft.serverwrapper.schedule;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A job which has been scheduled with a <code>ScriptScheduler</code>.  This
+ * is the handle scripts use to inspect or cancel their scheduled jobs.
+ *
+ * @author Jonathan Faulch
+ */
+public class ScheduledJob {
+
+	private final ScriptScheduler scheduler;
+	private final int id;
+	private final ScheduleDefinition definition;
+	private final String description;
+	private final Runnable task;
+	private final AtomicInteger activeRuns;
+	private final AtomicLong runs;
+	private final AtomicLong missedRuns;
+	private volatile long plannedRun;
+	private volatile ScheduledFuture<?> future;
+	private volatile boolean cancelled;
+
+	/**
+	 * Creates a <code>ScheduledJob</code>.
+	 *
+	 * @param scheduler   the scheduler which runs the job
+	 * @param id          the number identifying the job
+	 * @param definition  the definition of when and how the job runs
+	 * @param description a description of what the job runs
+	 * @param task        the task run by the job
+	 * @param created     the time the job was scheduled, in milliseconds since the epoch
+	 */
+	ScheduledJob(ScriptScheduler scheduler, int id, ScheduleDefinition definition, String description, Runnable task, long created) {
+		this.scheduler = scheduler;
+		this.id = id;
+		this.definition = definition;
+		this.description = description;
+		this.task = task;
+		activeRuns = new AtomicInteger();
+		runs = new AtomicLong();
+		missedRuns = new AtomicLong();
+		plannedRun = created;
+	}
+
+	/**
+	 * Gets the number identifying this job.
+	 *
+	 * @return the number identifying this job
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Gets the definition of when and how this job runs.
+	 *
+	 * @return the definition of this job
+	 */
+	public ScheduleDefinition getDefinition() {
+		return definition;
+	}
+
+	/**
+	 * Gets the task run by this job.
+	 *
+	 * @return the task run by this job
+	 */
+	Runnable getTask() {
+		return task;
+	}
+
+	/**
+	 * Gets the number of runs of this job which have started but not yet
+	 * finished.
+	 *
+	 * @return the counter of active runs
+	 */
+	AtomicInteger getActiveRuns() {
+		return activeRuns;
+	}
+
+	/**
+	 * Records that this job has started a run.
+	 */
+	void recordRun() {
+		runs.incrementAndGet();
+	}
+
+	/**
+	 * Records that a run of this job was skipped.
+	 */
+	void recordMissedRun() {
+		missedRuns.incrementAndGet();
+	}
+
+	/**
+	 * Gets the number of times this job has started running.
+	 *
+	 * @return the number of runs
+	 */
+	public long getRuns() {
+		return runs.get();
+	}
+
+	/**
+	 * Gets the number of runs which were skipped, because the previous run had
+	 * not finished, because too many scripts were waiting to run, or because
+	 * the scheduler fell behind.
+	 *
+	 * @return the number of missed runs
+	 */
+	public long getMissedRuns() {
+		return missedRuns.get();
+	}
+
+	/**
+	 * Gets the time this job is next planned to run, not including jitter.
+	 *
+	 * @return the time of the next run in milliseconds since the epoch, or -1
+	 * if this job will not run again
+	 */
+	public long getPlannedRun() {
+		return cancelled ? -1 : plannedRun;
+	}
+
+	/**
+	 * Sets the time this job is next planned to run.
+	 *
+	 * @param plannedRun the time of the next run in milliseconds since the epoch
+	 */
+	void setPlannedRun(long plannedRun) {
+		this.plannedRun = plannedRun;
+	}
+
+	/**
+	 * Sets the future of the next run, so that it can be cancelled.
+	 *
+	 * @param future the future of the next run
+	 */
+	void setFuture(ScheduledFuture<?> future) {
+		this.future = future;
+		if (cancelled) {
+			future.cancel(false);
+		}
+	}
+
+	/**
+	 * Stops this job from running again, and removes it from its scheduler.
+	 * A run which has already started is allowed to finish.
+	 */
+	public void cancel() {
+		cancelled = true;
+		ScheduledFuture<?> currentFuture = future;
+		if (currentFuture != null) {
+			currentFuture.cancel(false);
+		}
+		scheduler.remove(this);
+	}
+
+	/**
+	 * Determines whether or not this job has been cancelled.
+	 *
+	 * @return <code>true</code> if this job has been cancelled;
+	 * <code>false</code> otherwise
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Describes this job, including its statistics.
+	 *
+	 * @return a description of this job
+	 */
+	@Override
+	public String toString() {
+		return "#" + id + " " + definition.getWhen() + " " + description + " (runs=" + getRuns() + ", missed=" + getMissedRuns() + ")";
+	}
+
+}
@@ -0,0 +1,246 @@
+package com.faulch.minecraft.serverwrapper.schedule;
+
+import com.faulch.minecraft.serverwrapper.ScriptExecutor;
+import com.faulch.minecraft.serverwrapper.Utility;
+import com.faulch.minecraft.serverwrapper.metrics.WrapperMetrics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs jobs at planned times, so that periodic scripts such as announcements
+ * and auto-saves don't need to hold a thread while they sleep.  A single
+ * daemon thread keeps track of when each job should next run, and hands each
+ * run to the <code>ScriptExecutor</code>, so that jobs run on the same
+ * threads, and within the same limits, as triggered scripts.  A run is never
+ * made on the scheduler's own thread, which would hold up every other job.
+ *
+ * @author Jonathan Faulch
+ */
+public class ScriptScheduler {
+
+	/**
+	 * How late a run may be before it is considered missed.  When the
+	 * scheduler falls further behind than this, such as after the machine
+	 * sleeps, the runs it missed are counted and skipped, rather than all
+	 * being run at once.
+	 */
+	private static final long missTolerance = TimeUnit.SECONDS.toMillis(1);
+
+	private final ScriptExecutor scriptExecutor;
+	private final WrapperMetrics metrics;
+	private final ScheduledExecutorService timer;
+	private final List<ScheduledJob> jobs;
+	private final AtomicInteger nextId;
+	private final Random random;
+
+	/**
+	 * Creates a <code>ScriptScheduler</code> with no jobs.
+	 *
+	 * @param scriptExecutor the executor which runs each job
+	 * @param metrics        the metrics which record runs and missed runs
+	 */
+	public ScriptScheduler(ScriptExecutor scriptExecutor, WrapperMetrics metrics) {
+		this.scriptExecutor = scriptExecutor;
+		this.metrics = metrics;
+		timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Script-Scheduler");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		jobs = new CopyOnWriteArrayList<ScheduledJob>();
+		nextId = new AtomicInteger(1);
+		random = new Random();
+	}
+
+	/**
+	 * Schedules a job.
+	 *
+	 * @param definition  the definition of when and how the job runs
+	 * @param description a description of what the job runs
+	 * @param task        the task run by the job
+	 * @return the scheduled job
+	 */
+	public ScheduledJob schedule(ScheduleDefinition definition, String description, Runnable task) {
+		ScheduledJob job = new ScheduledJob(this, nextId.getAndIncrement(), definition, description, task, System.currentTimeMillis());
+		jobs.add(job);
+		planNextRun(job);
+		return job;
+	}
+
+	/**
+	 * Loads a schedule file, which has one schedule line per line, and
+	 * schedules each line's command with the supplied factory.  Blank lines,
+	 * and lines starting with <code>#</code>, are ignored.  Invalid lines are
+	 * reported and skipped.
+	 *
+	 * @param file    the schedule file
+	 * @param charset the character encoding of the file
+	 * @param factory creates the task which runs each line's command
+	 * @return the number of jobs scheduled
+	 * @throws IOException if the file could not be read
+	 */
+	public int load(File file, Charset charset, TaskFactory factory) throws IOException {
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset));
+			int count = 0;
+			int lineNumber = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#")) {
+					continue;
+				}
+				try {
+					ScheduleDefinition definition = ScheduleDefinition.parse(line);
+					if (definition.getCommand().length() == 0) {
+						throw new IllegalArgumentException("There is no command to run.");
+					}
+					schedule(definition, definition.getCommand(), factory.createTask(definition.getCommand()));
+					count++;
+				} catch (IllegalArgumentException e) {
+					System.err.println(file + ":" + lineNumber + ": " + e.getMessage());
+				}
+			}
+			return count;
+		} finally {
+			Utility.tryClose(reader);
+		}
+	}
+
+	/**
+	 * Gets every job which has not been cancelled, and will run again.
+	 *
+	 * @return the scheduled jobs
+	 */
+	public List<ScheduledJob> getJobs() {
+		List<ScheduledJob> activeJobs = new ArrayList<ScheduledJob>();
+		for (ScheduledJob job : jobs) {
+			if (job.getPlannedRun() != -1) {
+				activeJobs.add(job);
+			}
+		}
+		return activeJobs;
+	}
+
+	/**
+	 * Forgets a job which will not run again.
+	 *
+	 * @param job the job
+	 */
+	void remove(ScheduledJob job) {
+		jobs.remove(job);
+	}
+
+	/**
+	 * Plans the next run of a job, skipping and counting any runs which the
+	 * scheduler has fallen too far behind to make.
+	 *
+	 * @param job the job
+	 */
+	private void planNextRun(final ScheduledJob job) {
+		long now = System.currentTimeMillis();
+		long next = job.getDefinition().getTiming().nextRun(job.getPlannedRun());
+		while (next != -1 && next < now - missTolerance) {
+			job.recordMissedRun();
+			metrics.recordScheduledRun(true);
+			next = job.getDefinition().getTiming().nextRun(next);
+		}
+		if (next == -1 || job.isCancelled()) {
+			job.setPlannedRun(-1);
+			remove(job);
+			return;
+		}
+		job.setPlannedRun(next);
+		long jitter = job.getDefinition().getJitter();
+		long delay = Math.max(next - now, 0) + (jitter > 0 ? (long) (random.nextDouble() * jitter) : 0);
+		job.setFuture(timer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					startRun(job);
+				} finally {
+					planNextRun(job);
+				}
+			}
+		}, delay, TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * Starts a run of a job, unless the previous run has not finished and the
+	 * job does not allow overlapping runs.  Runs of a job which allows
+	 * overlapping are submitted under different keys, so that the executor
+	 * does not make them wait for each other.  A run which the executor
+	 * rejects, rather than running it on this thread, is counted as missed.
+	 *
+	 * @param job the job
+	 */
+	private void startRun(final ScheduledJob job) {
+		if (job.isCancelled()) {
+			return;
+		}
+		final AtomicInteger activeRuns = job.getActiveRuns();
+		if (!job.getDefinition().isOverlapAllowed() && activeRuns.get() > 0) {
+			job.recordMissedRun();
+			metrics.recordScheduledRun(true);
+			return;
+		}
+		activeRuns.incrementAndGet();
+		job.recordRun();
+		metrics.recordScheduledRun(false);
+		String key = "Scheduled-" + job.getId() + (job.getDefinition().isOverlapAllowed() ? "-" + job.getRuns() : "");
+		scriptExecutor.submit(key, new ScriptExecutor.Task() {
+			@Override
+			public void run() {
+				try {
+					job.getTask().run();
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				} finally {
+					activeRuns.decrementAndGet();
+				}
+			}
+
+			@Override
+			public void reject() {
+				activeRuns.decrementAndGet();
+				job.recordMissedRun();
+				metrics.recordScheduledRun(true);
+			}
+		}, false);
+	}
+
+	/**
+	 * Creates the tasks which run the commands of a schedule file.
+	 */
+	public interface TaskFactory {
+
+		/**
+		 * Creates the task which runs a command.
+		 *
+		 * @param command the command from a schedule file
+		 * @return the task which runs the command
+		 */
+		Runnable createTask(String command);
+
+	}
+
+}
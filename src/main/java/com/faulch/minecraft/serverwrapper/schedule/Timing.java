@@ -0,0 +1,21 @@
+package com.faulch.minecraft.serverwrapper.schedule;
+
+/**
+ * Decides when a scheduled job should run.
+ *
+ * @author Jonathan Faulch
+ */
+public interface Timing {
+
+	/**
+	 * Gets the time a job should next run.
+	 *
+	 * @param previousRun the time the job was last planned to run, or the time it
+	 *                    was scheduled if it has not run yet, in milliseconds since the
+	 *                    epoch
+	 * @return the time the job should next run, in milliseconds since the
+	 * epoch, or -1 if it should not run again
+	 */
+	long nextRun(long previousRun);
+
+}
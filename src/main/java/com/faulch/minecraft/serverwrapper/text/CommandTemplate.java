@@ -0,0 +1,166 @@
+package com.faulch.minecraft.serverwrapper.text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A command format string compiled once into a plan of literal text and
+ * argument substitutions, so that formatting a command only copies strings.
+ * The template uses the subset of the <code>String.format</code> syntax which
+ * makes sense for commands, and produces the same result as it would:
+ * <ul>
+ * <li><code>%s</code> is replaced by the next argument.</li>
+ * <li><code>%2$s</code> is replaced by the second argument.</li>
+ * <li><code>%%</code> is replaced by a percent sign.</li>
+ * <li><code>%n</code> is replaced by the line separator.</li>
+ * </ul>
+ * Any other conversion is rejected when the template is compiled.
+ *
+ * @author Jonathan Faulch
+ */
+public class CommandTemplate {
+
+	private final String template;
+	private final String[] literals;
+	private final int[] arguments;
+	private final int argumentCount;
+	private final int literalLength;
+
+	/**
+	 * Creates a <code>CommandTemplate</code> from its compiled plan.
+	 *
+	 * @param template  the format string the template was compiled from
+	 * @param literals  the literal text before each substitution, and after the
+	 *                  last one
+	 * @param arguments the zero-based index of the argument of each substitution
+	 */
+	private CommandTemplate(String template, String[] literals, int[] arguments) {
+		this.template = template;
+		this.literals = literals;
+		this.arguments = arguments;
+		int argumentCount = 0;
+		for (int argument : arguments) {
+			argumentCount = Math.max(argumentCount, argument + 1);
+		}
+		this.argumentCount = argumentCount;
+		int literalLength = 0;
+		for (String literal : literals) {
+			literalLength += literal.length();
+		}
+		this.literalLength = literalLength;
+	}
+
+	/**
+	 * Compiles a command format string.
+	 *
+	 * @param template the format string
+	 * @return the compiled template
+	 * @throws IllegalArgumentException if the format string contains a conversion
+	 *                                  other than <code>%s</code>, <code>%%</code>
+	 *                                  or <code>%n</code>
+	 */
+	public static CommandTemplate compile(String template) {
+		List<String> literals = new ArrayList<String>();
+		List<Integer> arguments = new ArrayList<Integer>();
+		StringBuilder literal = new StringBuilder();
+		int nextArgument = 0;
+		int length = template.length();
+		for (int i = 0; i < length; i++) {
+			char c = template.charAt(i);
+			if (c != '%') {
+				literal.append(c);
+				continue;
+			}
+			int start = i;
+			int index = 0;
+			while (++i < length && Character.isDigit(template.charAt(i))) {
+				index = index * 10 + Character.digit(template.charAt(i), 10);
+			}
+			boolean explicit = i > start + 1;
+			if (explicit) {
+				if (i >= length || template.charAt(i) != '$' || index == 0) {
+					throw invalidConversion(template, start);
+				}
+				i++;
+			}
+			char conversion = i < length ? template.charAt(i) : 0;
+			if (conversion == 's') {
+				literals.add(literal.toString());
+				literal.setLength(0);
+				arguments.add(explicit ? index - 1 : nextArgument++);
+			} else if (explicit) {
+				throw invalidConversion(template, start);
+			} else if (conversion == '%') {
+				literal.append('%');
+			} else if (conversion == 'n') {
+				literal.append(System.getProperty("line.separator"));
+			} else {
+				throw invalidConversion(template, start);
+			}
+		}
+		literals.add(literal.toString());
+
+		int[] argumentArray = new int[arguments.size()];
+		for (int i = 0; i < argumentArray.length; i++) {
+			argumentArray[i] = arguments.get(i);
+		}
+		return new CommandTemplate(template, literals.toArray(new String[literals.size()]), argumentArray);
+	}
+
+	/**
+	 * Creates the exception thrown for an unsupported conversion.
+	 *
+	 * @param template the format string
+	 * @param start    the index of the conversion's percent sign
+	 * @return the exception describing the conversion
+	 */
+	private static IllegalArgumentException invalidConversion(String template, int start) {
+		return new IllegalArgumentException("Only %s, %%, and %n may be used in a command template, but found \""
+				+ template.substring(start, Math.min(start + 4, template.length())) + "\" in \"" + template + "\".");
+	}
+
+	/**
+	 * Formats a command by substituting the arguments into this template.  A
+	 * <code>null</code> argument is substituted as <code>"null"</code>.
+	 *
+	 * @param arguments the arguments to substitute
+	 * @return the formatted command
+	 * @throws IllegalArgumentException if fewer arguments are supplied than this
+	 *                                  template uses
+	 */
+	public String format(String... arguments) {
+		if (arguments.length < argumentCount) {
+			throw new IllegalArgumentException("The command template \"" + template + "\" needs "
+					+ argumentCount + " arguments, but was given " + arguments.length + ".");
+		}
+		int length = literalLength;
+		for (int argument : this.arguments) {
+			length += String.valueOf(arguments[argument]).length();
+		}
+		StringBuilder command = new StringBuilder(length);
+		for (int i = 0; i < this.arguments.length; i++) {
+			command.append(literals[i]).append(arguments[this.arguments[i]]);
+		}
+		return command.append(literals[literals.length - 1]).toString();
+	}
+
+	/**
+	 * Gets the number of arguments this template uses.
+	 *
+	 * @return the number of arguments needed to format a command
+	 */
+	public int getArgumentCount() {
+		return argumentCount;
+	}
+
+	/**
+	 * Gets the format string this template was compiled from.
+	 *
+	 * @return the format string
+	 */
+	@Override
+	public String toString() {
+		return template;
+	}
+
+}
@@ -0,0 +1,277 @@
+package com.faulch.minecraft.serverwrapper.text;
+
+/**
+ * Writes Minecraft JSON text components, as accepted by the
+ * <code>tellraw</code> command, directly into a reusable buffer.  Each call to
+ * <code>text</code> starts a new component, and the calls which follow it
+ * style that component, for example:
+ * <pre>
+ * writer.reset().text("Teleport ").color("gray")
+ *       .text("here").color("aqua").clickEvent("run_command", "/tp 0 64 0");
+ * </pre>
+ * A single component is written as a JSON object, while several are written
+ * as an array whose first element is empty, so that no component inherits
+ * the style of another.  Strings are escaped as they are written, including
+ * control characters and every character outside of printable ASCII, so the
+ * JSON remains valid whatever the server's character encoding.
+ * <p>
+ * A writer is not thread safe, but may be reused for any number of messages
+ * by calling <code>reset()</code>, which keeps its buffer.
+ *
+ * @author Jonathan Faulch
+ */
+public class TextComponentWriter {
+
+	private static final int initialCapacity = 128;
+	private static final int maximumPooledCapacity = 8192;
+	private static final char[] hexDigits = "0123456789abcdef".toCharArray();
+	private static final ThreadLocal<TextComponentWriter> pooledWriters = new ThreadLocal<TextComponentWriter>() {
+		@Override
+		protected TextComponentWriter initialValue() {
+			return new TextComponentWriter();
+		}
+	};
+
+	private StringBuilder buffer;
+	private int components;
+
+	/**
+	 * Creates an empty <code>TextComponentWriter</code>.
+	 */
+	public TextComponentWriter() {
+		buffer = new StringBuilder(initialCapacity);
+	}
+
+	/**
+	 * Writes a single text component of the given color, using a writer
+	 * pooled by the current thread.
+	 *
+	 * @param text  the text of the component
+	 * @param color the color of the text
+	 * @return the JSON text component
+	 */
+	public static String toJson(String text, String color) {
+		TextComponentWriter writer = pooledWriters.get();
+		String json = writer.reset().text(text).color(color).toJson();
+		if (writer.buffer.capacity() > maximumPooledCapacity) {
+			writer.buffer = new StringBuilder(initialCapacity);
+		}
+		return json;
+	}
+
+	/**
+	 * Discards everything written, so that this writer may write another
+	 * message.
+	 *
+	 * @return this writer
+	 */
+	public TextComponentWriter reset() {
+		buffer.setLength(0);
+		components = 0;
+		return this;
+	}
+
+	/**
+	 * Starts a new component containing the given text.
+	 *
+	 * @param text the text of the component
+	 * @return this writer
+	 */
+	public TextComponentWriter text(String text) {
+		if (components > 0) {
+			if (components == 1) {
+				buffer.insert(0, "[\"\",");
+			}
+			buffer.append("},");
+		}
+		components++;
+		buffer.append("{\"text\":");
+		appendString(text);
+		return this;
+	}
+
+	/**
+	 * Sets the color of the current component.
+	 *
+	 * @param color the name of the color, such as <code>red</code>, or a
+	 *              <code>#rrggbb</code> color on servers which support it
+	 * @return this writer
+	 */
+	public TextComponentWriter color(String color) {
+		return attribute("color", color);
+	}
+
+	/**
+	 * Turns on a style of the current component.
+	 *
+	 * @param style the name of the style, which is one of <code>bold</code>,
+	 *              <code>italic</code>, <code>underlined</code>,
+	 *              <code>strikethrough</code> and <code>obfuscated</code>
+	 * @return this writer
+	 */
+	public TextComponentWriter style(String style) {
+		startAttribute(style);
+		buffer.append("true");
+		return this;
+	}
+
+	/**
+	 * Sets the text inserted into the player's chat box when they shift-click
+	 * the current component.
+	 *
+	 * @param insertion the text to insert
+	 * @return this writer
+	 */
+	public TextComponentWriter insertion(String insertion) {
+		return attribute("insertion", insertion);
+	}
+
+	/**
+	 * Sets what happens when a player clicks the current component.
+	 *
+	 * @param action the click action, such as <code>run_command</code>,
+	 *               <code>suggest_command</code> or <code>open_url</code>
+	 * @param value  the command, text or URL used by the action
+	 * @return this writer
+	 */
+	public TextComponentWriter clickEvent(String action, String value) {
+		return event("clickEvent", action, value);
+	}
+
+	/**
+	 * Sets the text shown when a player hovers over the current component.
+	 *
+	 * @param text the text to show
+	 * @return this writer
+	 */
+	public TextComponentWriter hoverText(String text) {
+		return event("hoverEvent", "show_text", text);
+	}
+
+	/**
+	 * Gets the JSON written so far, which is complete and valid.  More
+	 * components may still be written afterwards.
+	 *
+	 * @return the JSON text component, or an empty JSON string if no
+	 * components have been written
+	 */
+	public String toJson() {
+		if (components == 0) {
+			return "\"\"";
+		}
+		int length = buffer.length();
+		buffer.append('}');
+		if (components > 1) {
+			buffer.append(']');
+		}
+		String json = buffer.toString();
+		buffer.setLength(length);
+		return json;
+	}
+
+	/**
+	 * Gets the JSON written so far.
+	 *
+	 * @return the JSON text component
+	 * @see #toJson()
+	 */
+	@Override
+	public String toString() {
+		return toJson();
+	}
+
+	/**
+	 * Writes a string attribute of the current component.
+	 *
+	 * @param name  the name of the attribute
+	 * @param value the value of the attribute
+	 * @return this writer
+	 */
+	private TextComponentWriter attribute(String name, String value) {
+		startAttribute(name);
+		appendString(value);
+		return this;
+	}
+
+	/**
+	 * Writes an event attribute of the current component, which is an object
+	 * holding an action and its value.
+	 *
+	 * @param name   the name of the event attribute
+	 * @param action the action of the event
+	 * @param value  the value of the action
+	 * @return this writer
+	 */
+	private TextComponentWriter event(String name, String action, String value) {
+		startAttribute(name);
+		buffer.append("{\"action\":");
+		appendString(action);
+		buffer.append(",\"value\":");
+		appendString(value);
+		buffer.append('}');
+		return this;
+	}
+
+	/**
+	 * Writes the name of an attribute of the current component, which its
+	 * value must follow.
+	 *
+	 * @param name the name of the attribute
+	 * @throws IllegalStateException if no component has been started
+	 */
+	private void startAttribute(String name) {
+		if (components == 0) {
+			throw new IllegalStateException("A component must be started with text before it is styled.");
+		}
+		buffer.append(",\"").append(name).append("\":");
+	}
+
+	/**
+	 * Writes a JSON string, escaping quotes, backslashes, control characters
+	 * and every character outside of printable ASCII.  Runs of characters
+	 * needing no escape are copied in bulk.
+	 *
+	 * @param value the string to write, which is written as <code>"null"</code>
+	 *              if it is <code>null</code>
+	 */
+	private void appendString(String value) {
+		value = String.valueOf(value);
+		buffer.append('"');
+		int start = 0;
+		for (int i = 0, length = value.length(); i < length; i++) {
+			char c = value.charAt(i);
+			if (c >= ' ' && c < 0x7f && c != '"' && c != '\\') {
+				continue;
+			}
+			buffer.append(value, start, i);
+			start = i + 1;
+			switch (c) {
+				case '"':
+					buffer.append("\\\"");
+					break;
+				case '\\':
+					buffer.append("\\\\");
+					break;
+				case '\n':
+					buffer.append("\\n");
+					break;
+				case '\r':
+					buffer.append("\\r");
+					break;
+				case '\t':
+					buffer.append("\\t");
+					break;
+				default:
+					buffer.append("\\u")
+							.append(hexDigits[c >> 12 & 0xf])
+							.append(hexDigits[c >> 8 & 0xf])
+							.append(hexDigits[c >> 4 & 0xf])
+							.append(hexDigits[c & 0xf]);
+					break;
+			}
+		}
+		buffer.append(value, start, value.length());
+		buffer.append('"');
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.faulch.minecraft.serverwrapper.trigger;
+
+import java.util.regex.Pattern;
+
+/**
+ * A textual trigger which causes a script to be executed when a line matches
+ * its pattern.  If the pattern contains a single capture group, then it
+ * identifies the script command text, and the script is invoked by the server.
+ * If the pattern contains two or more capture groups, then the first identifies
+ * the name of the player invoking the script, and the second identifies the
+ * script command text.
+ *
+ * @author Jonathan Faulch
+ */
+public class Trigger {
+
+	/**
+	 * Identifies which standard stream a trigger monitors.
+	 */
+	public enum Source {
+
+		/**
+		 * The trigger monitors lines read from standard input.
+		 */
+		INPUT,
+
+		/**
+		 * The trigger monitors lines written to standard output.
+		 */
+		OUTPUT
+
+	}
+
+	private final String name;
+	private final Source source;
+	private final Pattern pattern;
+	private final String literal;
+	private final int groupCount;
+
+	/**
+	 * Creates a <code>Trigger</code>.
+	 *
+	 * @param name    the name of the trigger
+	 * @param source  the standard stream the trigger monitors
+	 * @param pattern the pattern matched against each trimmed line
+	 * @param literal text which must appear in every line matching the pattern,
+	 *                used to cheaply reject lines before the pattern is matched,
+	 *                or an empty string if there is no such text
+	 * @throws IllegalArgumentException if the pattern contains no capture groups
+	 */
+	public Trigger(String name, Source source, Pattern pattern, String literal) {
+		groupCount = pattern.matcher("").groupCount();
+		if (groupCount < 1) {
+			throw new IllegalArgumentException("The pattern of trigger " + name + " must contain at least one capture group.");
+		}
+		this.name = name;
+		this.source = source;
+		this.pattern = pattern;
+		this.literal = literal == null ? "" : literal;
+	}
+
+	/**
+	 * Gets the name of this trigger.
+	 *
+	 * @return the name of this trigger
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the standard stream this trigger monitors.
+	 *
+	 * @return the standard stream this trigger monitors
+	 */
+	public Source getSource() {
+		return source;
+	}
+
+	/**
+	 * Gets the pattern matched against each trimmed line.
+	 *
+	 * @return the pattern of this trigger
+	 */
+	public Pattern getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * Gets the text which must appear in every line matching this trigger's
+	 * pattern.
+	 *
+	 * @return the literal text required by this trigger, or an empty string if
+	 * there is none
+	 */
+	public String getLiteral() {
+		return literal;
+	}
+
+	/**
+	 * Determines whether or not this trigger identifies the player invoking
+	 * the script.
+	 *
+	 * @return <code>true</code> if the pattern identifies the invoking player;
+	 * <code>false</code> if scripts are invoked by the server
+	 */
+	public boolean isPlayerTrigger() {
+		return groupCount >= 2;
+	}
+
+}
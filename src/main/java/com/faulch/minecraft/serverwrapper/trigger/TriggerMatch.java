@@ -0,0 +1,56 @@
+package com.faulch.minecraft.serverwrapper.trigger;
+
+/**
+ * The result of a line matching a trigger in a <code>TriggerTable</code>.
+ *
+ * @author Jonathan Faulch
+ */
+public class TriggerMatch {
+
+	private final Trigger trigger;
+	private final String playerName;
+	private final String commandText;
+
+	/**
+	 * Creates a <code>TriggerMatch</code>.
+	 *
+	 * @param trigger     the trigger which matched the line
+	 * @param playerName  the name of the player invoking the script, or
+	 *                    <code>null</code> if the script is invoked by the server
+	 * @param commandText the script command text
+	 */
+	TriggerMatch(Trigger trigger, String playerName, String commandText) {
+		this.trigger = trigger;
+		this.playerName = playerName;
+		this.commandText = commandText;
+	}
+
+	/**
+	 * Gets the trigger which matched the line.
+	 *
+	 * @return the trigger which matched the line
+	 */
+	public Trigger getTrigger() {
+		return trigger;
+	}
+
+	/**
+	 * Gets the name of the player invoking the script.
+	 *
+	 * @return the name of the player invoking the script, or <code>null</code>
+	 * if the script is invoked by the server
+	 */
+	public String getPlayerName() {
+		return playerName;
+	}
+
+	/**
+	 * Gets the script command text.
+	 *
+	 * @return the script command text
+	 */
+	public String getCommandText() {
+		return commandText;
+	}
+
+}
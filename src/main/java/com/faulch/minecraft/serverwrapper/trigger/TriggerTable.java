@@ -0,0 +1,153 @@
+package com.faulch.minecraft.serverwrapper.trigger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches lines against many triggers at once.  The patterns of every trigger
+ * are compiled into a single alternation, so that each line is matched in a
+ * single pass, no matter how many triggers there are.  Before a line is
+ * matched, it is scanned for the literal text required by the triggers, so
+ * that the vast majority of lines, which can't possibly match, are rejected
+ * without allocating anything.  Since the patterns are combined, they should
+ * not contain numbered back references.
+ *
+ * @author Jonathan Faulch
+ */
+public class TriggerTable {
+
+	private final Trigger[] triggers;
+	private final int[] groupOffsets;
+	private final String[] literals;
+	private final Pattern pattern;
+	private final ThreadLocal<Matcher> matchers;
+
+	/**
+	 * Creates a <code>TriggerTable</code> from the supplied triggers.  When a
+	 * line matches more than one trigger, the trigger appearing first wins.
+	 *
+	 * @param triggers the triggers which lines will be matched against
+	 */
+	public TriggerTable(List<Trigger> triggers) {
+		this.triggers = triggers.toArray(new Trigger[triggers.size()]);
+		groupOffsets = new int[this.triggers.length];
+		List<String> literalList = new ArrayList<String>();
+		StringBuilder combined = new StringBuilder();
+		int group = 1;
+		for (int i = 0; i < this.triggers.length; i++) {
+			Trigger trigger = this.triggers[i];
+			if (i > 0) {
+				combined.append('|');
+			}
+			combined.append('(').append(trigger.getPattern().pattern()).append(')');
+			groupOffsets[i] = group;
+			group += 1 + trigger.getPattern().matcher("").groupCount();
+			if (literalList != null) {
+				if (trigger.getLiteral().length() == 0) {
+					literalList = null;
+				} else if (!literalList.contains(trigger.getLiteral())) {
+					literalList.add(trigger.getLiteral());
+				}
+			}
+		}
+		literals = literalList == null ? null : literalList.toArray(new String[literalList.size()]);
+		pattern = this.triggers.length == 0 ? null : Pattern.compile(combined.toString());
+		matchers = new ThreadLocal<Matcher>() {
+			@Override
+			protected Matcher initialValue() {
+				return pattern.matcher("");
+			}
+		};
+	}
+
+	/**
+	 * Matches a line against every trigger in this table.  Leading and
+	 * trailing whitespace is ignored, and a trigger only matches if its pattern
+	 * matches the entire remainder of the line.
+	 *
+	 * @param line the line to be matched
+	 * @return the match result of the first trigger matching the line, or
+	 * <code>null</code> if no trigger matches the line
+	 */
+	public TriggerMatch match(CharSequence line) {
+		if (pattern == null || !containsLiteral(line)) {
+			return null;
+		}
+		int start = 0;
+		int end = line.length();
+		while (start < end && line.charAt(start) <= ' ') {
+			start++;
+		}
+		while (start < end && line.charAt(end - 1) <= ' ') {
+			end--;
+		}
+
+		Matcher matcher = matchers.get();
+		matcher.reset(line).region(start, end);
+		try {
+			if (!matcher.matches()) {
+				return null;
+			}
+			for (int i = 0; i < triggers.length; i++) {
+				int group = groupOffsets[i];
+				if (matcher.start(group) != -1) {
+					return triggers[i].isPlayerTrigger()
+							? new TriggerMatch(triggers[i], matcher.group(group + 1), matcher.group(group + 2))
+							: new TriggerMatch(triggers[i], null, matcher.group(group + 1));
+				}
+			}
+			return null;
+		} finally {
+			matcher.reset("");
+		}
+	}
+
+	/**
+	 * Determines whether or not the line contains the literal text required
+	 * by at least one trigger.
+	 *
+	 * @param line the line to be scanned
+	 * @return <code>true</code> if the line contains a required literal, or if
+	 * some trigger requires no literal; <code>false</code> otherwise
+	 */
+	private boolean containsLiteral(CharSequence line) {
+		if (literals == null) {
+			return true;
+		}
+		for (String literal : literals) {
+			if (indexOf(line, literal) != -1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the first occurrence of a string within a character sequence,
+	 * without converting the sequence into a string.
+	 *
+	 * @param sequence the sequence to be searched
+	 * @param target   the string to search for
+	 * @return the index of the first occurrence of the target, or -1 if it
+	 * does not occur
+	 */
+	private static int indexOf(CharSequence sequence, String target) {
+		char first = target.charAt(0);
+		int last = sequence.length() - target.length();
+		for (int i = 0; i <= last; i++) {
+			if (sequence.charAt(i) == first) {
+				int j = 1;
+				while (j < target.length() && sequence.charAt(i + j) == target.charAt(j)) {
+					j++;
+				}
+				if (j == target.length()) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+}
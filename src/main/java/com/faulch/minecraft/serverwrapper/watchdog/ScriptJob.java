@@ -0,0 +1,158 @@
+package com.faulch.minecraft.serverwrapper.watchdog;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A script which is currently running under the watch of a
+ * <code>ScriptWatchdog</code>.  This is the handle administrators use to
+ * inspect or kill running scripts.
+ *
+ * @author Jonathan Faulch
+ */
+public class ScriptJob {
+
+	private final int id;
+	private final String scriptName;
+	private final String invokerName;
+	private final Thread thread;
+	private final long startTime;
+	private final long startCpuTime;
+	private String cancelReason;
+	private boolean finished;
+
+	/**
+	 * Creates a <code>ScriptJob</code> for a script running on the current
+	 * thread.
+	 *
+	 * @param id          the number identifying the job
+	 * @param scriptName  the name of the script
+	 * @param invokerName the name of the invoker who triggered the script
+	 */
+	ScriptJob(int id, String scriptName, String invokerName) {
+		this.id = id;
+		this.scriptName = scriptName;
+		this.invokerName = invokerName;
+		thread = Thread.currentThread();
+		startTime = System.nanoTime();
+		startCpuTime = ScriptWatchdog.getCurrentThreadCpuTime();
+	}
+
+	/**
+	 * Gets the number identifying this job.
+	 *
+	 * @return the number identifying this job
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Gets the name of the running script.
+	 *
+	 * @return the name of the script
+	 */
+	public String getScriptName() {
+		return scriptName;
+	}
+
+	/**
+	 * Gets the name of the invoker who triggered the script.
+	 *
+	 * @return the name of the invoker
+	 */
+	public String getInvokerName() {
+		return invokerName;
+	}
+
+	/**
+	 * Gets the number of nanoseconds since the script started.
+	 *
+	 * @return the wall-clock time the script has run for
+	 */
+	public long getElapsedTime() {
+		return System.nanoTime() - startTime;
+	}
+
+	/**
+	 * Gets the number of nanoseconds of CPU time the script has used.  This
+	 * may be called from any thread.
+	 *
+	 * @return the CPU time used by the script, or zero if the JVM does not
+	 * measure the CPU time of threads
+	 */
+	public long getCpuTime() {
+		long cpuTime = ScriptWatchdog.getThreadCpuTime(thread);
+		return cpuTime < 0 || startCpuTime < 0 ? 0 : cpuTime - startCpuTime;
+	}
+
+	/**
+	 * Gets the number of nanoseconds of CPU time the script has used, which
+	 * is cheaper than <code>getCpuTime()</code>, but must be called from the
+	 * thread running the script.
+	 *
+	 * @return the CPU time used by the script, or zero if the JVM does not
+	 * measure the CPU time of threads
+	 */
+	long getCurrentCpuTime() {
+		long cpuTime = ScriptWatchdog.getCurrentThreadCpuTime();
+		return cpuTime < 0 || startCpuTime < 0 ? 0 : cpuTime - startCpuTime;
+	}
+
+	/**
+	 * Gets the reason this job was cancelled.
+	 *
+	 * @return the reason this job was cancelled, or <code>null</code> if it
+	 * has not been cancelled
+	 */
+	public synchronized String getCancelReason() {
+		return cancelReason;
+	}
+
+	/**
+	 * Cancels this job by interrupting the thread running the script.  The
+	 * script stops the next time it waits, sleeps, or executes a command.
+	 *
+	 * @param reason the reason this job is being cancelled, which is shown to
+	 *               the invoker
+	 * @return <code>true</code> if this job was cancelled; <code>false</code> if
+	 * it had already finished or been cancelled
+	 */
+	synchronized boolean cancel(String reason) {
+		if (finished || cancelReason != null) {
+			return false;
+		}
+		cancelReason = reason;
+		thread.interrupt();
+		return true;
+	}
+
+	/**
+	 * Marks this job as finished, so that its thread, which is about to run
+	 * other tasks, is never interrupted on its behalf.
+	 */
+	synchronized void finish() {
+		finished = true;
+	}
+
+	/**
+	 * Describes this job on a single line, with its times in seconds.
+	 *
+	 * @return a description of this job
+	 */
+	@Override
+	public String toString() {
+		return "#" + id + " " + scriptName + " (" + invokerName + ") "
+				+ toSeconds(getElapsedTime()) + "s, " + toSeconds(getCpuTime()) + "s CPU";
+	}
+
+	/**
+	 * Converts nanoseconds into seconds, rounded to one decimal place.
+	 *
+	 * @param nanos a number of nanoseconds
+	 * @return the equivalent number of seconds
+	 */
+	private static double toSeconds(long nanos) {
+		return Math.round(nanos / (double) TimeUnit.MILLISECONDS.toNanos(100)) / 10.0;
+	}
+
+}
@@ -0,0 +1,238 @@
+package com.faulch.minecraft.serverwrapper.watchdog;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of the scripts which are running, and stops those which run for
+ * too long or use too much CPU time.  A daemon thread periodically compares
+ * each running script's wall-clock time, and the CPU time of the thread
+ * running it, with the configured limits, and cancels any script exceeding
+ * them.  Scripts may also be killed by an administrator.  The CPU time of
+ * virtual threads is not measured, so the CPU time limit only applies to
+ * scripts running on platform threads.
+ * <p>
+ * Cancelling a script interrupts its thread.  A script stops as soon as it
+ * waits, sleeps, or executes a command, since those are the cancellation
+ * points of the console.  A script which does none of these, such as one
+ * stuck computing in a loop, is interrupted but keeps its thread until it
+ * finishes on its own.
+ *
+ * @author Jonathan Faulch
+ */
+public class ScriptWatchdog {
+
+	private static final ThreadMXBean threadMXBean = createThreadMXBean();
+
+	private final long interval;
+	private final AtomicInteger nextId;
+	private final ConcurrentMap<Integer, ScriptJob> jobs;
+	private final ThreadLocal<ScriptJob> currentJob;
+	private volatile long timeLimit;
+	private volatile long cpuTimeLimit;
+
+	/**
+	 * Creates a <code>ScriptWatchdog</code>, and starts the daemon thread which
+	 * checks the running scripts against the limits.
+	 *
+	 * @param timeLimit    the number of milliseconds a script may run for, or zero if
+	 *                     it is unlimited
+	 * @param cpuTimeLimit the number of milliseconds of CPU time a script may use, or
+	 *                     zero if it is unlimited
+	 * @param interval     the number of milliseconds between checks of the running
+	 *                     scripts, or zero if the limits should not be enforced
+	 */
+	public ScriptWatchdog(long timeLimit, long cpuTimeLimit, long interval) {
+		this.interval = interval;
+		nextId = new AtomicInteger(1);
+		jobs = new ConcurrentHashMap<Integer, ScriptJob>();
+		currentJob = new ThreadLocal<ScriptJob>();
+		setLimits(timeLimit, cpuTimeLimit);
+		if (interval > 0) {
+			startWatchThread();
+		}
+	}
+
+	/**
+	 * Creates the bean used for measuring the CPU time of threads, enabling
+	 * the measurement if the JVM supports it.
+	 *
+	 * @return the thread management bean of the JVM
+	 */
+	private static ThreadMXBean createThreadMXBean() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		try {
+			if (bean.isThreadCpuTimeSupported() && !bean.isThreadCpuTimeEnabled()) {
+				bean.setThreadCpuTimeEnabled(true);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return bean;
+	}
+
+	/**
+	 * Starts the daemon thread which checks the running scripts.
+	 */
+	private void startWatchThread() {
+		Thread watchThread = new Thread("Script-Watchdog") {
+			@Override
+			public void run() {
+				try {
+					while (true) {
+						Thread.sleep(interval);
+						check();
+					}
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+	/**
+	 * Changes the limits applied to running scripts, including those which are
+	 * already running.
+	 *
+	 * @param timeLimit    the number of milliseconds a script may run for, or zero if
+	 *                     it is unlimited
+	 * @param cpuTimeLimit the number of milliseconds of CPU time a script may use, or
+	 *                     zero if it is unlimited
+	 */
+	public final void setLimits(long timeLimit, long cpuTimeLimit) {
+		this.timeLimit = TimeUnit.MILLISECONDS.toNanos(timeLimit);
+		this.cpuTimeLimit = TimeUnit.MILLISECONDS.toNanos(cpuTimeLimit);
+	}
+
+	/**
+	 * Cancels every running script which has exceeded one of the limits.
+	 */
+	private void check() {
+		long timeLimit = this.timeLimit;
+		long cpuTimeLimit = this.cpuTimeLimit;
+		for (ScriptJob job : jobs.values()) {
+			if (timeLimit > 0 && job.getElapsedTime() > timeLimit) {
+				job.cancel("The script " + job.getScriptName() + " ran for longer than "
+						+ TimeUnit.NANOSECONDS.toMillis(timeLimit) + " milliseconds and was stopped.");
+			} else if (cpuTimeLimit > 0 && job.getCpuTime() > cpuTimeLimit) {
+				job.cancel("The script " + job.getScriptName() + " used more than "
+						+ TimeUnit.NANOSECONDS.toMillis(cpuTimeLimit) + " milliseconds of CPU time and was stopped.");
+			}
+		}
+	}
+
+	/**
+	 * Starts watching a script which is about to run on the current thread.
+	 * The returned job must be passed to <code>finish(ScriptJob)</code> once
+	 * the script has finished, whether or not it succeeded.
+	 *
+	 * @param scriptName  the name of the script
+	 * @param invokerName the name of the invoker who triggered the script
+	 * @return the job representing the running script
+	 */
+	public ScriptJob start(String scriptName, String invokerName) {
+		ScriptJob job = new ScriptJob(nextId.getAndIncrement(), scriptName, invokerName);
+		jobs.put(job.getId(), job);
+		currentJob.set(job);
+		return job;
+	}
+
+	/**
+	 * Stops watching a script which has finished on the current thread, and
+	 * clears any interrupt meant for it, so that the thread may safely run
+	 * other tasks.
+	 *
+	 * @param job the job returned when the script was started
+	 * @return the number of nanoseconds of CPU time the script used
+	 */
+	public long finish(ScriptJob job) {
+		job.finish();
+		Thread.interrupted();
+		jobs.remove(job.getId());
+		currentJob.remove();
+		return job.getCurrentCpuTime();
+	}
+
+	/**
+	 * Gets the scripts which are currently running, ordered by when they
+	 * started.
+	 *
+	 * @return the running scripts
+	 */
+	public List<ScriptJob> getJobs() {
+		return new ArrayList<ScriptJob>(new TreeMap<Integer, ScriptJob>(jobs).values());
+	}
+
+	/**
+	 * Kills a running script.
+	 *
+	 * @param id     the number identifying the job of the script
+	 * @param killer the name of whoever is killing the script
+	 * @return <code>true</code> if the script was killed; <code>false</code> if
+	 * no such script is running, or it is already being stopped
+	 */
+	public boolean kill(int id, String killer) {
+		ScriptJob job = jobs.get(id);
+		return job != null && job.cancel("The script " + job.getScriptName() + " was killed by " + killer + ".");
+	}
+
+	/**
+	 * Gets the job of the script running on the current thread.
+	 *
+	 * @return the job of the script running on the current thread, or
+	 * <code>null</code> if the current thread is not running a watched script
+	 */
+	public ScriptJob getCurrentJob() {
+		return currentJob.get();
+	}
+
+	/**
+	 * Stops the script running on the current thread if it has been
+	 * cancelled.  Nothing happens if the current thread is not running a
+	 * watched script.
+	 *
+	 * @throws CancellationException if the script running on the current thread has
+	 *                               been cancelled
+	 */
+	public void checkpoint() {
+		ScriptJob job = currentJob.get();
+		if (job != null) {
+			String reason = job.getCancelReason();
+			if (reason != null) {
+				throw new CancellationException(reason);
+			}
+		}
+	}
+
+	/**
+	 * Gets the CPU time of the current thread.
+	 *
+	 * @return the CPU time of the current thread in nanoseconds, or -1 if it is
+	 * not measured
+	 */
+	static long getCurrentThreadCpuTime() {
+		return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : -1;
+	}
+
+	/**
+	 * Gets the CPU time of a thread.
+	 *
+	 * @param thread the thread
+	 * @return the CPU time of the thread in nanoseconds, or -1 if it is not
+	 * measured or the thread has died
+	 */
+	static long getThreadCpuTime(Thread thread) {
+		return threadMXBean.isThreadCpuTimeSupported() ? threadMXBean.getThreadCpuTime(thread.threadId()) : -1;
+	}
+
+}